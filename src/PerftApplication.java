@@ -0,0 +1,62 @@
+import engine.Perft;
+import model.Bitboard;
+import model.MoveGenerator;
+import model.PositionFormat;
+
+/**
+ * PerftApplication class runs a perft count from the command line, without the user interface. It counts
+ * the positions reached from a position for every depth up to the given one and reports the time taken and
+ * the positions per second.
+ * Usage: PerftApplication depth [--divide] [position], where the position is written as by PositionFormat
+ * and defaults to the starting position.
+ */
+public class PerftApplication {
+
+    /**
+     * The main method to run a perft count
+     * @param args the depth, optionally --divide, optionally the position
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: PerftApplication depth [--divide] [position]");
+            System.exit(2);
+        }
+
+        // read the arguments
+        int depth = Integer.parseInt(args[0]);
+        boolean divide = false;
+        StringBuilder position = new StringBuilder();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--divide")) {
+                divide = true;
+            } else {
+                position.append(args[i]).append(' ');
+            }
+        }
+        Bitboard bitboard = PositionFormat.parse(position.length() == 0 ? PositionFormat.START_POSITION : position.toString());
+        System.out.println("Position: " + PositionFormat.format(bitboard));
+
+        Perft perft = new Perft();
+        if (divide) {
+            // split the count per legal move
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            long[] counts = new long[MoveGenerator.MAX_MOVES];
+            long start = System.nanoTime();
+            int count = perft.divide(bitboard, depth, moves, counts);
+            long elapsed = System.nanoTime() - start;
+            System.out.println(Perft.describeDivide(moves, counts, count));
+            System.out.println("Time: " + elapsed / 1_000_000L + " ms");
+            return;
+        }
+
+        // count every depth up to the given one
+        for (int d = 1; d <= depth; d++) {
+            long start = System.nanoTime();
+            long nodes = perft.perft(bitboard, d);
+            long elapsed = Math.max(1, System.nanoTime() - start);
+            System.out.println("perft(" + d + ") = " + nodes + "  time " + elapsed / 1_000_000L + " ms  "
+                    + nodes * 1_000_000_000L / elapsed + " nodes/s");
+        }
+    }
+
+}
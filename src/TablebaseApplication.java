@@ -0,0 +1,135 @@
+import tablebase.PositionIndex;
+import tablebase.RetrogradeSolver;
+import tablebase.Tablebase;
+import tablebase.TablebaseFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * TablebaseApplication class computes the endgame tablebase from the command line, without the user
+ * interface. It solves every subspace with at most the given number of tokens on board in total, from the
+ * fewest tokens up, since a removal leads to a subspace with a token less, and writes the file of every
+ * subspace into a directory. A subspace whose file is already in the directory is read instead of solved
+ * again, so an interrupted run goes on where it stopped. With --wdl-only the files only hold the WDL layer,
+ * a quarter of a byte per position, enough to probe the result of a position but not to solve larger
+ * subspaces from them. With --compress the layers are compressed by blocks.
+ * A long solve saves its state to a checkpoint file in the directory every few minutes, and a solve that
+ * was interrupted starts again from its checkpoint, which is deleted once the files are written.
+ * Usage: TablebaseApplication [--max-tokens n] [--threads n] [--dir directory] [--wdl-only] [--compress]
+ * [--checkpoint-minutes n]
+ */
+public class TablebaseApplication {
+
+    /**
+     * The main method to compute the tablebase
+     * @param args the options described by the class documentation
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        // read the options
+        int maxTokens = 7;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path directory = Paths.get(Tablebase.DEFAULT_DIRECTORY);
+        int flags = TablebaseFile.DISTANCES;
+        int checkpointMinutes = 10;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--max-tokens":
+                    maxTokens = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--dir":
+                    directory = Paths.get(args[++i]);
+                    break;
+                case "--wdl-only":
+                    flags &= ~TablebaseFile.DISTANCES;
+                    break;
+                case "--compress":
+                    flags |= TablebaseFile.COMPRESSED;
+                    break;
+                case "--checkpoint-minutes":
+                    checkpointMinutes = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(2);
+            }
+        }
+        Files.createDirectories(directory);
+        System.out.println("Tablebase: up to " + maxTokens + " tokens, " + threads + " threads, in " + directory);
+
+        Tablebase tablebase = new Tablebase(directory);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        RetrogradeSolver solver = new RetrogradeSolver(tablebase, pool, directory, checkpointMinutes * 60_000L);
+        for (int total = 2 * Tablebase.MIN_TOKENS; total <= maxTokens; total++) {
+            for (int moverCount = Tablebase.MIN_TOKENS; moverCount <= total - moverCount; moverCount++) {
+                int otherCount = total - moverCount;
+                if (otherCount > Tablebase.MAX_TOKENS) {
+                    continue;
+                }
+                Path first = directory.resolve(TablebaseFile.getFileName(moverCount, otherCount));
+                Path second = directory.resolve(TablebaseFile.getFileName(otherCount, moverCount));
+                if (Files.exists(first) && Files.exists(second)) {
+                    System.out.println(moverCount + "-" + otherCount + ": already solved");
+                    continue;
+                }
+
+                if (solver.hasCheckpoint(moverCount, otherCount)) {
+                    System.out.println(moverCount + "-" + otherCount + ": starting again from the checkpoint");
+                }
+                long start = System.nanoTime();
+                int levels = solver.solve(moverCount, otherCount);
+                long elapsed = System.nanoTime() - start;
+                write(tablebase, moverCount, otherCount, first, flags);
+                if (moverCount != otherCount) {
+                    write(tablebase, otherCount, moverCount, second, flags);
+                }
+                solver.deleteCheckpoint(moverCount, otherCount);
+                System.out.printf("%d-%d: solved in %.1f s, longest game %d plies%n", moverCount, otherCount,
+                        elapsed / 1e9, levels - 1);
+            }
+        }
+        pool.shutdown();
+    }
+
+    /**
+     * Write the file of a solved subspace and print what it holds
+     * @param tablebase the tablebase that holds the subspace
+     * @param moverCount the number of tokens on board of the side to move
+     * @param otherCount the number of tokens on board of the opponent
+     * @param file the file to write
+     * @param flags the flags of the layers to write, as described by TablebaseFile
+     * @throws IOException if the file cannot be written
+     */
+    private static void write(Tablebase tablebase, int moverCount, int otherCount, Path file, int flags)
+            throws IOException {
+        PositionIndex index = tablebase.getIndex(moverCount, otherCount);
+        byte[] values = tablebase.getValues(moverCount, otherCount);
+        TablebaseFile.write(file, index, values, flags);
+
+        // count the wins, losses and draws of the side to move, leaving out the gaps of the index
+        long positions = 0;
+        long wins = 0;
+        long losses = 0;
+        for (int position = 0; position < values.length; position++) {
+            long unranked = index.unrank(position);
+            if (index.rank(PositionIndex.getMover(unranked), PositionIndex.getOther(unranked)) != position) {
+                continue;
+            }
+            positions++;
+            if (Tablebase.isWin(values[position] & 0xFF)) {
+                wins++;
+            } else if (Tablebase.isLoss(values[position] & 0xFF)) {
+                losses++;
+            }
+        }
+        System.out.printf("  %s: %d positions up to symmetry, %d wins, %d losses, %d draws, %d bytes%n",
+                file.getFileName(), positions, wins, losses, positions - wins - losses, Files.size(file));
+    }
+}
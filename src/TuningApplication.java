@@ -0,0 +1,230 @@
+import engine.EvaluationWeights;
+import engine.ParallelSearch;
+import engine.SelfPlay;
+import engine.SelfPlayCheckpoint;
+import engine.TexelTuner;
+import engine.TranspositionTable;
+import model.Bitboard;
+import model.Difficulty;
+import model.Game;
+import model.SearchComputerPlayer;
+import model.TokenColor;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TuningApplication class tunes the weights of the evaluation from the command line, without the user
+ * interface. It plays a batch of games between two searching computer players on a number of threads, labels
+ * every position of the games with the result of its game, fits the weights to the labels with a
+ * TexelTuner and writes them as a weights file, which the evaluator reads when it is on the class path as
+ * engine/evaluation.properties or named by the nmm.eval.weights system property.
+ * Like the self-play benchmark, the master seed is split into one stream per game, the players search within
+ * the node budget of the difficulty, and the positions are added in the order of the games, so the weights
+ * only depend on the options and not on the threads or the speed of the machine.
+ * With --checkpoint, the finished games are saved with their moves to a checkpoint file every minute or so,
+ * and a run with the same options only plays the games the checkpoint does not have. The file is deleted
+ * once the weights are written.
+ * Usage: TuningApplication [--games n] [--threads n] [--seed n] [--difficulty EASY|MEDIUM|HARD]
+ * [--random-plies n] [--max-plies n] [--passes n] [--output file] [--checkpoint file] [--checkpoint-seconds n]
+ */
+public class TuningApplication {
+    /**
+     * an integer represents the size in megabytes of the transposition table of every player
+     */
+    private static final int TRANSPOSITION_TABLE_MB = 4;
+
+    /**
+     * The main method to tune the weights
+     * @param args the options described by the class documentation
+     * @throws InterruptedException if interrupted while waiting for the games
+     * @throws IOException if the weights file or the checkpoint file cannot be written
+     */
+    public static void main(String[] args) throws InterruptedException, IOException {
+        // read the options
+        int games = 10000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        Difficulty difficulty = Difficulty.EASY;
+        int randomPlies = 8;
+        int maxPlies = SelfPlay.DEFAULT_MAX_PLIES;
+        int passes = 200;
+        String output = "evaluation.properties";
+        String checkpointFile = null;
+        int checkpointSeconds = 60;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--difficulty":
+                    difficulty = Difficulty.valueOf(args[++i]);
+                    break;
+                case "--random-plies":
+                    randomPlies = Integer.parseInt(args[++i]);
+                    break;
+                case "--max-plies":
+                    maxPlies = Integer.parseInt(args[++i]);
+                    break;
+                case "--passes":
+                    passes = Integer.parseInt(args[++i]);
+                    break;
+                case "--output":
+                    output = args[++i];
+                    break;
+                case "--checkpoint":
+                    checkpointFile = args[++i];
+                    break;
+                case "--checkpoint-seconds":
+                    checkpointSeconds = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(2);
+            }
+        }
+        EvaluationWeights initial = EvaluationWeights.fromConfiguration();
+        System.out.println("Tuning: " + games + " games, " + threads + " threads, seed " + seed + ", "
+                + difficulty + ", " + randomPlies + " random plies, draw after " + maxPlies + " plies");
+        System.out.println("Initial weights: " + initial);
+
+        // take the games finished by a previous run from the checkpoint
+        int[][] gameMoves = new int[games][];
+        TokenColor[] winners = new TokenColor[games];
+        SelfPlayCheckpoint checkpoint = null;
+        if (checkpointFile != null) {
+            String options = games + " games, seed " + seed + ", " + difficulty + ", " + randomPlies
+                    + " random plies, draw after " + maxPlies + " plies";
+            checkpoint = new SelfPlayCheckpoint(Paths.get(checkpointFile), options, games, true,
+                    checkpointSeconds * 1000L);
+            System.out.println("Resumed " + checkpoint.load() + " games from " + checkpointFile);
+            for (int game = 0; game < games; game++) {
+                if (checkpoint.isFinished(game)) {
+                    gameMoves[game] = checkpoint.getGameMoves(game);
+                    winners[game] = checkpoint.getWinner(game);
+                }
+            }
+        }
+
+        // play the other games
+        long start = System.nanoTime();
+        playGames(gameMoves, winners, threads, seed, difficulty, randomPlies, maxPlies, checkpoint);
+        if (checkpoint != null) {
+            checkpoint.write();
+        }
+        System.out.printf("Played the games in %.1f s%n", (System.nanoTime() - start) / 1e9);
+
+        // label the positions past the random plies, in the order of the games
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        TexelTuner tuner = new TexelTuner(pool);
+        for (int game = 0; game < games; game++) {
+            Game replay = new Game(new Bitboard(), 1);
+            int result = TexelTuner.getResult(winners[game]);
+            for (int ply = 0; ply < gameMoves[game].length; ply++) {
+                if (ply >= randomPlies) {
+                    tuner.addPosition(replay.getBitboard(), result);
+                }
+                replay.play(gameMoves[game][ply]);
+            }
+        }
+        System.out.println("Positions: " + tuner.getPositionCount());
+
+        // fit the scale, then the weights
+        start = System.nanoTime();
+        double scale = tuner.fitScale(initial);
+        double initialError = tuner.computeError(initial);
+        EvaluationWeights tuned = tuner.tune(initial, passes);
+        double tunedError = tuner.computeError(tuned);
+        pool.shutdown();
+        System.out.printf("Scale %.6f, error %.6f -> %.6f in %.1f s%n", scale, initialError, tunedError,
+                (System.nanoTime() - start) / 1e9);
+        System.out.println("Tuned weights: " + tuned);
+
+        try (OutputStream stream = new FileOutputStream(output)) {
+            tuned.store(stream, String.format("tuned on %d positions of %d games, seed %d, %s, error %.6f",
+                    tuner.getPositionCount(), games, seed, difficulty, tunedError));
+        }
+        System.out.println("Weights written to " + output);
+        if (checkpoint != null) {
+            checkpoint.delete();
+        }
+    }
+
+    /**
+     * Play a batch of games on a pool of threads, every thread with its own players, except the games
+     * already finished
+     * @param gameMoves the array filled with the moves of every game, the moves of a finished game being set
+     * @param winners the array filled with the winner of every game, null for a draw
+     * @param threads the number of threads playing games
+     * @param seed the master seed, split into one stream per game
+     * @param difficulty the strength of both players
+     * @param randomPlies the number of random plies every game starts with
+     * @param maxPlies the number of plies after which a game is a draw
+     * @param checkpoint the checkpoint the finished games are recorded to, or null
+     * @throws InterruptedException if interrupted while waiting for the games
+     */
+    private static void playGames(int[][] gameMoves, TokenColor[] winners, int threads, long seed,
+                                  Difficulty difficulty, int randomPlies, int maxPlies, SelfPlayCheckpoint checkpoint)
+            throws InterruptedException {
+        SplittableRandom master = new SplittableRandom(seed);
+        SplittableRandom[] gameRandoms = new SplittableRandom[gameMoves.length];
+        for (int game = 0; game < gameMoves.length; game++) {
+            gameRandoms[game] = master.split();
+        }
+
+        AtomicInteger nextGame = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(executor.submit(() -> {
+                ParallelSearch whiteSearch = new ParallelSearch(1, new TranspositionTable(TRANSPOSITION_TABLE_MB));
+                ParallelSearch blackSearch = new ParallelSearch(1, new TranspositionTable(TRANSPOSITION_TABLE_MB));
+                whiteSearch.setNodeBudget(difficulty.getNodeBudget());
+                blackSearch.setNodeBudget(difficulty.getNodeBudget());
+                SelfPlay selfPlay = new SelfPlay(new SearchComputerPlayer(TokenColor.WHITE, difficulty, whiteSearch),
+                        new SearchComputerPlayer(TokenColor.BLACK, difficulty, blackSearch), randomPlies, maxPlies);
+                for (int game = nextGame.getAndIncrement(); game < gameMoves.length; game = nextGame.getAndIncrement()) {
+                    if (gameMoves[game] != null) {
+                        continue;
+                    }
+
+                    // the game only depends on its stream
+                    whiteSearch.getTranspositionTable().clear();
+                    blackSearch.getTranspositionTable().clear();
+                    winners[game] = selfPlay.play(gameRandoms[game]);
+                    gameMoves[game] = selfPlay.getGameMoves();
+                    if (checkpoint != null) {
+                        checkpoint.record(game, winners[game], selfPlay.getPlies(), selfPlay.getGameHash(),
+                                gameMoves[game]);
+                    }
+                }
+            }));
+        }
+        try {
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A self-play game failed", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
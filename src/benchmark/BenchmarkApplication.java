@@ -0,0 +1,294 @@
+package benchmark;
+
+import engine.Evaluator;
+import engine.Perft;
+import engine.SearchEngine;
+import engine.TranspositionTable;
+import model.Bitboard;
+import model.Board;
+import model.Game;
+import model.HumanPlayer;
+import model.MoveGenerator;
+import model.Node;
+import model.Player;
+import model.PositionFormat;
+import model.TokenColor;
+import model.ValidGenerator;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.LongSupplier;
+
+/**
+ * BenchmarkApplication class times the hot paths of the model and the engine on the representative positions
+ * of BenchmarkPosition, without the user interface, and compares the times with a baseline so that a
+ * regression is caught. The checked-in baseline is benchmark/baseline.properties; it maps every benchmark to
+ * its median time per call in nanoseconds and is rewritten with --write after an intended change.
+ * Usage: BenchmarkApplication [--baseline file] [--write file] [--tolerance ratio] [--filter text] [--quick]
+ * The application exits with status 1 when a benchmark is slower than its baseline by more than the
+ * tolerance, 0.25 by default. Baselines are only comparable on the same machine and JVM. With --quick
+ * the benchmarks are barely warmed up, which only checks that they run, so there is no comparison.
+ */
+public class BenchmarkApplication {
+    /**
+     * a String represents the class path resource of the checked-in baseline
+     */
+    private static final String BASELINE_RESOURCE = "/benchmark/baseline.properties";
+
+    /**
+     * a double represents the default slowdown ratio above which a benchmark is a regression
+     */
+    private static final double DEFAULT_TOLERANCE = 0.25;
+
+    /**
+     * an integer represents the depth of the perft benchmark
+     */
+    private static final int PERFT_DEPTH = 3;
+
+    /**
+     * an integer represents the depth of the search benchmark
+     */
+    private static final int SEARCH_DEPTH = 4;
+
+    /**
+     * a long represents the time budget in milliseconds of the search benchmark, long enough to reach its depth
+     */
+    private static final long SEARCH_BUDGET_MILLIS = 60_000;
+
+    /**
+     * The main method to run the benchmarks
+     * @param args the options described by the class documentation
+     * @throws IOException if a baseline cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        // read the options
+        String baselineFile = null;
+        String writeFile = null;
+        double tolerance = DEFAULT_TOLERANCE;
+        String filter = "";
+        boolean quick = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--baseline":
+                    baselineFile = args[++i];
+                    break;
+                case "--write":
+                    writeFile = args[++i];
+                    break;
+                case "--tolerance":
+                    tolerance = Double.parseDouble(args[++i]);
+                    break;
+                case "--filter":
+                    filter = args[++i];
+                    break;
+                case "--quick":
+                    quick = true;
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        // time every benchmark on every position
+        BenchmarkRunner runner = quick ? new BenchmarkRunner(100, 20, 5) : new BenchmarkRunner(1000, 100, 15);
+        Map<String, Double> results = new LinkedHashMap<>();
+        for (BenchmarkPosition position : BenchmarkPosition.values()) {
+            for (Map.Entry<String, LongSupplier> benchmark : createBenchmarks(position).entrySet()) {
+                String name = benchmark.getKey() + "." + position.name().toLowerCase();
+                if (!name.contains(filter)) {
+                    continue;
+                }
+                double nanos = runner.measure(benchmark.getValue());
+                results.put(name, nanos);
+                System.out.printf("%-40s %14.1f ns/op%n", name, nanos);
+            }
+        }
+        System.out.println("(sink " + runner.getSink() + ")");
+
+        if (writeFile != null) {
+            writeBaseline(results, writeFile);
+            System.out.println("Baseline written to " + writeFile);
+            return;
+        }
+        if (quick) {
+            System.out.println("Quick times are not compared with a baseline");
+            return;
+        }
+        if (!compare(results, readBaseline(baselineFile), tolerance)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Create the benchmarks of one position, each a call that returns a value depending on its work
+     * @param position the position to run the benchmarks on
+     * @return the benchmarks by name, in the order they run
+     */
+    private static Map<String, LongSupplier> createBenchmarks(BenchmarkPosition position) {
+        Bitboard bitboard = PositionFormat.parse(position.getPosition());
+        TokenColor side = bitboard.getSideToMove();
+        Map<String, LongSupplier> benchmarks = new LinkedHashMap<>();
+
+        // the board the user interface plays on
+        Board board = new Board();
+        board.getBitboard().copyFrom(bitboard);
+        Player player = new HumanPlayer(side);
+        Node[] nodes = new Node[Bitboard.NUM_OF_SQUARES];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = board.getNodeFromIndex(i);
+        }
+        benchmarks.put("board.isMillExists", () -> {
+            long mills = 0;
+            for (Node node : nodes) {
+                if (board.isMillExists(node, player)) {
+                    mills++;
+                }
+            }
+            return mills;
+        });
+        benchmarks.put("board.hasRemovableToken", () -> board.hasRemovableToken(player) ? 1 : 0);
+
+        // the hints of the user interface
+        benchmarks.put("validGenerator.getNodesForSet", () -> ValidGenerator.getNodesForSet(board).size());
+        benchmarks.put("validGenerator.getNodesForRemove", () -> ValidGenerator.getNodesForRemove(board).size());
+        benchmarks.put("validGenerator.getNodesForMove", () -> ValidGenerator.getNodesForMove(board, side).size());
+        benchmarks.put("validGenerator.getNodesForJump", () -> ValidGenerator.getNodesForJump(board, side).size());
+
+        // the legal move checks of the rules engine, which replaced those of the game controller
+        Bitboard gameBitboard = new Bitboard();
+        gameBitboard.copyFrom(bitboard);
+        Game game = new Game(gameBitboard, 1);
+        int[] legalMoves = new int[MoveGenerator.MAX_MOVES];
+        int legalCount = game.generateMoves(legalMoves);
+        benchmarks.put("game.isLegal", () -> {
+            long legal = 0;
+            for (int i = 0; i < legalCount; i++) {
+                if (game.isLegal(legalMoves[i])) {
+                    legal++;
+                }
+            }
+            return legal;
+        });
+        benchmarks.put("bitboard.hasLegalMove", () -> gameBitboard.hasLegalMove(side) ? 1 : 0);
+
+        // the engine
+        Bitboard engineBitboard = new Bitboard();
+        engineBitboard.copyFrom(bitboard);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        benchmarks.put("moveGenerator.generate", () -> MoveGenerator.generate(engineBitboard, moves));
+        benchmarks.put("bitboard.makeUnmakeMove", () -> {
+            int count = MoveGenerator.generate(engineBitboard, moves);
+            long hashes = 0;
+            for (int i = 0; i < count; i++) {
+                engineBitboard.makeMove(moves[i]);
+                hashes += engineBitboard.getHash();
+                engineBitboard.unmakeMove();
+            }
+            return hashes;
+        });
+        Evaluator evaluator = new Evaluator();
+        evaluator.reset(engineBitboard);
+        benchmarks.put("evaluator.evaluate", () -> evaluator.evaluate(engineBitboard));
+        benchmarks.put("evaluator.evaluateIncremental", () -> {
+            // follow every move and evaluate the position reached, as a search does at its leaves
+            int count = MoveGenerator.generate(engineBitboard, moves);
+            long scores = 0;
+            for (int i = 0; i < count; i++) {
+                engineBitboard.makeMove(moves[i]);
+                evaluator.makeMove(moves[i], side);
+                scores += evaluator.evaluateIncremental(engineBitboard);
+                engineBitboard.unmakeMove();
+                evaluator.unmakeMove(moves[i], side);
+            }
+            return scores;
+        });
+        Perft perft = new Perft();
+        benchmarks.put("perft.depth" + PERFT_DEPTH, () -> perft.perft(engineBitboard, PERFT_DEPTH));
+
+        // a fresh small table for every search, so every call does the same work
+        TranspositionTable transpositionTable = new TranspositionTable(1);
+        SearchEngine searchEngine = new SearchEngine(new Evaluator(), transpositionTable);
+        benchmarks.put("searchEngine.depth" + SEARCH_DEPTH, () -> {
+            transpositionTable.clear();
+            return searchEngine.search(engineBitboard, engineBitboard.getGameState(), SEARCH_DEPTH,
+                    SEARCH_BUDGET_MILLIS).getNodes();
+        });
+        return benchmarks;
+    }
+
+    /**
+     * Read a baseline
+     * @param file the baseline file, or null for the checked-in baseline
+     * @return the median times in nanoseconds by benchmark name
+     * @throws IOException if the baseline cannot be read
+     */
+    private static Properties readBaseline(String file) throws IOException {
+        Properties baseline = new Properties();
+        try (InputStream input = file == null
+                ? BenchmarkApplication.class.getResourceAsStream(BASELINE_RESOURCE)
+                : new FileInputStream(file)) {
+            if (input == null) {
+                throw new IOException("The baseline " + BASELINE_RESOURCE + " is not on the class path");
+            }
+            baseline.load(input);
+        }
+        return baseline;
+    }
+
+    /**
+     * Write a baseline
+     * @param results the median times in nanoseconds by benchmark name
+     * @param file the baseline file
+     * @throws IOException if the baseline cannot be written
+     */
+    private static void writeBaseline(Map<String, Double> results, String file) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        builder.append("# median time per call in nanoseconds, written by BenchmarkApplication --write\n");
+        builder.append("# java ").append(System.getProperty("java.version")).append(", ")
+                .append(System.getProperty("os.name")).append(' ').append(System.getProperty("os.arch")).append(", ")
+                .append(Runtime.getRuntime().availableProcessors()).append(" processors\n");
+        for (Map.Entry<String, Double> result : results.entrySet()) {
+            builder.append(result.getKey()).append('=').append(String.format("%.1f", result.getValue())).append('\n');
+        }
+        try (OutputStream output = new FileOutputStream(file)) {
+            output.write(builder.toString().getBytes(StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    /**
+     * Compare the results with a baseline and report the benchmarks that became slower
+     * @param results the median times in nanoseconds by benchmark name
+     * @param baseline the baseline times in nanoseconds by benchmark name
+     * @param tolerance the slowdown ratio above which a benchmark is a regression
+     * @return true if no benchmark regressed, else false
+     */
+    private static boolean compare(Map<String, Double> results, Properties baseline, double tolerance) {
+        boolean passed = true;
+        System.out.println();
+        System.out.printf("%-40s %14s %14s %8s%n", "benchmark", "baseline", "current", "change");
+        for (Map.Entry<String, Double> result : results.entrySet()) {
+            String expected = baseline.getProperty(result.getKey());
+            if (expected == null) {
+                System.out.printf("%-40s %14s %14.1f %8s%n", result.getKey(), "-", result.getValue(), "new");
+                continue;
+            }
+            double baselineNanos = Double.parseDouble(expected);
+            double change = result.getValue() / baselineNanos - 1;
+            boolean regressed = change > tolerance;
+            passed &= !regressed;
+            System.out.printf("%-40s %14.1f %14.1f %+7.0f%%%s%n", result.getKey(), baselineNanos, result.getValue(),
+                    change * 100, regressed ? "  REGRESSION" : "");
+        }
+        System.out.println(passed ? "No regression above " + Math.round(tolerance * 100) + "%"
+                : "Regressions above " + Math.round(tolerance * 100) + "% found");
+        return passed;
+    }
+}
@@ -0,0 +1,45 @@
+package benchmark;
+
+/**
+ * The BenchmarkPosition class is an enumeration of the representative positions the benchmarks run on,
+ * written as by PositionFormat: one from the opening, where tokens are set, one from the midgame, where
+ * tokens move along the lines, and one from the endgame, where the side to move has three tokens left.
+ */
+public enum BenchmarkPosition {
+
+    /**
+     * use this constant for a position of the opening, both players setting tokens
+     */
+    OPENING("W.W.....B.B......W....B. w 6 6"),
+
+    /**
+     * use this constant for a position of the midgame, both players moving tokens
+     */
+    MIDGAME("WW.W.B.BB..W.B.W...B.W.. w 0 0"),
+
+    /**
+     * use this constant for a position of the endgame, the side to move jumping with three tokens left
+     */
+    JUMP("WWWW....BBB......W...... b 0 0");
+
+    /**
+     * a String represents the position as written by PositionFormat
+     */
+    private final String position;
+
+    /**
+     * Constructor
+     * @param position the position as written by PositionFormat
+     */
+    BenchmarkPosition(String position) {
+        this.position = position;
+    }
+
+    /**
+     * Retrieve the position
+     * @return the position as written by PositionFormat
+     */
+    public String getPosition() {
+        return position;
+    }
+}
@@ -0,0 +1,100 @@
+package benchmark;
+
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * The BenchmarkRunner class times a small operation in the way a microbenchmark harness does: it first
+ * finds how many calls take about one sample's worth of time, warms the operation up so the JIT compiler
+ * has optimised it, then times several samples and reports the median time per call. The results of the
+ * calls are folded into a sink that is returned to the caller, so the JIT compiler cannot drop them.
+ */
+public class BenchmarkRunner {
+    /**
+     * a long represents the time in nanoseconds spent warming an operation up
+     */
+    private final long warmupNanos;
+
+    /**
+     * a long represents the time in nanoseconds of one timed sample
+     */
+    private final long sampleNanos;
+
+    /**
+     * an integer represents the number of timed samples
+     */
+    private final int samples;
+
+    /**
+     * a long that folds the results of every call
+     */
+    private long sink;
+
+    /**
+     * Constructor
+     * @param warmupMillis the time in milliseconds spent warming an operation up
+     * @param sampleMillis the time in milliseconds of one timed sample
+     * @param samples the number of timed samples, at least 1
+     */
+    public BenchmarkRunner(long warmupMillis, long sampleMillis, int samples) {
+        if (samples < 1) {
+            throw new IllegalArgumentException("A benchmark needs at least 1 sample");
+        }
+        this.warmupNanos = warmupMillis * 1_000_000L;
+        this.sampleNanos = sampleMillis * 1_000_000L;
+        this.samples = samples;
+    }
+
+    /**
+     * Time an operation
+     * @param operation the operation, which returns a value depending on its work
+     * @return the median time of a call in nanoseconds
+     */
+    public double measure(LongSupplier operation) {
+        // find how many calls fill a sample
+        long batch = 1;
+        while (time(operation, batch) < sampleNanos / 4) {
+            batch *= 2;
+        }
+        batch *= 4;
+
+        // warm up
+        long warmupEnd = System.nanoTime() + warmupNanos;
+        while (System.nanoTime() < warmupEnd) {
+            time(operation, batch);
+        }
+
+        // time the samples
+        double[] nanosPerCall = new double[samples];
+        for (int i = 0; i < samples; i++) {
+            nanosPerCall[i] = (double) time(operation, batch) / batch;
+        }
+        Arrays.sort(nanosPerCall);
+        return nanosPerCall[samples / 2];
+    }
+
+    /**
+     * Time a number of calls of an operation
+     * @param operation the operation
+     * @param calls the number of calls
+     * @return the elapsed time in nanoseconds
+     */
+    private long time(LongSupplier operation, long calls) {
+        long result = 0;
+        long start = System.nanoTime();
+        for (long i = 0; i < calls; i++) {
+            result += operation.getAsLong();
+        }
+        long elapsed = System.nanoTime() - start;
+        sink ^= result;
+        return elapsed;
+    }
+
+    /**
+     * Retrieve the folded results of every call, to be printed so that the calls cannot be dropped
+     * @return the folded results
+     */
+    public long getSink() {
+        return sink;
+    }
+}
@@ -0,0 +1,457 @@
+package benchmark;
+
+import engine.ParallelSearch;
+import engine.SelfPlay;
+import engine.SelfPlayCheckpoint;
+import engine.TranspositionTable;
+import model.Difficulty;
+import model.Move;
+import model.SearchComputerPlayer;
+import model.TokenColor;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SelfPlayApplication class measures the end-to-end cost of complete games: it plays a batch of games
+ * between two searching computer players on a number of threads, without the user interface, and reports
+ * games and plies per second, the memory allocated and the median and 99th percentile time of a move.
+ * The master seed is split into one SplittableRandom stream per game, in the order of the games, and every
+ * game splits its stream again for each player. A game starts with empty transposition tables, so it only
+ * depends on its stream. The players search within the node budget of the difficulty instead of its time
+ * budget, so the games, and the checksum reported over them, do not depend on the speed of the machine, the
+ * number of threads or which thread plays which game, and any game of a batch can be replayed on its own.
+ * With --checkpoint, the finished games are saved to a checkpoint file every minute or so, and a batch run
+ * again with the same options only plays the games the checkpoint does not have; the rates are measured
+ * over the games played by the run. The file is deleted once the batch is over.
+ * Usage: SelfPlayApplication [--games n] [--threads n] [--seed n] [--difficulty EASY|MEDIUM|HARD]
+ * [--random-plies n] [--max-plies n] [--warmup n] [--list] [--replay game] [--checkpoint file]
+ * [--checkpoint-seconds n]
+ */
+public class SelfPlayApplication {
+    /**
+     * an integer represents the size in megabytes of the transposition table of every player
+     */
+    private static final int TRANSPOSITION_TABLE_MB = 4;
+
+    /**
+     * a double represents the number of nanoseconds in a second
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /**
+     * The main method to run the self-play benchmark
+     * @param args the options described by the class documentation
+     * @throws InterruptedException if interrupted while waiting for the games
+     * @throws IOException if the checkpoint file cannot be read or written
+     */
+    public static void main(String[] args) throws InterruptedException, IOException {
+        // read the options
+        int games = 100;
+        int threads = 1;
+        long seed = 1;
+        Difficulty difficulty = Difficulty.MEDIUM;
+        int randomPlies = SelfPlay.DEFAULT_RANDOM_PLIES;
+        int maxPlies = SelfPlay.DEFAULT_MAX_PLIES;
+        int warmup = 4;
+        boolean list = false;
+        int replay = -1;
+        String checkpointFile = null;
+        int checkpointSeconds = 60;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--difficulty":
+                    difficulty = Difficulty.valueOf(args[++i]);
+                    break;
+                case "--random-plies":
+                    randomPlies = Integer.parseInt(args[++i]);
+                    break;
+                case "--max-plies":
+                    maxPlies = Integer.parseInt(args[++i]);
+                    break;
+                case "--warmup":
+                    warmup = Integer.parseInt(args[++i]);
+                    break;
+                case "--list":
+                    list = true;
+                    break;
+                case "--replay":
+                    replay = Integer.parseInt(args[++i]);
+                    break;
+                case "--checkpoint":
+                    checkpointFile = args[++i];
+                    break;
+                case "--checkpoint-seconds":
+                    checkpointSeconds = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(2);
+            }
+        }
+        System.out.println("Self-play: " + games + " games, " + threads + " threads, seed " + seed + ", "
+                + difficulty + ", " + randomPlies + " random plies, draw after " + maxPlies + " plies");
+
+        // play a single game of the batch again, move by move
+        if (replay >= 0) {
+            new Batch(replay + 1, 1, seed, difficulty, randomPlies, maxPlies).replay(replay);
+            return;
+        }
+
+        // let the JIT compiler optimise the code before measuring, with the first games of the batch
+        if (warmup > 0) {
+            new Batch(warmup, threads, seed, difficulty, randomPlies, maxPlies).run();
+        }
+        Batch batch = new Batch(games, threads, seed, difficulty, randomPlies, maxPlies);
+        SelfPlayCheckpoint checkpoint = null;
+        if (checkpointFile != null) {
+            // the games only depend on these options, not on the threads
+            String options = games + " games, seed " + seed + ", " + difficulty + ", " + randomPlies
+                    + " random plies, draw after " + maxPlies + " plies";
+            checkpoint = new SelfPlayCheckpoint(Paths.get(checkpointFile), options, games, false,
+                    checkpointSeconds * 1000L);
+            System.out.println("Resumed " + batch.resume(checkpoint) + " games from " + checkpointFile);
+        }
+        batch.run();
+        batch.report(list);
+        if (checkpoint != null) {
+            checkpoint.delete();
+        }
+    }
+
+    /**
+     * The Batch class plays a batch of games on a pool of threads and gathers what is measured
+     */
+    private static class Batch {
+        /**
+         * an integer represents the number of games of the batch
+         */
+        private final int games;
+
+        /**
+         * an integer represents the number of threads playing games
+         */
+        private final int threads;
+
+        /**
+         * an array of the streams of the games, split from the master seed in the order of the games
+         */
+        private final SplittableRandom[] gameRandoms;
+
+        /**
+         * instance of the Difficulty class that represents the strength of both players
+         */
+        private final Difficulty difficulty;
+
+        /**
+         * an integer represents the number of random plies every game starts with
+         */
+        private final int randomPlies;
+
+        /**
+         * an integer represents the number of plies after which a game is a draw
+         */
+        private final int maxPlies;
+
+        /**
+         * an array of the winners indexed by game, null for a draw
+         */
+        private final TokenColor[] winners;
+
+        /**
+         * an array of the number of plies indexed by game
+         */
+        private final int[] plies;
+
+        /**
+         * an array of the hashes of the moves indexed by game
+         */
+        private final long[] gameHashes;
+
+        /**
+         * an array of booleans to indicate the games read from a checkpoint instead of played
+         */
+        private final boolean[] resumed;
+
+        /**
+         * instance of the SelfPlayCheckpoint class the finished games are recorded to, or null
+         */
+        private SelfPlayCheckpoint checkpoint;
+
+        /**
+         * an AtomicInteger represents the index of the next game to play
+         */
+        private final AtomicInteger nextGame = new AtomicInteger();
+
+        /**
+         * a list of the thinking times recorded by every thread
+         */
+        private final List<long[]> moveNanos = new ArrayList<>();
+
+        /**
+         * a long represents the bytes allocated by the threads playing games, or -1 if it is not measured
+         */
+        private long allocatedBytes;
+
+        /**
+         * a long represents the duration of the batch in nanoseconds
+         */
+        private long elapsedNanos;
+
+        /**
+         * Constructor
+         * @param games the number of games
+         * @param threads the number of threads playing games
+         * @param seed the master seed, the same for the same games
+         * @param difficulty the strength of both players
+         * @param randomPlies the number of random plies every game starts with
+         * @param maxPlies the number of plies after which a game is a draw
+         */
+        Batch(int games, int threads, long seed, Difficulty difficulty, int randomPlies, int maxPlies) {
+            this.games = games;
+            this.threads = threads;
+            SplittableRandom master = new SplittableRandom(seed);
+            gameRandoms = new SplittableRandom[games];
+            for (int game = 0; game < games; game++) {
+                gameRandoms[game] = master.split();
+            }
+            this.difficulty = difficulty;
+            this.randomPlies = randomPlies;
+            this.maxPlies = maxPlies;
+            winners = new TokenColor[games];
+            plies = new int[games];
+            gameHashes = new long[games];
+            resumed = new boolean[games];
+        }
+
+        /**
+         * Take the games finished by a previous run from a checkpoint, and record the games to it from now on
+         * @param checkpoint the checkpoint of the batch
+         * @return the number of games taken from the checkpoint
+         * @throws IOException if the checkpoint cannot be read or belongs to another batch
+         */
+        int resume(SelfPlayCheckpoint checkpoint) throws IOException {
+            this.checkpoint = checkpoint;
+            int count = checkpoint.load();
+            for (int game = 0; game < games; game++) {
+                if (checkpoint.isFinished(game)) {
+                    resumed[game] = true;
+                    winners[game] = checkpoint.getWinner(game);
+                    plies[game] = checkpoint.getPlies(game);
+                    gameHashes[game] = checkpoint.getGameHash(game);
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Play every game of the batch not taken from a checkpoint
+         * @throws InterruptedException if interrupted while waiting for the games
+         * @throws IOException if the checkpoint cannot be written
+         */
+        void run() throws InterruptedException, IOException {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            List<Future<Long>> workers = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < threads; i++) {
+                workers.add(pool.submit(this::playGames));
+            }
+            allocatedBytes = 0;
+            try {
+                for (Future<Long> worker : workers) {
+                    long bytes = worker.get();
+                    allocatedBytes = bytes < 0 || allocatedBytes < 0 ? -1 : allocatedBytes + bytes;
+                }
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("A self-play game failed", e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+            elapsedNanos = System.nanoTime() - start;
+            if (checkpoint != null) {
+                checkpoint.write();
+            }
+        }
+
+        /**
+         * Play games until none is left, on the calling thread
+         * @return the bytes allocated by the thread, or -1 if it cannot be measured
+         */
+        private long playGames() {
+            // every thread has its own players
+            ParallelSearch whiteSearch = createSearch();
+            ParallelSearch blackSearch = createSearch();
+            SelfPlay selfPlay = createSelfPlay(whiteSearch, blackSearch);
+
+            // only the games count, not the tables allocated once per thread
+            long allocatedBefore = getAllocatedBytes();
+            for (int game = nextGame.getAndIncrement(); game < games; game = nextGame.getAndIncrement()) {
+                if (resumed[game]) {
+                    continue;
+                }
+
+                // the game only depends on its stream
+                whiteSearch.getTranspositionTable().clear();
+                blackSearch.getTranspositionTable().clear();
+                winners[game] = selfPlay.play(gameRandoms[game]);
+                plies[game] = selfPlay.getPlies();
+                gameHashes[game] = selfPlay.getGameHash();
+                if (checkpoint != null) {
+                    checkpoint.record(game, winners[game], plies[game], gameHashes[game], null);
+                }
+            }
+            synchronized (moveNanos) {
+                moveNanos.add(selfPlay.getMoveNanos());
+            }
+
+            long allocatedAfter = getAllocatedBytes();
+            return allocatedBefore < 0 || allocatedAfter < 0 ? -1 : allocatedAfter - allocatedBefore;
+        }
+
+        /**
+         * Create the search of a player, with a single thread since the games are played in parallel, and
+         * with the node budget of the difficulty so that the games do not depend on the clock
+         * @return a ParallelSearch instance
+         */
+        private ParallelSearch createSearch() {
+            ParallelSearch search = new ParallelSearch(1, new TranspositionTable(TRANSPOSITION_TABLE_MB));
+            search.setNodeBudget(difficulty.getNodeBudget());
+            return search;
+        }
+
+        /**
+         * Create the self-play of two searching players
+         * @param whiteSearch the search of the white player
+         * @param blackSearch the search of the black player
+         * @return a SelfPlay instance
+         */
+        private SelfPlay createSelfPlay(ParallelSearch whiteSearch, ParallelSearch blackSearch) {
+            return new SelfPlay(new SearchComputerPlayer(TokenColor.WHITE, difficulty, whiteSearch),
+                    new SearchComputerPlayer(TokenColor.BLACK, difficulty, blackSearch), randomPlies, maxPlies);
+        }
+
+        /**
+         * Retrieve the bytes allocated so far by the calling thread
+         * @return the allocated bytes, or -1 if the JVM cannot measure them
+         */
+        private static long getAllocatedBytes() {
+            ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+                return -1;
+            }
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+
+        /**
+         * Play one game of the batch on the calling thread and print its moves
+         * @param game the index of the game
+         */
+        void replay(int game) {
+            // new players start with empty tables, like every game of the batch
+            SelfPlay selfPlay = createSelfPlay(createSearch(), createSearch());
+            winners[game] = selfPlay.play(gameRandoms[game]);
+            plies[game] = selfPlay.getPlies();
+            gameHashes[game] = selfPlay.getGameHash();
+
+            StringBuilder builder = new StringBuilder();
+            for (int move : selfPlay.getGameMoves()) {
+                builder.append(Move.toString(move)).append(' ');
+            }
+            System.out.println("Game " + game + ": " + builder.toString().trim());
+            System.out.println(describeGame(game));
+        }
+
+        /**
+         * Describe the result of a game
+         * @param game the index of the game
+         * @return a String with the winner, the number of plies and the hash of the moves of the game
+         */
+        private String describeGame(int game) {
+            return String.format("Game %d: %s, %d plies, hash %016x", game,
+                    winners[game] == null ? "draw" : winners[game] + " wins", plies[game], gameHashes[game]);
+        }
+
+        /**
+         * Print what has been measured
+         * @param list true to print the result of every game, else false
+         */
+        void report(boolean list) {
+            int whiteWins = 0;
+            int blackWins = 0;
+            long totalPlies = 0;
+            long checksum = 0;
+            int playedGames = 0;
+            long playedPlies = 0;
+            for (int game = 0; game < games; game++) {
+                if (winners[game] == TokenColor.WHITE) {
+                    whiteWins++;
+                } else if (winners[game] == TokenColor.BLACK) {
+                    blackWins++;
+                }
+                totalPlies += plies[game];
+                checksum = checksum * 31 + gameHashes[game];
+                if (!resumed[game]) {
+                    playedGames++;
+                    playedPlies += plies[game];
+                }
+            }
+            double seconds = elapsedNanos / NANOS_PER_SECOND;
+
+            // merge the thinking times of every thread
+            long[] moves = moveNanos.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+
+            System.out.printf("Results: white %d, black %d, draws %d%n", whiteWins, blackWins, games - whiteWins - blackWins);
+            System.out.printf("Time: %.2f s%n", seconds);
+            System.out.printf("Games/s: %.2f%n", playedGames / seconds);
+            System.out.printf("Plies/s: %.1f (%.1f plies per game)%n", playedPlies / seconds, (double) totalPlies / games);
+            if (allocatedBytes >= 0) {
+                System.out.printf("Allocation: %.1f MB, %.1f MB/s, %d bytes/ply%n", allocatedBytes / 1e6,
+                        allocatedBytes / 1e6 / seconds, playedPlies == 0 ? 0 : allocatedBytes / playedPlies);
+            } else {
+                System.out.println("Allocation: not measured by this JVM");
+            }
+            if (moves.length > 0) {
+                System.out.printf("Move latency: p50 %.3f ms, p99 %.3f ms, max %.3f ms over %d moves%n",
+                        percentile(moves, 50) / 1e6, percentile(moves, 99) / 1e6, moves[moves.length - 1] / 1e6,
+                        moves.length);
+            }
+            System.out.printf("Checksum: %016x%n", checksum);
+            if (list) {
+                for (int game = 0; game < games; game++) {
+                    System.out.println(describeGame(game));
+                }
+            }
+        }
+
+        /**
+         * Retrieve a percentile of sorted values with the nearest rank method
+         * @param sorted the values in ascending order, at least one
+         * @param percent the percentile between 0 and 100
+         * @return the value at the percentile
+         */
+        private static long percentile(long[] sorted, int percent) {
+            int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+    }
+}
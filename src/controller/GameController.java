@@ -1,15 +1,15 @@
 package controller;
 
 import command.*;
-import memento.GameStateMemento;
 import model.*;
 import view.GameView;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseEvent;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * The Board and GameView of the game, as well as the processing of user interactions, are all managed by
@@ -35,6 +35,11 @@ public class GameController {
      */
     private Board board;
 
+    /**
+     * instance of the Game class that applies the rules to the position of the board
+     */
+    private Game game;
+
     /**
      * instance of the GameState class to indicate the current game state
      */
@@ -80,12 +85,51 @@ public class GameController {
      */
     private Player[] players = new Player[NUM_OF_PLAYERS];
 
+    private boolean playWithComputer = false;
+
     /**
-     * an Array List to stores the GameStateMemento instances
+     * instance of the Difficulty class that represents the strength of the computer opponent
      */
-    private List<GameStateMemento> gameStateMementos = new ArrayList<>();
+    private static final Difficulty COMPUTER_DIFFICULTY = Difficulty.MEDIUM;
 
-    private boolean playWithComputer = false;
+    /**
+     * a long represents the minimum time in milliseconds a computer turn takes, so the user can follow it
+     */
+    private static final long COMPUTER_MOVE_DELAY_MILLIS = 1000;
+
+    /**
+     * an integer represents the time in milliseconds after which a computer still thinking is stopped
+     */
+    private static final int COMPUTER_TURN_DEADLINE_MILLIS = 5000;
+
+    /**
+     * an ExecutorService that runs the computer turns off the Event Dispatch Thread
+     */
+    private final ExecutorService computerExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "computer-player");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * a Future of the computer turn in progress, or null when the computer is not thinking
+     */
+    private Future<?> computerTurn;
+
+    /**
+     * instance of the ComputerPlayer class that is thinking, or null when the computer is not thinking
+     */
+    private ComputerPlayer thinkingPlayer;
+
+    /**
+     * a Timer that stops the computer when it thinks past the deadline
+     */
+    private Timer computerDeadline;
+
+    /**
+     * an integer that identifies the computer turn in progress, so the result of a cancelled turn is ignored
+     */
+    private int computerTurnId;
 
 
     /**
@@ -103,21 +147,27 @@ public class GameController {
      * Start the game by initializing all the necessary components and print out appropriate message
      */
     public void startGame(boolean playWithComputer) {
-        // create board and game view
+        // discard the turn of a previous computer
+        cancelComputerTurn();
+
+        // create board, game and game view
         board = new Board();
+        game = new Game(board.getBitboard());
         gameView = new GameView(false);
 
-        // create players
+        // create players, releasing the threads of a previous computer
+        closeComputerPlayers();
         players[0] = new HumanPlayer(TokenColor.WHITE);
 
         if (playWithComputer){
-            players[1] = new ComputerPlayer(TokenColor.BLACK);
+            players[1] = createComputerPlayer();
         }else{
             players[1] = new HumanPlayer(TokenColor.BLACK);
         }
 
         // set initial state and player
         currentPlayer = getFirstPlayer();
+        board.setSideToMove(currentPlayer.getTokenColor());
         setCurrentState(GameState.SET);
 
         // initial message displayed
@@ -128,13 +178,19 @@ public class GameController {
     }
 
     public void startTutorial() {
-        // create board and gameView one
+        // discard the turn of a previous computer
+        cancelComputerTurn();
+
+        // create board, game and gameView one
         board = new Board();
+        game = new Game(board.getBitboard());
         gameView = new GameView(true);
 
+        closeComputerPlayers();
         players[0] = new HumanPlayer(TokenColor.WHITE);
         players[1] = new ComputerPlayer(TokenColor.BLACK);
         currentPlayer = getFirstPlayer();
+        board.setSideToMove(currentPlayer.getTokenColor());
 
         // Welcome message for tutorial
         gameView.setMessage("Welcome to tutorial. Click \"Next\" button to run through them.");
@@ -234,77 +290,110 @@ public class GameController {
     }
 
     /**
-     *
-     * @param
+     * Execute the command of the current player, then follow the game: the same player removes a token
+     * after closing a mill, otherwise the turn passes to the opponent or the game ends
      */
     private void updateGameState() {
-        // used to store command execution status
-        boolean status = false;
-
-        // used to store if mill exists
-        boolean mill = false;
-
         // 1. execute command
-        // 2. verify if mill exists after command execution
-        if (command != null) {
-            status = command.execute();
-            if (status) {
-                if (!currentPlayer.isComputer()){
-                    mill = board.isMillExists(clickedNode, currentPlayer);
-                } else{
-                    // TODO: HOW TO ELIMINATE THIS DOWN-CASTING ?????
-                    ComputerPlayer computerPlayer = (ComputerPlayer) currentPlayer;
-                    mill = board.isMillExists(computerPlayer.getExecutedNode(), currentPlayer);
-                    computerPlayer.setExecutedNode(null);
-                }
-            } else {
-                board.setSelectedNode(null);
-            }
+        if (command == null) {
+            return;
         }
+        boolean status = command.execute();
+        board.setSelectedNode(null);
+        if (!status) {
+            return;
+        }
+
+        // 2. retrieve the player to move and its state from the game
+        followGame();
         System.out.println("Current state" + currentState);
         System.out.println(getCurrentPlayer().getTokenColor());
-        System.out.println(board.getSelectedNode());
-        // 3. if mill exists and board has a removable token, switch to REMOVE state
-        // 4. if mill does not exist but command executes successfully, switch player
-        if (mill) {
-            if (board.hasRemovableToken(currentPlayer)) {
-                // save current game state to memento
-                System.out.println("mill" + currentPlayer.getTokenColor());
-                gameStateMementos.add(saveStateToMemento());
-                currentState = GameState.REMOVE;
-                gameView.setMessage(currentPlayer.getTokenType() + "'s turn to remove.");
+
+        // 3. end the game if the player to move has lost
+        if (game.isOver()) {
+            showRematchOption();
+            return;
+        }
+        if (game.isRemovalSkipped()) {
+            gameView.setMessage("All tokens are in mill, remove not available. " + currentPlayer.getTokenType() + "'s turn now.");
+        }
+    }
+
+    /**
+     * Take the current player and state from the game and tell the player what to do, or who has won
+     */
+    private void followGame() {
+        currentState = game.getGameState();
+        currentPlayer = board.getPlayerFromTokenColor(game.getSideToMove());
+        if (game.isDraw()) {
+            if (game.getDrawReason() == DrawReason.REPETITION) {
+                gameView.setMessage("Draw, the same position has occurred three times.");
             } else {
-                switchPlayer();
-                gameView.setMessage("All tokens are in mill, remove not available. " + currentPlayer.getTokenType() + "'s turn now.");
+                gameView.setMessage("Draw, no mill for " + game.getNoMillPlyLimit() / 2 + " moves.");
             }
-        } else if (status) {
-            // handle remove command execution
-            // retrieve previous game state from memento
-            if (gameStateMementos.size() > 0) {
-                restoreStateFromMemento(gameStateMementos.remove(gameStateMementos.size() - 1));
-            }
-            switchPlayer();
-            gameView.setMessage(currentPlayer.getTokenType() + "'s turn to set.");
+            return;
         }
-
-        if (currentState != GameState.REMOVE) {
-            // verify if the game is ready to transition to MOVE
-            if (isReadyToMove()) {
-                currentState = GameState.MOVE;
+        if (game.isOver()) {
+            currentPlayer = board.getPlayerFromTokenColor(game.getWinner());
+            gameView.setMessage(currentPlayer.getTokenType() + " wins!");
+            return;
+        }
+        switch (currentState) {
+            case REMOVE:
+                gameView.setMessage(currentPlayer.getTokenType() + "'s turn to remove.");
+                break;
+            case SET:
+                gameView.setMessage(currentPlayer.getTokenType() + "'s turn to set.");
+                break;
+            case MOVE:
                 gameView.setMessage(currentPlayer.getTokenType() + "'s turn to move.");
-            }
-            // verify if the game is ready to transition to JUMP
-            if (isReadyToJump()) {
-                currentState = GameState.JUMP;
+                break;
+            case JUMP:
                 gameView.setMessage(currentPlayer.getTokenType() + "'s turn to jump.");
-            }
-            // verify if the game is ready to end
-            if (isReadyToEnd()) {
-                switchPlayer();
-                gameView.setMessage(currentPlayer.getTokenType() + " wins!");
-                showRematchOption();
-            }
+                break;
+        }
+    }
+
+    /**
+     * Take back the last move. Against the computer, the moves are taken back until it is the turn of
+     * the human player again.
+     */
+    public void undo() {
+        cancelComputerTurn();
+        while (game.undo() && isComputerTurn()) {
+            // keep taking back the moves of the computer
+        }
+        refreshAfterHistoryChange();
+    }
+
+    /**
+     * Play again the last move taken back. Against the computer, the moves are played again until it is
+     * the turn of the human player again.
+     */
+    public void redo() {
+        cancelComputerTurn();
+        while (game.redo() && isComputerTurn()) {
+            // keep playing again the moves of the computer
         }
+        refreshAfterHistoryChange();
+    }
+
+    /**
+     * Determine if the player to move in the game is a computer
+     * @return true if the computer is to move, else false
+     */
+    private boolean isComputerTurn() {
+        return !game.isOver() && board.getPlayerFromTokenColor(game.getSideToMove()).isComputer();
+    }
+
+    /**
+     * Update the current player, state, selection and view after the game has moved through its history
+     */
+    private void refreshAfterHistoryChange() {
+        board.setSelectedNode(null);
+        board.resetSelectedNodes();
+        followGame();
+        board.notifyObservers();
     }
 
     /**
@@ -312,6 +401,11 @@ public class GameController {
      * @param event provides information about the specific mouse event that occurred
      */
     public void processClick(MouseEvent event) {
+        // the board belongs to the computer while it thinks
+        if (isComputerThinking()) {
+            return;
+        }
+
         // get node at click position
         clickedNode = getNodeAtClickPos(event.getPoint());
 
@@ -337,78 +431,114 @@ public class GameController {
         }
     }
 
-
     /**
-     * Verify if the game should switch to MOVE. It achieves this by checking one conditions:
-     * the all the tokens for both players have been placed on the board
-     * @return true if the condition met, else false
+     * Play the turn of the computer if it is the current player. The computer thinks on a background
+     * thread with a copy of the board, so the Event Dispatch Thread stays free to repaint. Only the chosen
+     * move, and the removal it triggers, is applied to the board on the Event Dispatch Thread. This must be
+     * called on the Event Dispatch Thread.
+     * @param onTurnEnd the action to run on the Event Dispatch Thread once the turn is applied, or at once
+     *                  if the computer is not the current player
      */
-    private boolean isReadyToMove() {
-        return players[0].getTokensToSet() == 0 && players[1].getTokensToSet() == 0;
+    public void requestComputerTurn(Runnable onTurnEnd) {
+        if (game.isOver() || !currentPlayer.isComputer() || isComputerThinking()) {
+            onTurnEnd.run();
+            return;
+        }
+
+        // think with a copy of the board, the board itself is only modified on the Event Dispatch Thread
+        ComputerPlayer computerPlayer = (ComputerPlayer) currentPlayer;
+        Bitboard position = new Bitboard();
+        position.copyFrom(board.getBitboard());
+        GameState gameState = currentState;
+        int turnId = ++computerTurnId;
+
+        thinkingPlayer = computerPlayer;
+        computerTurn = computerExecutor.submit(() -> {
+            long start = System.currentTimeMillis();
+            int move = Move.NO_MOVE;
+            try {
+                move = computerPlayer.think(position, gameState);
+                Thread.sleep(Math.max(0, COMPUTER_MOVE_DELAY_MILLIS - (System.currentTimeMillis() - start)));
+            } catch (InterruptedException e) {
+                // the turn has been cancelled
+                return;
+            } catch (RuntimeException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                // a failed search leaves NO_MOVE, so the move is chosen on the Event Dispatch Thread instead
+            }
+            int chosenMove = move;
+            SwingUtilities.invokeLater(() -> applyComputerTurn(turnId, chosenMove, onTurnEnd));
+        });
+
+        // stop the computer if it thinks for too long, it then plays the best move found so far
+        computerDeadline = new Timer(COMPUTER_TURN_DEADLINE_MILLIS, event -> computerPlayer.stopThinking());
+        computerDeadline.setRepeats(false);
+        computerDeadline.start();
     }
 
     /**
-     * Verify if the game should switch to JUMP. It achieves this by checking two conditions:
-     * the number of tokens on the board must be equal to three, and the player must not be in the
-     * process of placing tokens.
-     * @return true if the condition met, else false
+     * Apply the move chosen by the computer on the Event Dispatch Thread, unless the turn has been cancelled
+     * @param turnId the identifier of the computer turn
+     * @param move the packed move chosen by the computer
+     * @param onTurnEnd the action to run once the turn is applied
      */
-    private boolean isReadyToJump() {
-        return currentState != GameState.SET && currentPlayer.getTokensOnBoard() == 3;
+    private void applyComputerTurn(int turnId, int move, Runnable onTurnEnd) {
+        if (turnId != computerTurnId) {
+            return;
+        }
+        ComputerPlayer computerPlayer = thinkingPlayer;
+        endComputerTurn();
+
+        // play the move, then the removal chosen with it if it closed a mill
+        computerPlayer.setPlannedMove(move);
+        processComputerCommand();
+        if (currentPlayer == computerPlayer && currentState == GameState.REMOVE) {
+            processComputerCommand();
+        }
+        onTurnEnd.run();
     }
 
     /**
-     * Verify if the token still has any legal move for the current player.
-     * @return true if there is at least one legal move else false
+     * Cancel the computer turn in progress, if any, so its move is never applied, and stop pondering
      */
-    private boolean isThereLegalMove(){
-        // for each node
-        for (NodeTriplet nodeTriplet : board.getNodeTriplets()) {
-            for (Node node : nodeTriplet.getNodes()) {
-                // if the token color of the node is equal to the current player
-                if(node.getTokenColor() == currentPlayer.getTokenColor()){
-                    // check if any of the neighbor is empty
-                    for (Node neighbour : node.getNeighbors()){
-                        // if one of them is empty, it means there is at least one legal move
-                        if (neighbour.isEmpty()){
-                            return true;
-                        }
-                    }
-                }
+    public void cancelComputerTurn() {
+        computerTurnId++;
+        if (thinkingPlayer != null) {
+            computerTurn.cancel(true);
+        }
+
+        // stop the computer players, whether they think about their turn or ponder on the opponent's
+        for (Player player : players) {
+            if (player != null && player.isComputer()) {
+                ((ComputerPlayer) player).stopThinking();
             }
         }
-        // else no legal move at all
-        return false;
+        endComputerTurn();
     }
 
     /**
-     * Verify if the game should end. It achieves this by checking two conditions:
-     * the number of tokens on the board for any player must be less than three, the player
-     * must not be in the process of placing tokens and the current player must not have
-     * any legal move to perform.
-     * @return true if the condition met, else false
+     * Forget the computer turn in progress and its deadline
      */
-    private boolean isReadyToEnd() {
-        if (currentState != GameState.SET && (players[0].getTokensOnBoard() < 3 || players[1].getTokensOnBoard() < 3 || !isThereLegalMove())) {
-            System.out.println("p1"+players[0].getTokensOnBoard());
-            System.out.println("p2"+players[1].getTokensOnBoard());
-            System.out.println(isThereLegalMove());
-            return true;
+    private void endComputerTurn() {
+        if (computerDeadline != null) {
+            computerDeadline.stop();
+            computerDeadline = null;
         }
-        return false;
+        computerTurn = null;
+        thinkingPlayer = null;
     }
 
     /**
-     * Switch the player
+     * Verify if the computer is thinking about its turn
+     * @return true if a computer turn is in progress, else false
      */
-    private void switchPlayer() {
-        if (currentPlayer == players[0]) {
-            currentPlayer = players[1];
-        } else {
-            currentPlayer = players[0];
-        }
+    public boolean isComputerThinking() {
+        return computerTurn != null;
     }
 
+
     /**
      * Presenting a dialog box to the user when the game has ended. This dialog box displays a message
      * indicating that the game has ended and provides the option to initiate a rematch.
@@ -428,11 +558,12 @@ public class GameController {
      * the restart process.
      */
     public void restart() {
+        cancelComputerTurn();
         board.resetBoard();
-        currentState = GameState.SET;
+        game.reset();
+        setCurrentState(GameState.SET);
         currentPlayer = players[0];
-        players[0].resetPlayerTokens();
-        players[1].resetPlayerTokens();
+        board.setSideToMove(currentPlayer.getTokenColor());
         board.notifyObservers();
         gameView.setMessage("Game starts and goooood luck! " + currentPlayer.getTokenType() + " to set.");
     }
@@ -441,12 +572,38 @@ public class GameController {
      * Rebuild a game with options to play against computer or human
      */
     public void rebuild(boolean vsComputer) {
+        cancelComputerTurn();
         gameView = new GameView(false);
+        closeComputerPlayers();
         if (vsComputer) {
-            players[1] = new ComputerPlayer(TokenColor.BLACK);
+            players[1] = createComputerPlayer();
         } else {
             players[1] = new HumanPlayer(TokenColor.BLACK);
         }
+        playWithComputer = vsComputer;
+    }
+
+    /**
+     * Release the threads of the searching computer players before they are replaced
+     */
+    private void closeComputerPlayers() {
+        for (Player player : players) {
+            if (player instanceof SearchComputerPlayer) {
+                ((SearchComputerPlayer) player).close();
+            }
+        }
+    }
+
+    /**
+     * Create the computer opponent of a game against the computer
+     * @return a Player instance
+     */
+    private Player createComputerPlayer() {
+        SearchComputerPlayer computerPlayer = new SearchComputerPlayer(TokenColor.BLACK, COMPUTER_DIFFICULTY);
+
+        // think on the time of the human player
+        computerPlayer.setPondering(true);
+        return computerPlayer;
     }
 
     /**
@@ -457,6 +614,14 @@ public class GameController {
         return board;
     }
 
+    /**
+     * Return the game of this GameController instance
+     * @return a Game instance
+     */
+    public Game getGame() {
+        return game;
+    }
+
     /**
      * Return the clickedNode of this GameController instance
      * @return a Node instance
@@ -499,26 +664,12 @@ public class GameController {
      */
     public void setCurrentState(GameState currentState) {
         this.currentState = currentState;
+        board.getBitboard().setGameState(currentState);
     }
 
     public void setCurrentPlayer(Player currentPlayer) {
         this.currentPlayer = currentPlayer;
-    }
-
-    /**
-     * Save current game state inside a memento
-     * @return a GameStateMemento instance
-     */
-    private GameStateMemento saveStateToMemento() {
-        return new GameStateMemento(currentState);
-    }
-
-    /**
-     * Restore previous game state using a memento object
-     * @param memento the GameStateMemento instance to restore previous game state
-     */
-    private void restoreStateFromMemento(GameStateMemento memento) {
-        this.currentState = memento.getGameState();
+        board.setSideToMove(currentPlayer.getTokenColor());
     }
 
     public GameState getCurrentState() {
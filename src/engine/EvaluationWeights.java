@@ -0,0 +1,211 @@
+package engine;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * The EvaluationWeights class holds the weights of the terms of the Evaluator. Weights are read from a
+ * properties file with one key per term, by default engine/evaluation.properties on the class path, or the
+ * file named by the WEIGHTS_PROPERTY system property. A term missing from the file keeps its default
+ * weight. Instances are immutable, so one instance can be shared by every search thread.
+ */
+public final class EvaluationWeights {
+    /**
+     * a String represents the name of the system property that names a weights file to use instead of the
+     * one on the class path
+     */
+    public static final String WEIGHTS_PROPERTY = "nmm.eval.weights";
+
+    /**
+     * an integer represents the term of a token on board or still to set
+     */
+    public static final int MATERIAL = 0;
+
+    /**
+     * an integer represents the term of a closed mill
+     */
+    public static final int MILL = 1;
+
+    /**
+     * an integer represents the term of two tokens in a line with the third square empty
+     */
+    public static final int TWO = 2;
+
+    /**
+     * an integer represents the term of a token without an empty neighbor, while tokens move
+     */
+    public static final int BLOCKED = 3;
+
+    /**
+     * an integer represents the term of an adjacent move, while tokens move
+     */
+    public static final int MOBILITY = 4;
+
+    /**
+     * an integer represents the term of a token of a closed mill that can move to close another mill,
+     * while tokens move
+     */
+    public static final int DOUBLE_MILL = 5;
+
+    /**
+     * an integer represents the number of terms
+     */
+    public static final int NUM_OF_TERMS = 6;
+
+    /**
+     * a String represents the class path resource of the default weights file
+     */
+    private static final String RESOURCE = "/engine/evaluation.properties";
+
+    /**
+     * an array of the keys of the terms in a weights file, indexed by term
+     */
+    private static final String[] KEYS = {"material", "mill", "two", "blocked", "mobility", "doubleMill"};
+
+    /**
+     * an array of the weights used when a file does not give them, indexed by term
+     */
+    private static final int[] DEFAULTS = {100, 20, 10, -8, 4, 30};
+
+    /**
+     * instance of the EvaluationWeights class read once from the configured file
+     */
+    private static volatile EvaluationWeights configured;
+
+    /**
+     * an array of the weights indexed by term
+     */
+    private final int[] weights;
+
+    /**
+     * Constructor
+     * @param weights the weights indexed by term, of length NUM_OF_TERMS
+     */
+    public EvaluationWeights(int[] weights) {
+        if (weights.length != NUM_OF_TERMS) {
+            throw new IllegalArgumentException("Expected " + NUM_OF_TERMS + " weights, got " + weights.length);
+        }
+        this.weights = weights.clone();
+    }
+
+    /**
+     * Retrieve the built-in weights
+     * @return an EvaluationWeights instance
+     */
+    public static EvaluationWeights defaults() {
+        return new EvaluationWeights(DEFAULTS);
+    }
+
+    /**
+     * Retrieve the weights of the file named by the WEIGHTS_PROPERTY system property, or else of the file on
+     * the class path, or else the built-in weights. The file is only read by the first call.
+     * @return an EvaluationWeights instance
+     */
+    public static EvaluationWeights fromConfiguration() {
+        EvaluationWeights result = configured;
+        if (result == null) {
+            String file = System.getProperty(WEIGHTS_PROPERTY);
+            try (InputStream input = file != null ? new FileInputStream(file)
+                    : EvaluationWeights.class.getResourceAsStream(RESOURCE)) {
+                result = input == null ? defaults() : load(input);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read the evaluation weights " + (file != null ? file : RESOURCE), e);
+            }
+            configured = result;
+        }
+        return result;
+    }
+
+    /**
+     * Read weights from a properties file
+     * @param input the stream of the file
+     * @return an EvaluationWeights instance
+     * @throws IOException if the file cannot be read
+     */
+    public static EvaluationWeights load(InputStream input) throws IOException {
+        Properties properties = new Properties();
+        properties.load(input);
+        int[] weights = DEFAULTS.clone();
+        for (int term = 0; term < NUM_OF_TERMS; term++) {
+            String value = properties.getProperty(KEYS[term]);
+            if (value != null) {
+                try {
+                    weights[term] = Integer.parseInt(value.trim());
+                } catch (NumberFormatException e) {
+                    throw new IOException("The weight " + KEYS[term] + " must be an integer: " + value, e);
+                }
+            }
+        }
+        return new EvaluationWeights(weights);
+    }
+
+    /**
+     * Write the weights as a properties file that load reads back
+     * @param output the stream to write to
+     * @param comment a comment written at the top of the file, or null
+     * @throws IOException if the file cannot be written
+     */
+    public void store(OutputStream output, String comment) throws IOException {
+        Writer writer = new OutputStreamWriter(output, StandardCharsets.ISO_8859_1);
+        if (comment != null) {
+            writer.write("# " + comment + "\n");
+        }
+        for (int term = 0; term < NUM_OF_TERMS; term++) {
+            writer.write(KEYS[term] + "=" + weights[term] + "\n");
+        }
+        writer.flush();
+    }
+
+    /**
+     * Retrieve the weight of a term
+     * @param term the term, e.g. MATERIAL
+     * @return the weight
+     */
+    public int get(int term) {
+        return weights[term];
+    }
+
+    /**
+     * Retrieve the weights
+     * @return a copy of the weights indexed by term
+     */
+    public int[] toArray() {
+        return weights.clone();
+    }
+
+    /**
+     * Retrieve the key of a term in a weights file
+     * @param term the term, e.g. MATERIAL
+     * @return the key of the term
+     */
+    public static String getKey(int term) {
+        return KEYS[term];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int term = 0; term < NUM_OF_TERMS; term++) {
+            builder.append(term == 0 ? "" : ", ").append(KEYS[term]).append('=').append(weights[term]);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof EvaluationWeights && Arrays.equals(weights, ((EvaluationWeights) other).weights);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(weights);
+    }
+}
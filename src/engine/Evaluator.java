@@ -0,0 +1,326 @@
+package engine;
+
+import model.Bitboard;
+import model.BoardTopology;
+import model.Move;
+import model.TokenColor;
+
+import java.util.Arrays;
+
+/**
+ * The Evaluator class gives a static score to a position from the point of view of the side to move. It
+ * combines the material of both players, their closed mills and open two-in-a-rows, and, once tokens move,
+ * their mobility, their blocked tokens and the tokens of a closed mill that can close another mill on their
+ * next move. The weights of the terms come from EvaluationWeights.
+ * evaluate scores any position from scratch. A search instead calls reset on its root, then makeMove and
+ * unmakeMove along with the bitboard, and evaluateIncremental: the evaluator then keeps a code of every
+ * line up to date from the squares a move changes, and the mills and twos of both colors packed into one
+ * int updated from a table, so a move only touches the two lines through each changed square. Mobility
+ * and blocked tokens need no state, they are counted on the masks with a few shifts. An Evaluator
+ * instance follows one position at a time and is therefore used by one search thread.
+ */
+public class Evaluator {
+    /**
+     * an integer represents the number of bits of a count in the packed line terms
+     */
+    private static final int TERM_BITS = 8;
+
+    /**
+     * an integer mask of a count in the packed line terms
+     */
+    private static final int TERM_MASK = (1 << TERM_BITS) - 1;
+
+    /**
+     * an integer represents the amount a black token adds to the code of a line, a white token adding 1
+     */
+    private static final int BLACK_IN_LINE = 4;
+
+    /**
+     * an array indexed by line code of the terms of a line packed into an int: the closed mills and open
+     * twos of white, then those of black, each count in TERM_BITS bits
+     */
+    private static final int[] LINE_TERMS = new int[4 * BLACK_IN_LINE];
+
+    static {
+        for (int code = 0; code < LINE_TERMS.length; code++) {
+            int white = code % BLACK_IN_LINE;
+            int black = code / BLACK_IN_LINE;
+            LINE_TERMS[code] = (white == 3 ? 1 : 0)
+                    | (white == 2 && black == 0 ? 1 : 0) << TERM_BITS
+                    | (black == 3 ? 1 : 0) << 2 * TERM_BITS
+                    | (black == 2 && white == 0 ? 1 : 0) << 3 * TERM_BITS;
+        }
+    }
+
+    /**
+     * an array of the weights indexed by term of EvaluationWeights
+     */
+    private final int[] weights;
+
+    /**
+     * an array indexed by mill of the code of the line: its white tokens plus BLACK_IN_LINE times its black
+     * tokens
+     */
+    private final int[] lineCodes = new int[BoardTopology.NUM_OF_MILLS];
+
+    /**
+     * an integer represents the sum of the terms of every line, packed as in LINE_TERMS
+     */
+    private int lineTerms;
+
+    /**
+     * Constructor with the configured weights
+     */
+    public Evaluator() {
+        this(EvaluationWeights.fromConfiguration());
+    }
+
+    /**
+     * Constructor
+     * @param weights the weights of the terms
+     */
+    public Evaluator(EvaluationWeights weights) {
+        this.weights = weights.toArray();
+    }
+
+    /**
+     * Evaluate a position from scratch
+     * @param bitboard the position
+     * @return the score of the position for the side to move, positive when it is ahead
+     */
+    public int evaluate(Bitboard bitboard) {
+        TokenColor side = bitboard.getSideToMove();
+        return evaluateColor(bitboard, side) - evaluateColor(bitboard, side.opposite());
+    }
+
+    /**
+     * Evaluate the tokens of one color from scratch
+     * @param bitboard the position
+     * @param tokenColor the token color
+     * @return the score of the tokens of that color
+     */
+    private int evaluateColor(Bitboard bitboard, TokenColor tokenColor) {
+        int own = bitboard.getMask(tokenColor);
+        int opponent = bitboard.getMask(tokenColor.opposite());
+        int empty = bitboard.getEmptyMask();
+
+        int closedMills = 0;
+        int openTwos = 0;
+        for (int mill = 0; mill < BoardTopology.NUM_OF_MILLS; mill++) {
+            int millMask = BoardTopology.getMillMask(mill);
+            int ownInMill = Integer.bitCount(own & millMask);
+            if (ownInMill == 3) {
+                closedMills++;
+            } else if (ownInMill == 2 && (opponent & millMask) == 0) {
+                openTwos++;
+            }
+        }
+
+        int moves = 0;
+        int blockedTokens = 0;
+        for (int tokens = own; tokens != 0; tokens &= tokens - 1) {
+            int square = Integer.numberOfTrailingZeros(tokens);
+            int emptyNeighbors = Integer.bitCount(BoardTopology.getNeighborMask(square) & empty);
+            moves += emptyNeighbors;
+            if (emptyNeighbors == 0) {
+                blockedTokens++;
+            }
+        }
+        return score(bitboard, tokenColor, closedMills, openTwos, moves, blockedTokens);
+    }
+
+    /**
+     * Count the terms of a position, which evaluate weighs: the score of evaluate is the sum over the terms
+     * of their weight times their count, so the weights can be fitted on the counts alone
+     * @param bitboard the position
+     * @param terms the array to fill, indexed by term of EvaluationWeights, with the count of the side to
+     *              move minus the count of the opponent
+     */
+    public static void countTerms(Bitboard bitboard, int[] terms) {
+        Arrays.fill(terms, 0);
+        TokenColor side = bitboard.getSideToMove();
+        addTerms(bitboard, side, 1, terms);
+        addTerms(bitboard, side.opposite(), -1, terms);
+    }
+
+    /**
+     * Add the counts of the terms of one color, under the same conditions as score
+     * @param bitboard the position
+     * @param tokenColor the token color
+     * @param sign 1 to add the counts, -1 to subtract them
+     * @param terms the counts indexed by term of EvaluationWeights
+     */
+    private static void addTerms(Bitboard bitboard, TokenColor tokenColor, int sign, int[] terms) {
+        int own = bitboard.getMask(tokenColor);
+        int opponent = bitboard.getMask(tokenColor.opposite());
+        int empty = bitboard.getEmptyMask();
+        int tokensOnBoard = bitboard.getTokensOnBoard(tokenColor);
+        int tokensToSet = bitboard.getTokensToSet(tokenColor);
+        terms[EvaluationWeights.MATERIAL] += sign * (tokensOnBoard + tokensToSet);
+
+        int closedMills = 0;
+        for (int mill = 0; mill < BoardTopology.NUM_OF_MILLS; mill++) {
+            int millMask = BoardTopology.getMillMask(mill);
+            int ownInMill = Integer.bitCount(own & millMask);
+            if (ownInMill == 3) {
+                closedMills++;
+            } else if (ownInMill == 2 && (opponent & millMask) == 0) {
+                terms[EvaluationWeights.TWO] += sign;
+            }
+        }
+        terms[EvaluationWeights.MILL] += sign * closedMills;
+
+        if (tokensToSet == 0 && tokensOnBoard > 3) {
+            terms[EvaluationWeights.MOBILITY] += sign * BoardTopology.countAdjacentPairs(own, empty);
+            terms[EvaluationWeights.BLOCKED] += sign * Integer.bitCount(own & ~BoardTopology.getNeighborsOf(empty));
+            if (closedMills > 0) {
+                terms[EvaluationWeights.DOUBLE_MILL] += sign * countDoubleMills(bitboard, tokenColor);
+            }
+        }
+    }
+
+    /**
+     * Start following a position with makeMove and unmakeMove
+     * @param bitboard the position
+     */
+    public void reset(Bitboard bitboard) {
+        Arrays.fill(lineCodes, 0);
+        lineTerms = 0;
+
+        // add the tokens one by one to the empty board
+        for (TokenColor tokenColor : TokenColor.values()) {
+            for (int tokens = bitboard.getMask(tokenColor); tokens != 0; tokens &= tokens - 1) {
+                change(Integer.numberOfTrailingZeros(tokens), tokenColor, 1);
+            }
+        }
+    }
+
+    /**
+     * Follow a move made on the followed position, before or after the bitboard makes it
+     * @param move the packed move
+     * @param mover the token color of the player making the move
+     */
+    public void makeMove(int move, TokenColor mover) {
+        if (Move.hasTo(move)) {
+            if (Move.hasFrom(move)) {
+                change(Move.getFrom(move), mover, -1);
+            }
+            change(Move.getTo(move), mover, 1);
+        }
+        if (Move.hasRemove(move)) {
+            change(Move.getRemove(move), mover.opposite(), -1);
+        }
+    }
+
+    /**
+     * Follow a move taken back on the followed position
+     * @param move the packed move, the last one followed with makeMove
+     * @param mover the token color of the player who made the move
+     */
+    public void unmakeMove(int move, TokenColor mover) {
+        if (Move.hasRemove(move)) {
+            change(Move.getRemove(move), mover.opposite(), 1);
+        }
+        if (Move.hasTo(move)) {
+            change(Move.getTo(move), mover, -1);
+            if (Move.hasFrom(move)) {
+                change(Move.getFrom(move), mover, 1);
+            }
+        }
+    }
+
+    /**
+     * Update the two lines through a square after a token is put on it or taken off it
+     * @param square the index of the square
+     * @param tokenColor the token color of the token
+     * @param sign 1 when the token is put, -1 when it is taken
+     */
+    private void change(int square, TokenColor tokenColor, int sign) {
+        int delta = sign * (tokenColor == TokenColor.WHITE ? 1 : BLACK_IN_LINE);
+        int first = BoardTopology.getMillOfSquare(square, 0);
+        int second = BoardTopology.getMillOfSquare(square, 1);
+        lineTerms += LINE_TERMS[lineCodes[first] + delta] - LINE_TERMS[lineCodes[first]]
+                + LINE_TERMS[lineCodes[second] + delta] - LINE_TERMS[lineCodes[second]];
+        lineCodes[first] += delta;
+        lineCodes[second] += delta;
+    }
+
+    /**
+     * Evaluate the followed position from the line terms kept up to date by makeMove and unmakeMove, and
+     * the mobility and blocked tokens counted on the masks of the position with a few shifts
+     * @param bitboard the followed position
+     * @return the same score as evaluate
+     */
+    public int evaluateIncremental(Bitboard bitboard) {
+        TokenColor side = bitboard.getSideToMove();
+        return evaluateColorIncremental(bitboard, side) - evaluateColorIncremental(bitboard, side.opposite());
+    }
+
+    /**
+     * Evaluate the tokens of one color of the followed position
+     * @param bitboard the followed position
+     * @param tokenColor the token color
+     * @return the score of the tokens of that color
+     */
+    private int evaluateColorIncremental(Bitboard bitboard, TokenColor tokenColor) {
+        int terms = lineTerms >>> (tokenColor == TokenColor.WHITE ? 0 : 2 * TERM_BITS);
+        int own = bitboard.getMask(tokenColor);
+        int empty = bitboard.getEmptyMask();
+        return score(bitboard, tokenColor, terms & TERM_MASK, terms >>> TERM_BITS & TERM_MASK,
+                BoardTopology.countAdjacentPairs(own, empty),
+                Integer.bitCount(own & ~BoardTopology.getNeighborsOf(empty)));
+    }
+
+    /**
+     * Combine the counts of the terms of one color into a score
+     * @param bitboard the position, for the token counters
+     * @param tokenColor the token color
+     * @param closedMills the number of closed mills
+     * @param openTwos the number of lines with two tokens and the third square empty
+     * @param moves the number of adjacent moves
+     * @param blockedTokens the number of tokens without an empty neighbor
+     * @return the score of the tokens of that color
+     */
+    private int score(Bitboard bitboard, TokenColor tokenColor, int closedMills, int openTwos, int moves,
+                      int blockedTokens) {
+        int tokensOnBoard = bitboard.getTokensOnBoard(tokenColor);
+        int tokensToSet = bitboard.getTokensToSet(tokenColor);
+        int score = weights[EvaluationWeights.MATERIAL] * (tokensOnBoard + tokensToSet)
+                + weights[EvaluationWeights.MILL] * closedMills
+                + weights[EvaluationWeights.TWO] * openTwos;
+
+        // mobility only matters once tokens move along the lines
+        if (tokensToSet == 0 && tokensOnBoard > 3) {
+            score += weights[EvaluationWeights.MOBILITY] * moves
+                    + weights[EvaluationWeights.BLOCKED] * blockedTokens;
+            if (closedMills > 0) {
+                score += weights[EvaluationWeights.DOUBLE_MILL] * countDoubleMills(bitboard, tokenColor);
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Count the moves of a token out of a closed mill that close another mill, which the player can then
+     * repeat back and forth
+     * @param bitboard the position
+     * @param tokenColor the token color
+     * @return the number of such moves
+     */
+    private static int countDoubleMills(Bitboard bitboard, TokenColor tokenColor) {
+        int own = bitboard.getMask(tokenColor);
+        int empty = bitboard.getEmptyMask();
+        int count = 0;
+        for (int tokens = BoardTopology.getSquaresInMills(own); tokens != 0; tokens &= tokens - 1) {
+            int from = Integer.numberOfTrailingZeros(tokens);
+            int after = own & ~(1 << from);
+            for (int targets = BoardTopology.getNeighborMask(from) & empty; targets != 0; targets &= targets - 1) {
+                int to = Integer.numberOfTrailingZeros(targets);
+                if (BoardTopology.isMillAt(after | (1 << to), to)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
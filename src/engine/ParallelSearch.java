@@ -0,0 +1,224 @@
+package engine;
+
+import model.Bitboard;
+import model.GameState;
+import tablebase.Tablebase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * The ParallelSearch class runs a Lazy SMP search: several SearchEngine workers search the same root at
+ * the same time on their own threads and share one TranspositionTable. The workers start at staggered
+ * depths, so they mostly help each other by filling the table. When the deadline is reached, the calling
+ * thread collects every result and keeps the one of the deepest completed iteration.
+ */
+public class ParallelSearch {
+    /**
+     * a String represents the name of the system property that configures the number of search threads
+     */
+    public static final String THREADS_PROPERTY = "nmm.search.threads";
+
+    /**
+     * an array of the workers, the first one being the main worker
+     */
+    private final SearchEngine[] workers;
+
+    /**
+     * an ExecutorService that runs the workers, or null when there is a single worker
+     */
+    private final ExecutorService pool;
+
+    /**
+     * instance of the TranspositionTable class shared by all the workers
+     */
+    private final TranspositionTable transpositionTable;
+
+    /**
+     * Constructor for a search without tablebase
+     * @param threads the number of search threads
+     * @param transpositionTable the transposition table shared by all the workers
+     */
+    public ParallelSearch(int threads, TranspositionTable transpositionTable) {
+        this(threads, transpositionTable, null);
+    }
+
+    /**
+     * Constructor
+     * @param threads the number of search threads
+     * @param transpositionTable the transposition table shared by all the workers
+     * @param tablebase the tablebase probed by all the workers, or null
+     */
+    public ParallelSearch(int threads, TranspositionTable transpositionTable, Tablebase tablebase) {
+        this.transpositionTable = transpositionTable;
+        workers = new SearchEngine[Math.max(1, threads)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new SearchEngine(new Evaluator(), transpositionTable, tablebase);
+        }
+        if (workers.length > 1) {
+            AtomicInteger threadCounter = new AtomicInteger();
+            pool = Executors.newFixedThreadPool(workers.length, runnable -> {
+                Thread thread = new Thread(runnable, "search-" + threadCounter.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            pool = null;
+        }
+    }
+
+    /**
+     * Create a parallel search with the number of threads configured by the THREADS_PROPERTY system
+     * property, one per available processor by default, a transposition table of the configured size and
+     * the tablebase of the configured directory
+     * @return a ParallelSearch instance
+     */
+    public static ParallelSearch fromConfiguration() {
+        int threads = Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+        return new ParallelSearch(threads, TranspositionTable.fromConfiguration(), Tablebase.fromConfiguration());
+    }
+
+    /**
+     * Search for the best move of the side to move with all the workers
+     * @param position the position to search, which is not modified
+     * @param gameState the game state of the side to move
+     * @param maxDepth the maximum depth in plies
+     * @param timeBudgetMillis the time budget in milliseconds
+     * @return the result of the deepest completed iteration among the workers, with the nodes of all of them
+     */
+    public SearchResult search(Bitboard position, GameState gameState, int maxDepth, long timeBudgetMillis) {
+        return prepareSearch(position, gameState, maxDepth, timeBudgetMillis).get();
+    }
+
+    /**
+     * Clear the stop requests of the previous search now and return the search to run later, for example
+     * on another thread. A stop requested between this call and the start of the search is not lost.
+     * @param position the position to search, which is not modified
+     * @param gameState the game state of the side to move
+     * @param maxDepth the maximum depth in plies
+     * @param timeBudgetMillis the time budget in milliseconds
+     * @return the search, which returns the same result as search
+     */
+    public Supplier<SearchResult> prepareSearch(Bitboard position, GameState gameState, int maxDepth,
+                                                long timeBudgetMillis) {
+        for (SearchEngine worker : workers) {
+            worker.clearStop();
+        }
+        if (pool == null) {
+            return () -> workers[0].search(position, gameState, maxDepth, timeBudgetMillis);
+        }
+        return () -> searchInParallel(position, gameState, maxDepth, timeBudgetMillis);
+    }
+
+    /**
+     * Search for the best move of the side to move with every worker on the pool
+     * @param position the position to search, which is not modified
+     * @param gameState the game state of the side to move
+     * @param maxDepth the maximum depth in plies
+     * @param timeBudgetMillis the time budget in milliseconds
+     * @return the result of the deepest completed iteration among the workers, with the nodes of all of them
+     */
+    private SearchResult searchInParallel(Bitboard position, GameState gameState, int maxDepth,
+                                          long timeBudgetMillis) {
+        // start every worker on the same root
+        List<Future<SearchResult>> futures = new ArrayList<>(workers.length);
+        for (int i = 0; i < workers.length; i++) {
+            SearchEngine worker = workers[i];
+            int helperIndex = i;
+            futures.add(pool.submit(() -> worker.search(position, gameState, maxDepth, timeBudgetMillis,
+                    helperIndex)));
+        }
+
+        // once the main worker is done, the helpers have nothing left to contribute
+        SearchResult best = await(futures.get(0));
+        stop();
+        long nodes = best.getNodes();
+        for (int i = 1; i < futures.size(); i++) {
+            SearchResult result = await(futures.get(i));
+            nodes += result.getNodes();
+            if (result.getDepth() > best.getDepth()) {
+                best = result;
+            }
+        }
+        return new SearchResult(best.getBestMove(), best.getScore(), best.getDepth(), nodes,
+                best.getElapsedNanos(), best.getPrincipalVariation());
+    }
+
+    /**
+     * Wait for the result of a worker
+     * @param future the future of the worker
+     * @return the result of the worker
+     */
+    private static SearchResult await(Future<SearchResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a search worker", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A search worker failed", e.getCause());
+        }
+    }
+
+    /**
+     * Ask every worker to stop as soon as possible
+     */
+    public void stop() {
+        for (SearchEngine worker : workers) {
+            worker.stop();
+        }
+    }
+
+    /**
+     * Give every worker a node budget in place of the time budget of the searches that follow. A search on
+     * a single thread is then deterministic.
+     * @param nodeBudget the number of nodes a worker may visit, or 0 to search within the time budget
+     */
+    public void setNodeBudget(long nodeBudget) {
+        for (SearchEngine worker : workers) {
+            worker.setNodeBudget(nodeBudget);
+        }
+    }
+
+    /**
+     * Give the search in progress a new time budget counted from now
+     * @param timeBudgetMillis the time budget in milliseconds
+     */
+    public void setTimeBudget(long timeBudgetMillis) {
+        for (SearchEngine worker : workers) {
+            worker.setTimeBudget(timeBudgetMillis);
+        }
+    }
+
+    /**
+     * Stop the threads of the workers. The search cannot be used afterwards.
+     */
+    public void shutdown() {
+        stop();
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Retrieve the number of search threads
+     * @return the number of threads
+     */
+    public int getThreads() {
+        return workers.length;
+    }
+
+    /**
+     * Retrieve the transposition table shared by the workers
+     * @return a TranspositionTable instance
+     */
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+}
@@ -0,0 +1,128 @@
+package engine;
+
+import model.Bitboard;
+import model.Move;
+import model.MoveGenerator;
+import model.TokenColor;
+
+/**
+ * The Perft class counts the positions reached by playing every legal move sequence of a given length from
+ * a position. The counts are a correctness oracle for the MoveGenerator and for makeMove and unmakeMove:
+ * any change to them must leave the counts of known positions unchanged. Timing a count also gives the raw
+ * speed of move generation, in positions per second.
+ * A move that closes a mill carries its removal, so it counts as a single ply, and a position where the
+ * side to move has fewer than three tokens left is a leaf with no moves. A Perft instance walks a single
+ * Bitboard and is therefore used by one thread at a time.
+ */
+public class Perft {
+    /**
+     * an integer represents the deepest count supported, bounded by the undo stack of the bitboard
+     */
+    public static final int MAX_DEPTH = 64;
+
+    /**
+     * an array of move buffers, one per ply, so that counting never allocates
+     */
+    private final int[][] moves = new int[MAX_DEPTH][MoveGenerator.MAX_MOVES];
+
+    /**
+     * Count the positions reached after a number of plies
+     * @param bitboard the position, left unchanged once the count is done
+     * @param depth the number of plies, at least 0
+     * @return the number of positions reached
+     */
+    public long perft(Bitboard bitboard, int depth) {
+        checkDepth(depth);
+        return count(bitboard, depth, 0);
+    }
+
+    /**
+     * Count the positions reached after a number of plies, split per legal move of the position
+     * @param bitboard the position, left unchanged once the count is done
+     * @param depth the number of plies, at least 1
+     * @param rootMoves the buffer that receives the packed legal moves, of length MoveGenerator.MAX_MOVES
+     * @param counts the buffer that receives the number of positions reached after each move
+     * @return the number of legal moves written into both buffers
+     */
+    public int divide(Bitboard bitboard, int depth, int[] rootMoves, long[] counts) {
+        checkDepth(depth);
+        if (depth < 1) {
+            throw new IllegalArgumentException("Divide needs a depth of at least 1");
+        }
+        int count = generate(bitboard, rootMoves);
+        for (int i = 0; i < count; i++) {
+            bitboard.makeMove(rootMoves[i]);
+            counts[i] = count(bitboard, depth - 1, 0);
+            bitboard.unmakeMove();
+        }
+        return count;
+    }
+
+    /**
+     * Count the positions reached after a number of plies
+     * @param bitboard the position
+     * @param depth the number of plies left
+     * @param ply the number of plies from the root, which selects the move buffer
+     * @return the number of positions reached
+     */
+    private long count(Bitboard bitboard, int depth, int ply) {
+        if (depth == 0) {
+            return 1;
+        }
+        int[] buffer = moves[ply];
+        int count = generate(bitboard, buffer);
+
+        // the last ply only needs the number of moves
+        if (depth == 1) {
+            return count;
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            bitboard.makeMove(buffer[i]);
+            nodes += count(bitboard, depth - 1, ply + 1);
+            bitboard.unmakeMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Generate the legal moves of the side to move, none once it has lost on material
+     * @param bitboard the position
+     * @param buffer the buffer that receives the packed moves
+     * @return the number of moves
+     */
+    private static int generate(Bitboard bitboard, int[] buffer) {
+        TokenColor side = bitboard.getSideToMove();
+        if (bitboard.getTokensOnBoard(side) + bitboard.getTokensToSet(side) < 3) {
+            return 0;
+        }
+        return MoveGenerator.generate(bitboard, buffer);
+    }
+
+    /**
+     * Verify that a depth is supported
+     * @param depth the number of plies
+     */
+    private static void checkDepth(int depth) {
+        if (depth < 0 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Perft depth must be between 0 and " + MAX_DEPTH + ": " + depth);
+        }
+    }
+
+    /**
+     * Describe a divided count, one legal move per line followed by the total
+     * @param rootMoves the packed legal moves
+     * @param counts the number of positions reached after each move
+     * @param count the number of legal moves
+     * @return a String describing the divided count
+     */
+    public static String describeDivide(int[] rootMoves, long[] counts, int count) {
+        StringBuilder builder = new StringBuilder();
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            builder.append(Move.toString(rootMoves[i])).append(": ").append(counts[i]).append('\n');
+            total += counts[i];
+        }
+        return builder.append("Moves: ").append(count).append('\n').append("Total: ").append(total).toString();
+    }
+}
@@ -0,0 +1,491 @@
+package engine;
+
+import model.Bitboard;
+import model.GameState;
+import model.Move;
+import model.MoveGenerator;
+import model.TokenColor;
+import tablebase.Tablebase;
+
+import java.util.Arrays;
+
+/**
+ * The SearchEngine class searches for the best move with negamax alpha-beta and iterative deepening under
+ * a hard time budget. A set, move or jump and the removal triggered by the mill it closes are searched as a
+ * single compound move, so the REMOVE state never appears inside the tree. The tree is walked in place on
+ * one position with makeMove and unmakeMove, and the move lists of every ply are preallocated, so a search
+ * does not allocate once the engine is constructed. Results are cached in a TranspositionTable, which may
+ * be shared with other engines. With a Tablebase, the positions it holds are not searched: a node at least
+ * TABLEBASE_PROBE_DEPTH plies from the leaves takes the result of its WDL layer, and a root whose moves all
+ * lead to positions with known distances is played from the tablebase, the fastest win first, so that a
+ * won endgame makes progress.
+ */
+public class SearchEngine {
+    /**
+     * an integer represents the maximum depth of a search in plies
+     */
+    public static final int MAX_DEPTH = 64;
+
+    /**
+     * an integer represents the score of a win at the root, a win in n plies scores WIN_SCORE - n
+     */
+    public static final int WIN_SCORE = 1_000_000;
+
+    /**
+     * an integer represents the score of a position the tablebase knows to be won, below the forced wins
+     * found by the search and above every evaluation
+     */
+    public static final int TABLEBASE_WIN_SCORE = WIN_SCORE / 2;
+
+    /**
+     * an integer represents the remaining depth below which the tablebase is not probed, since the nodes
+     * near the leaves are the most numerous and their results matter least
+     */
+    public static final int TABLEBASE_PROBE_DEPTH = 2;
+
+    /**
+     * an integer represents a score bound that no position can reach
+     */
+    private static final int INFINITY = WIN_SCORE + 1;
+
+    /**
+     * an integer mask of the node counter used to decide when to check the clock
+     */
+    private static final int CLOCK_CHECK_INTERVAL = 2047;
+
+    /**
+     * instance of the Bitboard class that holds the position being searched, walked with make and unmake
+     */
+    private final Bitboard board = new Bitboard();
+
+    /**
+     * an array of move buffers, one for each ply of the search
+     */
+    private final int[][] moveStack = new int[MAX_DEPTH + 1][MoveGenerator.MAX_MOVES];
+
+    /**
+     * a triangular array that stores the principal variation found at each ply
+     */
+    private final int[][] pvTable = new int[MAX_DEPTH + 1][MAX_DEPTH + 1];
+
+    /**
+     * an array that stores the length of the principal variation found at each ply
+     */
+    private final int[] pvLength = new int[MAX_DEPTH + 1];
+
+    /**
+     * instance of the Evaluator class to score the leaves
+     */
+    private final Evaluator evaluator;
+
+    /**
+     * instance of the TranspositionTable class to cache search results
+     */
+    private final TranspositionTable transpositionTable;
+
+    /**
+     * instance of the Tablebase class to look up the endgames, or null
+     */
+    private final Tablebase tablebase;
+
+    /**
+     * a long represents the number of nodes visited by the current search
+     */
+    private long nodes;
+
+    /**
+     * a long represents the System.nanoTime value at which the current search must stop, which another
+     * thread may move with setTimeBudget
+     */
+    private volatile long deadline;
+
+    /**
+     * a boolean to indicate if the current search ran out of time or was stopped
+     */
+    private boolean aborted;
+
+    /**
+     * a boolean to indicate if another thread asked the current search to stop
+     */
+    private volatile boolean stopRequested;
+
+    /**
+     * a long represents the number of nodes after which a search stops instead of checking the clock, or 0
+     * to search within the time budget
+     */
+    private long nodeBudget;
+
+    /**
+     * Constructor
+     */
+    public SearchEngine() {
+        this(new Evaluator(), TranspositionTable.fromConfiguration(), Tablebase.fromConfiguration());
+    }
+
+    /**
+     * Constructor for an engine that searches every position
+     * @param evaluator the evaluator to score the leaves
+     * @param transpositionTable the transposition table to cache search results
+     */
+    public SearchEngine(Evaluator evaluator, TranspositionTable transpositionTable) {
+        this(evaluator, transpositionTable, null);
+    }
+
+    /**
+     * Constructor
+     * @param evaluator the evaluator to score the leaves
+     * @param transpositionTable the transposition table to cache search results
+     * @param tablebase the tablebase to look up the endgames, or null
+     */
+    public SearchEngine(Evaluator evaluator, TranspositionTable transpositionTable, Tablebase tablebase) {
+        this.evaluator = evaluator;
+        this.transpositionTable = transpositionTable;
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Search for the best move of the side to move
+     * @param position the position to search, which is not modified
+     * @param gameState the game state of the side to move
+     * @param maxDepth the maximum depth in plies
+     * @param timeBudgetMillis the time budget in milliseconds
+     * @return the result of the deepest completed iteration
+     */
+    public SearchResult search(Bitboard position, GameState gameState, int maxDepth, long timeBudgetMillis) {
+        return search(position, gameState, maxDepth, timeBudgetMillis, 0);
+    }
+
+    /**
+     * Search for the best move of the side to move as one of several threads sharing a transposition
+     * table. Helpers start at a staggered depth and search the root moves in a rotated order, so that the
+     * threads explore different parts of the tree and fill the shared table for each other.
+     * @param position the position to search, which is not modified
+     * @param gameState the game state of the side to move
+     * @param maxDepth the maximum depth in plies
+     * @param timeBudgetMillis the time budget in milliseconds
+     * @param helperIndex 0 for the main thread, a positive index for a helper thread
+     * @return the result of the deepest completed iteration
+     */
+    public SearchResult search(Bitboard position, GameState gameState, int maxDepth, long timeBudgetMillis,
+                               int helperIndex) {
+        long start = System.nanoTime();
+        deadline = start + timeBudgetMillis * 1_000_000L;
+        nodes = 0;
+        aborted = false;
+        board.copyFrom(position);
+        evaluator.reset(board);
+        if (helperIndex == 0) {
+            transpositionTable.newSearch();
+        }
+
+        // generate root moves once, in the given game state
+        int[] rootMoves = moveStack[0];
+        int rootCount = MoveGenerator.generate(board, gameState, rootMoves);
+        if (rootCount == 0) {
+            return new SearchResult(Move.NO_MOVE, -WIN_SCORE, 0, 0, System.nanoTime() - start, new int[0]);
+        }
+
+        // play the best move of the tablebase when it knows every move
+        if (tablebase != null && tablebase.selectBestMoves(board, rootMoves, rootCount) > 0) {
+            int move = rootMoves[0];
+            int score = getTablebaseScore(tablebase.probeMove(board, move));
+            return new SearchResult(move, score, 1, rootCount, System.nanoTime() - start, new int[] {move});
+        }
+        orderMoves(rootMoves, rootCount, Move.NO_MOVE);
+        rotateMoves(rootMoves, rootCount, helperIndex);
+
+        int bestMove = rootMoves[0];
+        int bestScore = -INFINITY;
+        int completedDepth = 0;
+        int[] principalVariation = new int[] {bestMove};
+
+        for (int depth = 1 + helperIndex % 2; depth <= Math.min(maxDepth, MAX_DEPTH); depth++) {
+            int score = searchRoot(rootMoves, rootCount, depth);
+            if (aborted) {
+                break;
+            }
+            bestMove = pvTable[0][0];
+            bestScore = score;
+            completedDepth = depth;
+            principalVariation = Arrays.copyOf(pvTable[0], pvLength[0]);
+
+            // search the best move first in the next iteration
+            orderMoves(rootMoves, rootCount, bestMove);
+
+            // a forced result will not change with more depth
+            if (Math.abs(score) >= WIN_SCORE - MAX_DEPTH) {
+                break;
+            }
+        }
+        return new SearchResult(bestMove, bestScore, completedDepth, nodes, System.nanoTime() - start, principalVariation);
+    }
+
+    /**
+     * Search all root moves to a given depth
+     * @param rootMoves the root moves, best first
+     * @param rootCount the number of root moves
+     * @param depth the depth in plies
+     * @return the score of the best root move
+     */
+    private int searchRoot(int[] rootMoves, int rootCount, int depth) {
+        int alpha = -INFINITY;
+        pvLength[0] = 0;
+        for (int i = 0; i < rootCount; i++) {
+            int move = rootMoves[i];
+            TokenColor mover = board.getSideToMove();
+            board.makeMove(move);
+            evaluator.makeMove(move, mover);
+            int score = -negamax(1, depth - 1, -INFINITY, -alpha);
+            board.unmakeMove();
+            evaluator.unmakeMove(move, mover);
+            if (aborted) {
+                return alpha;
+            }
+            if (score > alpha) {
+                alpha = score;
+                updatePrincipalVariation(0, move);
+            }
+        }
+        return alpha;
+    }
+
+    /**
+     * Search a position with negamax alpha-beta
+     * @param ply the distance from the root
+     * @param depth the remaining depth in plies
+     * @param alpha the lower bound of the score
+     * @param beta the upper bound of the score
+     * @return the score of the position for the side to move
+     */
+    private int negamax(int ply, int depth, int alpha, int beta) {
+        pvLength[ply] = 0;
+        // with a node budget, where the search stops does not depend on the speed of the machine
+        if ((++nodes & CLOCK_CHECK_INTERVAL) == 0 && (stopRequested
+                || (nodeBudget > 0 ? nodes >= nodeBudget : System.nanoTime() - deadline > 0))) {
+            aborted = true;
+        }
+        if (aborted) {
+            return 0;
+        }
+
+        // a player with fewer than three tokens has lost
+        TokenColor side = board.getSideToMove();
+        if (board.getTokensOnBoard(side) + board.getTokensToSet(side) < 3) {
+            return -(WIN_SCORE - ply);
+        }
+        // the tablebase knows the result once every token is set, looked up away from the leaves only
+        if (tablebase != null && depth >= TABLEBASE_PROBE_DEPTH) {
+            int wdl = tablebase.probeWdl(board);
+            if (wdl != Tablebase.NOT_FOUND) {
+                return wdl == Tablebase.WDL_WIN ? TABLEBASE_WIN_SCORE
+                        : wdl == Tablebase.WDL_LOSS ? -TABLEBASE_WIN_SCORE : 0;
+            }
+        }
+        if (depth <= 0 || ply >= MAX_DEPTH) {
+            return evaluator.evaluateIncremental(board);
+        }
+
+        // use the cached result of a search at least as deep
+        long hash = board.getHash();
+        long entry = transpositionTable.probe(hash);
+        int hashMove = Move.NO_MOVE;
+        if (entry != 0) {
+            hashMove = TranspositionTable.getMove(entry);
+            if (TranspositionTable.getDepth(entry) >= depth) {
+                int score = scoreFromTable(TranspositionTable.getScore(entry), ply);
+                int bound = TranspositionTable.getBound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+                        || (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        // a player without any legal move has lost
+        int[] moves = moveStack[ply];
+        int count = MoveGenerator.generate(board, moves);
+        if (count == 0) {
+            return -(WIN_SCORE - ply);
+        }
+        orderMoves(moves, count, hashMove);
+
+        int originalAlpha = alpha;
+        int bestMove = Move.NO_MOVE;
+        int best = -INFINITY;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            board.makeMove(move);
+            evaluator.makeMove(move, side);
+            int score = -negamax(ply + 1, depth - 1, -beta, -alpha);
+            board.unmakeMove();
+            evaluator.unmakeMove(move, side);
+            if (aborted) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePrincipalVariation(ply, move);
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = best >= beta ? TranspositionTable.LOWER_BOUND
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND;
+        transpositionTable.store(hash, bestMove, scoreToTable(best, ply), depth, bound);
+        return best;
+    }
+
+    /**
+     * Convert the value of a root move given by the tablebase into a score
+     * @param value the value of the move for the side to move
+     * @return the score of the move, a win in n plies scoring WIN_SCORE - n
+     */
+    private static int getTablebaseScore(int value) {
+        if (value == Tablebase.DRAW) {
+            return 0;
+        }
+        int distance = Tablebase.getDistance(value);
+        return Tablebase.isWin(value) ? WIN_SCORE - distance : -(WIN_SCORE - distance);
+    }
+
+    /**
+     * Convert a win or loss score from distance to the root into distance to the position, for storing
+     * @param score the score relative to the root
+     * @param ply the distance of the position from the root
+     * @return the score relative to the position
+     */
+    private static int scoreToTable(int score, int ply) {
+        if (score >= WIN_SCORE - 2 * MAX_DEPTH) {
+            return score + ply;
+        }
+        if (score <= -(WIN_SCORE - 2 * MAX_DEPTH)) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    /**
+     * Convert a win or loss score from distance to the position into distance to the root, after probing
+     * @param score the score relative to the position
+     * @param ply the distance of the position from the root
+     * @return the score relative to the root
+     */
+    private static int scoreFromTable(int score, int ply) {
+        if (score >= WIN_SCORE - 2 * MAX_DEPTH) {
+            return score - ply;
+        }
+        if (score <= -(WIN_SCORE - 2 * MAX_DEPTH)) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * Retrieve the transposition table of the engine
+     * @return a TranspositionTable instance
+     */
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    /**
+     * Record a move followed by the principal variation of the next ply as the principal variation of a ply
+     * @param ply the ply
+     * @param move the move
+     */
+    private void updatePrincipalVariation(int ply, int move) {
+        pvTable[ply][0] = move;
+        System.arraycopy(pvTable[ply + 1], 0, pvTable[ply], 1, pvLength[ply + 1]);
+        pvLength[ply] = pvLength[ply + 1] + 1;
+    }
+
+    /**
+     * Order moves in place: a preferred move first, then the moves that remove a token, then the others
+     * @param moves the buffer of packed moves
+     * @param count the number of moves in the buffer
+     * @param preferred the move to search first, or Move.NO_MOVE
+     */
+    private static void orderMoves(int[] moves, int count, int preferred) {
+        int next = 0;
+        if (preferred != Move.NO_MOVE) {
+            for (int i = 0; i < count; i++) {
+                if (moves[i] == preferred) {
+                    swap(moves, i, next++);
+                    break;
+                }
+            }
+        }
+        for (int i = next; i < count; i++) {
+            if (Move.hasRemove(moves[i])) {
+                swap(moves, i, next++);
+            }
+        }
+    }
+
+    /**
+     * Rotate moves in place by a number of positions
+     * @param moves the buffer of packed moves
+     * @param count the number of moves in the buffer
+     * @param distance the number of positions to rotate by
+     */
+    private static void rotateMoves(int[] moves, int count, int distance) {
+        for (int i = 0; i < distance % count; i++) {
+            int first = moves[0];
+            System.arraycopy(moves, 1, moves, 0, count - 1);
+            moves[count - 1] = first;
+        }
+    }
+
+    /**
+     * Ask the current search to stop as soon as possible. The search returns the result of its deepest
+     * completed iteration.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Clear the stop request of a previous search. The search itself never clears it, so that a stop
+     * requested before the search starts is not lost.
+     */
+    public void clearStop() {
+        stopRequested = false;
+    }
+
+    /**
+     * Setter of nodeBudget. A search with a node budget ignores its time budget, so it visits the same nodes
+     * and returns the same result on any machine.
+     * @param nodeBudget the number of nodes a search may visit, or 0 to search within the time budget
+     */
+    public void setNodeBudget(long nodeBudget) {
+        this.nodeBudget = nodeBudget;
+    }
+
+    /**
+     * Give the current search a new time budget counted from now, for example when a search started while
+     * pondering becomes the search of the real position
+     * @param timeBudgetMillis the time budget in milliseconds
+     */
+    public void setTimeBudget(long timeBudgetMillis) {
+        deadline = System.nanoTime() + timeBudgetMillis * 1_000_000L;
+    }
+
+    /**
+     * Swap two moves in a buffer
+     * @param moves the buffer of packed moves
+     * @param first the index of the first move
+     * @param second the index of the second move
+     */
+    private static void swap(int[] moves, int first, int second) {
+        int temp = moves[first];
+        moves[first] = moves[second];
+        moves[second] = temp;
+    }
+}
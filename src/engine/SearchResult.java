@@ -0,0 +1,131 @@
+package engine;
+
+import model.Move;
+
+/**
+ * The SearchResult class holds the outcome of a search: the best move found, its score, the depth of the
+ * last completed iteration, the number of nodes visited and the principal variation.
+ */
+public class SearchResult {
+    /**
+     * an integer represents the best move found, packed with the Move class
+     */
+    private final int bestMove;
+
+    /**
+     * an integer represents the score of the best move for the side to move
+     */
+    private final int score;
+
+    /**
+     * an integer represents the depth of the last completed iteration
+     */
+    private final int depth;
+
+    /**
+     * a long represents the number of nodes visited
+     */
+    private final long nodes;
+
+    /**
+     * a long represents the time spent searching in nanoseconds
+     */
+    private final long elapsedNanos;
+
+    /**
+     * an array of packed moves that represents the principal variation
+     */
+    private final int[] principalVariation;
+
+    /**
+     * Constructor
+     * @param bestMove the best move found
+     * @param score the score of the best move
+     * @param depth the depth of the last completed iteration
+     * @param nodes the number of nodes visited
+     * @param elapsedNanos the time spent searching in nanoseconds
+     * @param principalVariation the principal variation
+     */
+    public SearchResult(int bestMove, int score, int depth, long nodes, long elapsedNanos, int[] principalVariation) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+        this.principalVariation = principalVariation;
+    }
+
+    /**
+     * Retrieve the best move
+     * @return the packed best move, or Move.NO_MOVE if there is no legal move
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Retrieve the score of the best move
+     * @return the score for the side to move
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Retrieve the depth of the last completed iteration
+     * @return the depth in plies
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Retrieve the number of nodes visited
+     * @return the number of nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Retrieve the time spent searching
+     * @return the time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Retrieve the number of nodes visited per second
+     * @return the nodes per second
+     */
+    public long getNodesPerSecond() {
+        return elapsedNanos > 0 ? nodes * 1_000_000_000L / elapsedNanos : 0;
+    }
+
+    /**
+     * Retrieve the principal variation
+     * @return an array of packed moves, starting with the best move
+     */
+    public int[] getPrincipalVariation() {
+        return principalVariation;
+    }
+
+    /**
+     * Describe the search result
+     * @return a String describing the search result
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("depth ").append(depth)
+                .append(" score ").append(score)
+                .append(" nodes ").append(nodes)
+                .append(" nps ").append(getNodesPerSecond())
+                .append(" pv");
+        for (int move : principalVariation) {
+            builder.append(' ').append(Move.toString(move));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,182 @@
+package engine;
+
+import model.Bitboard;
+import model.ComputerPlayer;
+import model.Game;
+import model.MoveGenerator;
+import model.TokenColor;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The SelfPlay class plays complete games between two computer players without the user interface or the
+ * game controller: the players only think on the position, and the moves are played on a Game. A game
+ * starts with a few random plies, so that games played from different seeds differ, and goes from SET to
+ * a win or a draw by the rules of the Game, or to a draw once it reaches the ply limit. The time every
+ * player takes to think is recorded.
+ * All the randomness of a game comes from the stream it is played with: the random plies are drawn from
+ * it and every player gets a stream split from it, so a game replays exactly from the same stream as long
+ * as the players search deterministically, i.e. with a single thread within a node budget instead of a time
+ * budget.
+ * A SelfPlay instance plays one game at a time, on the thread that calls play.
+ */
+public class SelfPlay {
+    /**
+     * an integer represents the number of plies after which a game is a draw by default
+     */
+    public static final int DEFAULT_MAX_PLIES = 300;
+
+    /**
+     * an integer represents the number of random plies a game starts with by default
+     */
+    public static final int DEFAULT_RANDOM_PLIES = 4;
+
+    /**
+     * an integer represents the initial capacity of the recorded thinking times
+     */
+    private static final int INITIAL_MOVE_CAPACITY = 1024;
+
+    /**
+     * an array of the two computer players indexed by token color ordinal
+     */
+    private final ComputerPlayer[] players = new ComputerPlayer[2];
+
+    /**
+     * instance of the Game class the games are played on
+     */
+    private final Game game = new Game(new Bitboard(), 1);
+
+    /**
+     * a reusable buffer for the generated moves
+     */
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+    /**
+     * an integer represents the number of random plies a game starts with
+     */
+    private final int randomPlies;
+
+    /**
+     * an integer represents the number of plies after which a game is a draw
+     */
+    private final int maxPlies;
+
+    /**
+     * an array of the recorded thinking times in nanoseconds, grown when full
+     */
+    private long[] moveNanos = new long[INITIAL_MOVE_CAPACITY];
+
+    /**
+     * an integer represents the number of recorded thinking times
+     */
+    private int moveCount;
+
+    /**
+     * an integer represents the number of plies of the last game
+     */
+    private int plies;
+
+    /**
+     * a long represents a hash of the moves of the last game, equal for two games exactly when they are
+     * the same with overwhelming probability
+     */
+    private long gameHash;
+
+    /**
+     * an array of the packed moves of the last game
+     */
+    private final int[] gameMoves;
+
+    /**
+     * Constructor
+     * @param white the computer player of the white tokens
+     * @param black the computer player of the black tokens
+     * @param randomPlies the number of random plies a game starts with
+     * @param maxPlies the number of plies after which a game is a draw
+     */
+    public SelfPlay(ComputerPlayer white, ComputerPlayer black, int randomPlies, int maxPlies) {
+        players[TokenColor.WHITE.ordinal()] = white;
+        players[TokenColor.BLACK.ordinal()] = black;
+        this.randomPlies = randomPlies;
+        this.maxPlies = maxPlies;
+        gameMoves = new int[maxPlies];
+    }
+
+    /**
+     * Play a complete game
+     * @param random the stream of the game, used by this game only
+     * @return the token color of the winner, or null for a draw
+     */
+    public TokenColor play(SplittableRandom random) {
+        // every player draws from its own stream of the game
+        for (ComputerPlayer player : players) {
+            player.setRandom(random.split());
+        }
+        game.reset();
+        plies = 0;
+        gameHash = 0;
+        while (!game.isOver() && plies < maxPlies) {
+            int move;
+            if (plies < randomPlies) {
+                // random opening to vary the games
+                move = moves[random.nextInt(game.generateMoves(moves))];
+            } else {
+                // let the player to move think on the position
+                Bitboard bitboard = game.getBitboard();
+                long start = System.nanoTime();
+                move = players[game.getSideToMove().ordinal()].think(bitboard, bitboard.getGameState());
+                recordMove(System.nanoTime() - start);
+            }
+            if (!game.play(move)) {
+                throw new IllegalStateException("A computer player chose an illegal move");
+            }
+            gameHash = gameHash * 31 + move;
+            gameMoves[plies++] = move;
+        }
+        return game.getWinner();
+    }
+
+    /**
+     * Record the thinking time of a move
+     * @param nanos the thinking time in nanoseconds
+     */
+    private void recordMove(long nanos) {
+        if (moveCount == moveNanos.length) {
+            moveNanos = Arrays.copyOf(moveNanos, 2 * moveCount);
+        }
+        moveNanos[moveCount++] = nanos;
+    }
+
+    /**
+     * Retrieve the number of plies of the last game
+     * @return the number of plies
+     */
+    public int getPlies() {
+        return plies;
+    }
+
+    /**
+     * Retrieve the hash of the moves of the last game
+     * @return the hash of the moves
+     */
+    public long getGameHash() {
+        return gameHash;
+    }
+
+    /**
+     * Retrieve the moves of the last game
+     * @return a copy of the packed moves
+     */
+    public int[] getGameMoves() {
+        return Arrays.copyOf(gameMoves, plies);
+    }
+
+    /**
+     * Retrieve the thinking times recorded over all the games played
+     * @return a copy of the thinking times in nanoseconds
+     */
+    public long[] getMoveNanos() {
+        return Arrays.copyOf(moveNanos, moveCount);
+    }
+}
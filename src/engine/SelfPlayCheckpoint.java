@@ -0,0 +1,263 @@
+package engine;
+
+import model.TokenColor;
+import util.AtomicFile;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The SelfPlayCheckpoint class saves the progress of a batch of self-play games, so that a batch
+ * interrupted by a crash goes on without playing its finished games again. The games of a batch only depend
+ * on its options, which the checkpoint keeps to check that it is resumed by the same batch, and on their
+ * index; the checkpoint keeps the winner, the number of plies, the hash of the moves and optionally the
+ * moves of every finished game. The threads playing the games record them as they finish, and the checkpoint
+ * is written atomically with AtomicFile once its interval has elapsed since it was last written.
+ */
+public class SelfPlayCheckpoint {
+    /**
+     * an integer represents the magic number a checkpoint file starts with, "NMMS" in ASCII
+     */
+    private static final int MAGIC = 0x4E4D4D53;
+
+    /**
+     * an integer represents the version of the format
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * a Path represents the checkpoint file
+     */
+    private final Path file;
+
+    /**
+     * a String represents the options of the batch
+     */
+    private final String options;
+
+    /**
+     * a boolean to indicate if the moves of the games are kept
+     */
+    private final boolean keepMoves;
+
+    /**
+     * a long represents the time in nanoseconds between two writes of the file
+     */
+    private final long intervalNanos;
+
+    /**
+     * an array of booleans to indicate the finished games
+     */
+    private final boolean[] finished;
+
+    /**
+     * an array of the winners indexed by game, null for a draw
+     */
+    private final TokenColor[] winners;
+
+    /**
+     * an array of the number of plies indexed by game
+     */
+    private final int[] plies;
+
+    /**
+     * an array of the hashes of the moves indexed by game
+     */
+    private final long[] gameHashes;
+
+    /**
+     * an array of the moves indexed by game, or null if they are not kept
+     */
+    private final int[][] gameMoves;
+
+    /**
+     * an integer represents the number of finished games
+     */
+    private int finishedCount;
+
+    /**
+     * a long represents the System.nanoTime value at which the file was last written
+     */
+    private long lastWrite = System.nanoTime();
+
+    /**
+     * Constructor
+     * @param file the checkpoint file
+     * @param options a description of the options of the batch, the same for the same games
+     * @param games the number of games of the batch
+     * @param keepMoves true to keep the moves of the games, else false
+     * @param intervalMillis the time in milliseconds between two writes of the file
+     */
+    public SelfPlayCheckpoint(Path file, String options, int games, boolean keepMoves, long intervalMillis) {
+        this.file = file;
+        this.options = options;
+        this.keepMoves = keepMoves;
+        this.intervalNanos = intervalMillis * 1_000_000L;
+        finished = new boolean[games];
+        winners = new TokenColor[games];
+        plies = new int[games];
+        gameHashes = new long[games];
+        gameMoves = keepMoves ? new int[games][] : null;
+    }
+
+    /**
+     * Read the games finished before, if the file exists
+     * @return the number of finished games read
+     * @throws IOException if the file cannot be read or was written by a batch with other options
+     */
+    public synchronized int load() throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (DataInputStream input = AtomicFile.open(file)) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IOException(file + " is not a self-play checkpoint");
+            }
+            String fileOptions = input.readUTF();
+            if (!fileOptions.equals(options) || input.readBoolean() != keepMoves) {
+                throw new IOException(file + " is the checkpoint of another batch: " + fileOptions);
+            }
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                int game = input.readInt();
+                int winner = input.readByte();
+                int gamePlies = input.readInt();
+                long gameHash = input.readLong();
+                int[] moves = null;
+                if (keepMoves) {
+                    moves = new int[gamePlies];
+                    for (int ply = 0; ply < gamePlies; ply++) {
+                        moves[ply] = input.readInt();
+                    }
+                }
+                store(game, winner < 0 ? null : TokenColor.values()[winner], gamePlies, gameHash, moves);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Record a finished game, and write the file if its interval has elapsed
+     * @param game the index of the game
+     * @param winner the token color of the winner, or null for a draw
+     * @param gamePlies the number of plies of the game
+     * @param gameHash the hash of the moves of the game
+     * @param moves the moves of the game, or null if they are not kept
+     */
+    public synchronized void record(int game, TokenColor winner, int gamePlies, long gameHash, int[] moves) {
+        store(game, winner, gamePlies, gameHash, moves);
+        if (System.nanoTime() - lastWrite >= intervalNanos) {
+            try {
+                write();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write the checkpoint " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Keep a finished game
+     * @param game the index of the game
+     * @param winner the token color of the winner, or null for a draw
+     * @param gamePlies the number of plies of the game
+     * @param gameHash the hash of the moves of the game
+     * @param moves the moves of the game, or null if they are not kept
+     */
+    private void store(int game, TokenColor winner, int gamePlies, long gameHash, int[] moves) {
+        if (!finished[game]) {
+            finished[game] = true;
+            finishedCount++;
+        }
+        winners[game] = winner;
+        plies[game] = gamePlies;
+        gameHashes[game] = gameHash;
+        if (keepMoves) {
+            gameMoves[game] = moves;
+        }
+    }
+
+    /**
+     * Write every finished game to the file
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void write() throws IOException {
+        AtomicFile.write(file, output -> {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeUTF(options);
+            output.writeBoolean(keepMoves);
+            output.writeInt(finishedCount);
+            for (int game = 0; game < finished.length; game++) {
+                if (!finished[game]) {
+                    continue;
+                }
+                output.writeInt(game);
+                output.writeByte(winners[game] == null ? -1 : winners[game].ordinal());
+                output.writeInt(plies[game]);
+                output.writeLong(gameHashes[game]);
+                if (keepMoves) {
+                    for (int move : gameMoves[game]) {
+                        output.writeInt(move);
+                    }
+                }
+            }
+        });
+        lastWrite = System.nanoTime();
+    }
+
+    /**
+     * Delete the file once the batch is over
+     * @throws IOException if the file cannot be deleted
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Determine if a game is finished
+     * @param game the index of the game
+     * @return true if the game is finished, else false
+     */
+    public synchronized boolean isFinished(int game) {
+        return finished[game];
+    }
+
+    /**
+     * Retrieve the winner of a finished game
+     * @param game the index of the game
+     * @return the token color of the winner, or null for a draw
+     */
+    public synchronized TokenColor getWinner(int game) {
+        return winners[game];
+    }
+
+    /**
+     * Retrieve the number of plies of a finished game
+     * @param game the index of the game
+     * @return the number of plies
+     */
+    public synchronized int getPlies(int game) {
+        return plies[game];
+    }
+
+    /**
+     * Retrieve the hash of the moves of a finished game
+     * @param game the index of the game
+     * @return the hash of the moves
+     */
+    public synchronized long getGameHash(int game) {
+        return gameHashes[game];
+    }
+
+    /**
+     * Retrieve the moves of a finished game
+     * @param game the index of the game
+     * @return the packed moves, or null if they are not kept
+     */
+    public synchronized int[] getGameMoves(int game) {
+        return keepMoves ? gameMoves[game] : null;
+    }
+}
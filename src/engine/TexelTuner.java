@@ -0,0 +1,361 @@
+package engine;
+
+import model.Bitboard;
+import model.Move;
+import model.MoveGenerator;
+import model.TokenColor;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The TexelTuner class fits the weights of the Evaluator to the outcome of games. Every position is labelled
+ * with the result of the game it was played in, and the evaluation of the position, turned into an expected
+ * result by a logistic curve, should predict that label: the tuner minimises the mean squared difference
+ * between the two. Since the evaluation is the sum of the weights times the counts of the terms, only the
+ * counts are kept, from the point of view of white, in one flat int array next to a byte array of the
+ * results, and the error of a set of weights is computed from them without the positions.
+ * The scale of the logistic curve is fitted first with the initial weights, then the weights are fitted by
+ * a local search that tries to move each weight up and down by a step and halves the step once no move
+ * lowers the error. Multiplying every weight by a factor is the same as multiplying the scale, so the weight
+ * of the material stays as given and sets the unit the other weights are expressed in. The error is summed
+ * in parallel on a ForkJoinPool over fixed blocks of positions, added in the order of the blocks, so the
+ * result does not depend on the number of threads.
+ * A TexelTuner instance is filled and tuned by one thread at a time.
+ */
+public class TexelTuner {
+    /**
+     * an integer represents the result of a game won by white, in half points for white
+     */
+    public static final int WHITE_WINS = 2;
+
+    /**
+     * an integer represents the result of a drawn game, in half points for white
+     */
+    public static final int DRAW = 1;
+
+    /**
+     * an integer represents the result of a game won by black, in half points for white
+     */
+    public static final int BLACK_WINS = 0;
+
+    /**
+     * an integer represents the number of positions whose error one task sums without splitting
+     */
+    private static final int BLOCK_SIZE = 4096;
+
+    /**
+     * an integer represents the initial number of positions the arrays hold
+     */
+    private static final int INITIAL_CAPACITY = 1 << 16;
+
+    /**
+     * a double represents the base 10 logarithm of the smallest scale tried
+     */
+    private static final double MIN_LOG_SCALE = -5;
+
+    /**
+     * a double represents the base 10 logarithm of the largest scale tried
+     */
+    private static final double MAX_LOG_SCALE = 0;
+
+    /**
+     * an integer represents the number of golden section steps of the scale fit
+     */
+    private static final int SCALE_ITERATIONS = 60;
+
+    /**
+     * an integer represents the first step by which the local search moves a weight
+     */
+    private static final int INITIAL_STEP = 16;
+
+    /**
+     * instance of the ForkJoinPool class the error is computed on
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * an array of the counts of the terms for white minus those for black, EvaluationWeights.NUM_OF_TERMS
+     * entries per position
+     */
+    private int[] terms = new int[INITIAL_CAPACITY * EvaluationWeights.NUM_OF_TERMS];
+
+    /**
+     * an array of the results indexed by position, in half points for white
+     */
+    private byte[] results = new byte[INITIAL_CAPACITY];
+
+    /**
+     * an integer represents the number of positions
+     */
+    private int count;
+
+    /**
+     * a double represents the scale of the logistic curve that turns an evaluation into an expected result
+     */
+    private double scale;
+
+    /**
+     * a reusable buffer for the counts of the terms of a position
+     */
+    private final int[] positionTerms = new int[EvaluationWeights.NUM_OF_TERMS];
+
+    /**
+     * a reusable buffer for the generated moves
+     */
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+    /**
+     * Constructor
+     * @param pool the pool the error is computed on
+     */
+    public TexelTuner(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Add a position of a game, unless the side to move can close a mill: the evaluation of such a position
+     * misses the token about to be removed, so it would only add noise to the fit
+     * @param bitboard the position, which is not modified
+     * @param result the result of the game, WHITE_WINS, DRAW or BLACK_WINS
+     * @return true if the position was added, else false
+     */
+    public boolean addPosition(Bitboard bitboard, int result) {
+        int moveCount = MoveGenerator.generate(bitboard, moves);
+        if (moveCount == 0) {
+            return false;
+        }
+        for (int i = 0; i < moveCount; i++) {
+            if (Move.hasRemove(moves[i])) {
+                return false;
+            }
+        }
+
+        // grow the arrays when full
+        if (count == results.length) {
+            results = Arrays.copyOf(results, 2 * count);
+            terms = Arrays.copyOf(terms, 2 * count * EvaluationWeights.NUM_OF_TERMS);
+        }
+
+        // keep the counts from the point of view of white
+        Evaluator.countTerms(bitboard, positionTerms);
+        int sign = bitboard.getSideToMove() == TokenColor.WHITE ? 1 : -1;
+        int offset = count * EvaluationWeights.NUM_OF_TERMS;
+        for (int term = 0; term < EvaluationWeights.NUM_OF_TERMS; term++) {
+            terms[offset + term] = sign * positionTerms[term];
+        }
+        results[count++] = (byte) result;
+        return true;
+    }
+
+    /**
+     * Retrieve the result of a game in half points for white
+     * @param winner the token color of the winner, or null for a draw
+     * @return WHITE_WINS, DRAW or BLACK_WINS
+     */
+    public static int getResult(TokenColor winner) {
+        if (winner == null) {
+            return DRAW;
+        }
+        return winner == TokenColor.WHITE ? WHITE_WINS : BLACK_WINS;
+    }
+
+    /**
+     * Retrieve the number of positions
+     * @return the number of positions added
+     */
+    public int getPositionCount() {
+        return count;
+    }
+
+    /**
+     * Retrieve the scale of the logistic curve
+     * @return the scale, 0 until fitScale is called
+     */
+    public double getScale() {
+        return scale;
+    }
+
+    /**
+     * Fit the scale of the logistic curve to the positions with a golden section search on its logarithm
+     * @param weights the weights the scale is fitted for
+     * @return the fitted scale
+     */
+    public double fitScale(EvaluationWeights weights) {
+        int[] weightArray = weights.toArray();
+        double ratio = (Math.sqrt(5) - 1) / 2;
+        double low = MIN_LOG_SCALE;
+        double high = MAX_LOG_SCALE;
+        double left = high - ratio * (high - low);
+        double right = low + ratio * (high - low);
+        double leftError = computeError(weightArray, Math.pow(10, left));
+        double rightError = computeError(weightArray, Math.pow(10, right));
+        for (int i = 1; i < SCALE_ITERATIONS; i++) {
+            // the point kept inside the narrower interval is one of its two golden section points
+            if (leftError < rightError) {
+                high = right;
+                right = left;
+                rightError = leftError;
+                left = high - ratio * (high - low);
+                leftError = computeError(weightArray, Math.pow(10, left));
+            } else {
+                low = left;
+                left = right;
+                leftError = rightError;
+                right = low + ratio * (high - low);
+                rightError = computeError(weightArray, Math.pow(10, right));
+            }
+        }
+        if (leftError < rightError) {
+            high = right;
+        } else {
+            low = left;
+        }
+        scale = Math.pow(10, (low + high) / 2);
+        return scale;
+    }
+
+    /**
+     * Fit the weights to the positions, with the scale of the last fitScale
+     * @param initial the weights the search starts from
+     * @param maxPasses the largest number of passes over all the weights
+     * @return the fitted weights
+     */
+    public EvaluationWeights tune(EvaluationWeights initial, int maxPasses) {
+        if (scale == 0) {
+            throw new IllegalStateException("The scale must be fitted before the weights");
+        }
+        int[] weights = initial.toArray();
+        double bestError = computeError(weights, scale);
+        int step = INITIAL_STEP;
+        for (int pass = 0; pass < maxPasses && step > 0; pass++) {
+            boolean improved = false;
+            for (int term = EvaluationWeights.MATERIAL + 1; term < EvaluationWeights.NUM_OF_TERMS; term++) {
+                // try a step up, then a step down
+                for (int delta : new int[] {step, -step}) {
+                    weights[term] += delta;
+                    double error = computeError(weights, scale);
+                    if (error < bestError) {
+                        bestError = error;
+                        improved = true;
+                        break;
+                    }
+                    weights[term] -= delta;
+                }
+            }
+            if (!improved) {
+                step /= 2;
+            }
+        }
+        return new EvaluationWeights(weights);
+    }
+
+    /**
+     * Compute the error of weights with the scale of the last fitScale
+     * @param weights the weights
+     * @return the mean squared difference between the expected and the actual results
+     */
+    public double computeError(EvaluationWeights weights) {
+        return computeError(weights.toArray(), scale);
+    }
+
+    /**
+     * Compute the error of weights in parallel
+     * @param weights the weights indexed by term
+     * @param scale the scale of the logistic curve
+     * @return the mean squared difference between the expected and the actual results
+     */
+    private double computeError(int[] weights, double scale) {
+        if (count == 0) {
+            return 0;
+        }
+        int blocks = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        double[] sums = new double[blocks];
+        pool.invoke(new ErrorTask(weights, scale, sums, 0, blocks));
+
+        // add the blocks in order, whatever thread summed them
+        double total = 0;
+        for (double sum : sums) {
+            total += sum;
+        }
+        return total / count;
+    }
+
+    /**
+     * The ErrorTask class sums the squared errors of a range of blocks of positions, splitting the range in
+     * halves until a single block is left
+     */
+    private final class ErrorTask extends RecursiveAction {
+        /**
+         * a long represents the version of the serialized form of the class
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * an array of the weights indexed by term
+         */
+        private final int[] weights;
+
+        /**
+         * a double represents the scale of the logistic curve
+         */
+        private final double scale;
+
+        /**
+         * an array of the sums indexed by block, filled by the tasks
+         */
+        private final double[] sums;
+
+        /**
+         * an integer represents the index of the first block of the range
+         */
+        private final int firstBlock;
+
+        /**
+         * an integer represents the index after the last block of the range
+         */
+        private final int endBlock;
+
+        /**
+         * Constructor
+         * @param weights the weights indexed by term
+         * @param scale the scale of the logistic curve
+         * @param sums the sums indexed by block
+         * @param firstBlock the index of the first block
+         * @param endBlock the index after the last block
+         */
+        ErrorTask(int[] weights, double scale, double[] sums, int firstBlock, int endBlock) {
+            this.weights = weights;
+            this.scale = scale;
+            this.sums = sums;
+            this.firstBlock = firstBlock;
+            this.endBlock = endBlock;
+        }
+
+        @Override
+        protected void compute() {
+            if (endBlock - firstBlock > 1) {
+                int middle = (firstBlock + endBlock) >>> 1;
+                invokeAll(new ErrorTask(weights, scale, sums, firstBlock, middle),
+                        new ErrorTask(weights, scale, sums, middle, endBlock));
+                return;
+            }
+
+            // sum the squared errors of the positions of the block
+            int end = Math.min(count, (firstBlock + 1) * BLOCK_SIZE);
+            double sum = 0;
+            for (int position = firstBlock * BLOCK_SIZE; position < end; position++) {
+                int offset = position * EvaluationWeights.NUM_OF_TERMS;
+                int score = 0;
+                for (int term = 0; term < EvaluationWeights.NUM_OF_TERMS; term++) {
+                    score += weights[term] * terms[offset + term];
+                }
+                double expected = 1 / (1 + Math.exp(-scale * score));
+                double error = results[position] / 2.0 - expected;
+                sum += error * error;
+            }
+            sums[firstBlock] = sum;
+        }
+    }
+}
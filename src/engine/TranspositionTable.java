@@ -0,0 +1,314 @@
+package engine;
+
+import model.Move;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The TranspositionTable class caches search results by position hash in a fixed-size array of primitive
+ * longs. Each bucket holds two entries: the first is replaced only by a deeper search or an entry from an
+ * older search, the second is always replaced. An entry is stored as the hash XORed with its data followed
+ * by the data, so a probe that reads an entry half written by another thread sees a hash mismatch and
+ * treats it as a miss. This lets several search threads share a table without any lock.
+ */
+public class TranspositionTable {
+    /**
+     * a String represents the name of the system property that configures the size of the table in MB
+     */
+    public static final String SIZE_PROPERTY = "nmm.hash.mb";
+
+    /**
+     * an integer represents the size of the table in MB when it is not configured
+     */
+    public static final int DEFAULT_SIZE_MB = 16;
+
+    /**
+     * an integer represents an exact score
+     */
+    public static final int EXACT = 1;
+
+    /**
+     * an integer represents a score that is a lower bound (the search failed high)
+     */
+    public static final int LOWER_BOUND = 2;
+
+    /**
+     * an integer represents a score that is an upper bound (the search failed low)
+     */
+    public static final int UPPER_BOUND = 3;
+
+    /**
+     * an integer represents the number of longs of an entry
+     */
+    private static final int ENTRY_LONGS = 2;
+
+    /**
+     * an integer represents the number of longs of a bucket
+     */
+    private static final int BUCKET_LONGS = 2 * ENTRY_LONGS;
+
+    /**
+     * an array of longs that stores the buckets
+     */
+    private final long[] table;
+
+    /**
+     * a long mask that maps a hash to a bucket index
+     */
+    private final long bucketMask;
+
+    /**
+     * an integer represents the generation of the current search, used to age out old entries
+     */
+    private volatile int generation;
+
+    /**
+     * a LongAdder that counts the probes
+     */
+    private final LongAdder probes = new LongAdder();
+
+    /**
+     * a LongAdder that counts the probes that found the position
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * a LongAdder that counts the stores
+     */
+    private final LongAdder stores = new LongAdder();
+
+    /**
+     * a LongAdder that counts the stores that replaced an entry of another position
+     */
+    private final LongAdder collisions = new LongAdder();
+
+    /**
+     * Constructor
+     * @param sizeMb the size of the table in MB, rounded down to a power of two number of buckets
+     */
+    public TranspositionTable(int sizeMb) {
+        long buckets = Long.highestOneBit(Math.max(1L, (long) sizeMb * 1024 * 1024 / (BUCKET_LONGS * Long.BYTES)));
+        buckets = Math.min(buckets, Integer.highestOneBit(Integer.MAX_VALUE / BUCKET_LONGS));
+        table = new long[(int) buckets * BUCKET_LONGS];
+        bucketMask = buckets - 1;
+    }
+
+    /**
+     * Create a table of the size configured by the SIZE_PROPERTY system property
+     * @return a TranspositionTable instance
+     */
+    public static TranspositionTable fromConfiguration() {
+        return new TranspositionTable(Integer.getInteger(SIZE_PROPERTY, DEFAULT_SIZE_MB));
+    }
+
+    /**
+     * Start a new search, so entries of previous searches become preferred for replacement
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0x3F;
+    }
+
+    /**
+     * Empty the table and reset its statistics
+     */
+    public void clear() {
+        Arrays.fill(table, 0L);
+        probes.reset();
+        hits.reset();
+        stores.reset();
+        collisions.reset();
+    }
+
+    /**
+     * Look up a position
+     * @param hash the hash of the position
+     * @return the packed entry data, or 0 if the position is not in the table
+     */
+    public long probe(long hash) {
+        probes.increment();
+        int bucket = bucketIndex(hash);
+        for (int i = bucket; i < bucket + BUCKET_LONGS; i += ENTRY_LONGS) {
+            long data = table[i + 1];
+            if (data != 0 && (table[i] ^ data) == hash) {
+                hits.increment();
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Store the result of searching a position
+     * @param hash the hash of the position
+     * @param move the best move, packed with the Move class, or Move.NO_MOVE
+     * @param score the score, already adjusted to be relative to the position
+     * @param depth the depth searched in plies
+     * @param bound EXACT, LOWER_BOUND or UPPER_BOUND
+     */
+    public void store(long hash, int move, int score, int depth, int bound) {
+        stores.increment();
+        long data = pack(move, score, depth, bound, generation);
+        int bucket = bucketIndex(hash);
+
+        // replace the depth-preferred entry if it is the same position, shallower or from an older search
+        long preferred = table[bucket + 1];
+        boolean samePosition = (table[bucket] ^ preferred) == hash;
+        if (preferred == 0 || samePosition || depth >= getDepth(preferred) || getGeneration(preferred) != generation) {
+            if (preferred != 0 && !samePosition) {
+                collisions.increment();
+            }
+            table[bucket] = hash ^ data;
+            table[bucket + 1] = data;
+            return;
+        }
+
+        // otherwise always replace the second entry
+        long replaced = table[bucket + 3];
+        if (replaced != 0 && (table[bucket + 2] ^ replaced) != hash) {
+            collisions.increment();
+        }
+        table[bucket + 2] = hash ^ data;
+        table[bucket + 3] = data;
+    }
+
+    /**
+     * Map a hash to the index of the first long of its bucket
+     * @param hash the hash of the position
+     * @return the index in the table
+     */
+    private int bucketIndex(long hash) {
+        return (int) (hash & bucketMask) * BUCKET_LONGS;
+    }
+
+    /**
+     * Pack the data of an entry, the bound is never 0 so packed data is never 0
+     * @param move the best move
+     * @param score the score
+     * @param depth the depth
+     * @param bound the bound type
+     * @param generation the generation of the search
+     * @return the packed data
+     */
+    private static long pack(int move, int score, int depth, int bound, int generation) {
+        return (move & 0xFFFFL)
+                | ((long) (depth & 0xFF) << 16)
+                | ((long) (bound & 0x3) << 24)
+                | ((long) (generation & 0x3F) << 26)
+                | ((long) score << 32);
+    }
+
+    /**
+     * Retrieve the best move of packed entry data
+     * @param data the packed entry data
+     * @return the packed move, or Move.NO_MOVE
+     */
+    public static int getMove(long data) {
+        int move = (int) (data & 0xFFFF);
+        return move == 0xFFFF ? Move.NO_MOVE : move;
+    }
+
+    /**
+     * Retrieve the score of packed entry data
+     * @param data the packed entry data
+     * @return the score
+     */
+    public static int getScore(long data) {
+        return (int) (data >> 32);
+    }
+
+    /**
+     * Retrieve the depth of packed entry data
+     * @param data the packed entry data
+     * @return the depth in plies
+     */
+    public static int getDepth(long data) {
+        return (int) ((data >>> 16) & 0xFF);
+    }
+
+    /**
+     * Retrieve the bound type of packed entry data
+     * @param data the packed entry data
+     * @return EXACT, LOWER_BOUND or UPPER_BOUND
+     */
+    public static int getBound(long data) {
+        return (int) ((data >>> 24) & 0x3);
+    }
+
+    /**
+     * Retrieve the generation of packed entry data
+     * @param data the packed entry data
+     * @return the generation
+     */
+    private static int getGeneration(long data) {
+        return (int) ((data >>> 26) & 0x3F);
+    }
+
+    /**
+     * Retrieve the number of entries the table can hold
+     * @return the number of entries
+     */
+    public int getCapacity() {
+        return table.length / ENTRY_LONGS;
+    }
+
+    /**
+     * Retrieve the fraction of probes that found the position
+     * @return the hit rate between 0 and 1
+     */
+    public double getHitRate() {
+        long probeCount = probes.sum();
+        return probeCount == 0 ? 0 : (double) hits.sum() / probeCount;
+    }
+
+    /**
+     * Retrieve the fraction of stores that replaced an entry of another position
+     * @return the collision rate between 0 and 1
+     */
+    public double getCollisionRate() {
+        long storeCount = stores.sum();
+        return storeCount == 0 ? 0 : (double) collisions.sum() / storeCount;
+    }
+
+    /**
+     * Retrieve the number of probes
+     * @return the number of probes
+     */
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    /**
+     * Retrieve the number of probes that found the position
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Retrieve the number of stores
+     * @return the number of stores
+     */
+    public long getStores() {
+        return stores.sum();
+    }
+
+    /**
+     * Retrieve the number of stores that replaced an entry of another position
+     * @return the number of collisions
+     */
+    public long getCollisions() {
+        return collisions.sum();
+    }
+
+    /**
+     * Describe the statistics of the table
+     * @return a String describing the statistics
+     */
+    @Override
+    public String toString() {
+        return String.format("entries %d probes %d hit rate %.3f stores %d collision rate %.3f",
+                getCapacity(), getProbes(), getHitRate(), getStores(), getCollisionRate());
+    }
+}
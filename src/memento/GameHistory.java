@@ -0,0 +1,140 @@
+package memento;
+
+/**
+ * This class applies the memento design pattern to keep the history of a game for undo and redo. Every
+ * position of the game is captured as a snapshot packed into a single long by the Bitboard class, and
+ * the snapshots are kept in a fixed-size ring buffer, so a full game costs a few kilobytes and a history
+ * never allocates once created. When the buffer is full, the oldest snapshot is dropped.
+ */
+public class GameHistory {
+    /**
+     * an array that stores the snapshots as a ring buffer
+     */
+    private final long[] snapshots;
+
+    /**
+     * an integer represents the index in the ring buffer of the oldest snapshot
+     */
+    private int first;
+
+    /**
+     * an integer represents the number of snapshots, including the ones that can be redone
+     */
+    private int size;
+
+    /**
+     * an integer represents the position of the current snapshot counted from the oldest one
+     */
+    private int current = -1;
+
+    /**
+     * Constructor
+     * @param capacity the maximum number of snapshots kept
+     */
+    public GameHistory(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity of a history must be at least 1");
+        }
+        snapshots = new long[capacity];
+    }
+
+    /**
+     * Forget every snapshot
+     */
+    public void clear() {
+        first = 0;
+        size = 0;
+        current = -1;
+    }
+
+    /**
+     * Record a snapshot as the current one. The snapshots that could be redone are forgotten.
+     * @param snapshot the packed snapshot
+     */
+    public void record(long snapshot) {
+        if (current == snapshots.length - 1) {
+            // drop the oldest snapshot
+            first = (first + 1) % snapshots.length;
+        } else {
+            current++;
+        }
+        size = current + 1;
+        snapshots[(first + current) % snapshots.length] = snapshot;
+    }
+
+    /**
+     * Determine if there is a snapshot before the current one
+     * @return true if undo is possible, else false
+     */
+    public boolean canUndo() {
+        return current > 0;
+    }
+
+    /**
+     * Determine if there is a snapshot after the current one
+     * @return true if redo is possible, else false
+     */
+    public boolean canRedo() {
+        return current < size - 1;
+    }
+
+    /**
+     * Step back to the previous snapshot, which must exist
+     * @return the previous snapshot
+     */
+    public long undo() {
+        if (!canUndo()) {
+            throw new IllegalStateException("There is nothing to undo");
+        }
+        current--;
+        return getCurrent();
+    }
+
+    /**
+     * Step forward to the next snapshot, which must exist
+     * @return the next snapshot
+     */
+    public long redo() {
+        if (!canRedo()) {
+            throw new IllegalStateException("There is nothing to redo");
+        }
+        current++;
+        return getCurrent();
+    }
+
+    /**
+     * Retrieve the current snapshot, which must exist
+     * @return the current snapshot
+     */
+    public long getCurrent() {
+        return snapshots[(first + current) % snapshots.length];
+    }
+
+    /**
+     * Retrieve a snapshot from the oldest one kept to the current one
+     * @param index the position of the snapshot counted from the oldest one, below getCurrentSize
+     * @return the snapshot
+     */
+    public long getSnapshot(int index) {
+        if (index < 0 || index > current) {
+            throw new IndexOutOfBoundsException("No snapshot " + index + " in a history of " + (current + 1));
+        }
+        return snapshots[(first + index) % snapshots.length];
+    }
+
+    /**
+     * Retrieve the number of snapshots from the oldest one kept to the current one
+     * @return the number of snapshots
+     */
+    public int getCurrentSize() {
+        return current + 1;
+    }
+
+    /**
+     * Retrieve the maximum number of snapshots kept
+     * @return the capacity of the history
+     */
+    public int getCapacity() {
+        return snapshots.length;
+    }
+}
@@ -0,0 +1,517 @@
+package model;
+
+/**
+ * The Bitboard class is a compact, primitive representation of the position on the board. Every token
+ * color owns a 24-bit mask in which bit i is set when the node with index i holds a token of that color.
+ * Together with the side to move and the per-player counters of tokens to set and tokens on board, this
+ * allows mill, removability and mobility queries to be answered with a few mask operations instead of
+ * walking the node triplets. The bitboard also keeps a 64-bit Zobrist hash of the position, updated
+ * incrementally by every change. A search or a rollout can walk positions in place with makeMove and
+ * unmakeMove, which save what a move changes on an undo stack of primitives.
+ */
+public class Bitboard {
+    /**
+     * an integer represents the number of squares (nodes) on the board
+     */
+    public static final int NUM_OF_SQUARES = BoardTopology.NUM_OF_SQUARES;
+
+    /**
+     * an integer mask with a bit set for every square on the board
+     */
+    public static final int ALL_SQUARES = (1 << NUM_OF_SQUARES) - 1;
+
+    /**
+     * an integer represents the initial number of token to set for each player
+     */
+    public static final int INIT_NUM_OF_TOKENS_TO_SET = 9;
+
+    /**
+     * an integer represents the number of moves that can be made before they are unmade
+     */
+    public static final int UNDO_CAPACITY = 1024;
+
+    /**
+     * an array of the token colors indexed by their ordinal
+     */
+    private static final TokenColor[] COLORS = TokenColor.values();
+
+    /**
+     * an array of the game states indexed by their ordinal
+     */
+    private static final GameState[] GAME_STATES = GameState.values();
+
+    /**
+     * an array of masks indexed by token color ordinal that represents the occupied squares of each color
+     */
+    private final int[] masks = new int[2];
+
+    /**
+     * an array indexed by token color ordinal that represents the number of tokens to set
+     */
+    private final int[] tokensToSet = new int[2];
+
+    /**
+     * an array indexed by token color ordinal that represents the number of tokens on board
+     */
+    private final int[] tokensOnBoard = new int[2];
+
+    /**
+     * an integer represents the token color ordinal of the side to move
+     */
+    private int sideToMove;
+
+    /**
+     * instance of the GameState class to indicate the game state of the side to move
+     */
+    private GameState gameState;
+
+    /**
+     * a long represents the Zobrist hash of the position
+     */
+    private long hash;
+
+    /**
+     * an array that stores two longs for each made move: the previous hash, then the move packed with
+     * the previous counters, side to move and game state. It is allocated by the first makeMove.
+     */
+    private long[] undoStack;
+
+    /**
+     * an integer represents the number of made moves on the undo stack
+     */
+    private int undoCount;
+
+    /**
+     * Constructor
+     */
+    public Bitboard() {
+        reset();
+    }
+
+    /**
+     * Reset the bitboard to an empty board with white to move
+     */
+    public void reset() {
+        masks[0] = 0;
+        masks[1] = 0;
+        tokensToSet[0] = INIT_NUM_OF_TOKENS_TO_SET;
+        tokensToSet[1] = INIT_NUM_OF_TOKENS_TO_SET;
+        tokensOnBoard[0] = 0;
+        tokensOnBoard[1] = 0;
+        sideToMove = TokenColor.WHITE.ordinal();
+        gameState = GameState.SET;
+        hash = computeHash();
+        undoCount = 0;
+    }
+
+    /**
+     * Compute the Zobrist hash of the position from scratch
+     * @return the hash of the position
+     */
+    public long computeHash() {
+        long result = Zobrist.gameStateKey(gameState);
+        for (int color = 0; color < 2; color++) {
+            for (int remaining = masks[color]; remaining != 0; remaining &= remaining - 1) {
+                result ^= Zobrist.squareKey(color, Integer.numberOfTrailingZeros(remaining));
+            }
+            result ^= Zobrist.tokensToSetKey(color, tokensToSet[color]);
+        }
+        if (sideToMove == TokenColor.BLACK.ordinal()) {
+            result ^= Zobrist.blackToMoveKey();
+        }
+        return result;
+    }
+
+    /**
+     * Retrieve the Zobrist hash of the position
+     * @return the hash of the position
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Mirror the content of a square. The token on board counters are kept in sync with the masks.
+     * @param square the index of the square
+     * @param tokenColor the token color now on the square, or null if the square is now empty
+     */
+    public void setSquare(int square, TokenColor tokenColor) {
+        int bit = 1 << square;
+
+        // clear previous content
+        for (int color = 0; color < 2; color++) {
+            if ((masks[color] & bit) != 0) {
+                masks[color] &= ~bit;
+                tokensOnBoard[color]--;
+                hash ^= Zobrist.squareKey(color, square);
+            }
+        }
+
+        // set new content
+        if (tokenColor != null) {
+            masks[tokenColor.ordinal()] |= bit;
+            tokensOnBoard[tokenColor.ordinal()]++;
+            hash ^= Zobrist.squareKey(tokenColor.ordinal(), square);
+        }
+    }
+
+    /**
+     * Record that a player has set a token from hand onto a square
+     * @param square the index of the square
+     * @param tokenColor the token color of the player
+     */
+    public void placeToken(int square, TokenColor tokenColor) {
+        setSquare(square, tokenColor);
+        setTokensToSet(tokenColor, tokensToSet[tokenColor.ordinal()] - 1);
+    }
+
+    /**
+     * Apply a packed move for the side to move and pass the turn to the opponent. A set, move or jump
+     * may carry the removal of an opponent token, and a remove on its own only removes that token.
+     * @param move the packed move, which must be legal in this position
+     */
+    public void applyMove(int move) {
+        TokenColor side = COLORS[sideToMove];
+        if (Move.hasTo(move)) {
+            if (Move.hasFrom(move)) {
+                setSquare(Move.getFrom(move), null);
+                setSquare(Move.getTo(move), side);
+            } else {
+                placeToken(Move.getTo(move), side);
+            }
+        }
+        if (Move.hasRemove(move)) {
+            setSquare(Move.getRemove(move), null);
+        }
+        setSideToMove(side.opposite());
+        setGameState(inferGameState());
+    }
+
+    /**
+     * Apply a packed move like applyMove, saving what it changes so that unmakeMove can take it back.
+     * Up to UNDO_CAPACITY moves can be made in a row; the undo stack is allocated once, by the first call.
+     * @param move the packed move, which must be legal in this position
+     */
+    public void makeMove(int move) {
+        if (undoStack == null) {
+            undoStack = new long[2 * UNDO_CAPACITY];
+        }
+        int slot = 2 * undoCount++;
+        undoStack[slot] = hash;
+        undoStack[slot + 1] = (move & 0x7FFFL)
+                | (long) gameState.ordinal() << 15
+                | (long) sideToMove << 17
+                | (long) tokensToSet[0] << 18
+                | (long) tokensToSet[1] << 22
+                | (long) tokensOnBoard[0] << 26
+                | (long) tokensOnBoard[1] << 31;
+        applyMove(move);
+    }
+
+    /**
+     * Take back the last move made with makeMove, restoring the position exactly as it was
+     */
+    public void unmakeMove() {
+        int slot = 2 * --undoCount;
+        long saved = undoStack[slot + 1];
+        int move = (int) (saved & 0x7FFF);
+        int mover = (int) (saved >>> 17) & 1;
+
+        // put the moved token back and give the captured token back to the opponent
+        if (Move.hasTo(move)) {
+            masks[mover] &= ~(1 << Move.getTo(move));
+            if (Move.hasFrom(move)) {
+                masks[mover] |= 1 << Move.getFrom(move);
+            }
+        }
+        if (Move.hasRemove(move)) {
+            masks[1 - mover] |= 1 << Move.getRemove(move);
+        }
+
+        // restore the counters, side to move, game state and hash
+        tokensToSet[0] = (int) (saved >>> 18) & 0xF;
+        tokensToSet[1] = (int) (saved >>> 22) & 0xF;
+        tokensOnBoard[0] = (int) (saved >>> 26) & 0x1F;
+        tokensOnBoard[1] = (int) (saved >>> 31) & 0x1F;
+        sideToMove = mover;
+        gameState = GAME_STATES[(int) (saved >>> 15) & 0x3];
+        hash = undoStack[slot];
+    }
+
+    /**
+     * Retrieve the number of made moves that can still be unmade
+     * @return the number of moves on the undo stack
+     */
+    public int getUndoCount() {
+        return undoCount;
+    }
+
+    /**
+     * Capture the position in a snapshot packed into a long: the two masks in bits 0 to 47, the tokens to
+     * set of each color in bits 48 to 55, the side to move in bit 56 and the game state in bits 57 and 58.
+     * The tokens on board and the hash are derived from the rest when the snapshot is restored.
+     * @return the packed snapshot
+     */
+    public long toSnapshot() {
+        return (long) masks[0]
+                | (long) masks[1] << 24
+                | (long) tokensToSet[0] << 48
+                | (long) tokensToSet[1] << 52
+                | (long) sideToMove << 56
+                | (long) gameState.ordinal() << 57;
+    }
+
+    /**
+     * Restore a position captured by toSnapshot
+     * @param snapshot the packed snapshot
+     */
+    public void restoreSnapshot(long snapshot) {
+        masks[0] = (int) snapshot & ALL_SQUARES;
+        masks[1] = (int) (snapshot >>> 24) & ALL_SQUARES;
+        tokensToSet[0] = (int) (snapshot >>> 48) & 0xF;
+        tokensToSet[1] = (int) (snapshot >>> 52) & 0xF;
+        tokensOnBoard[0] = Integer.bitCount(masks[0]);
+        tokensOnBoard[1] = Integer.bitCount(masks[1]);
+        sideToMove = (int) (snapshot >>> 56) & 1;
+        gameState = GAME_STATES[(int) (snapshot >>> 57) & 0x3];
+        hash = computeHash();
+        undoCount = 0;
+    }
+
+    /**
+     * Copy the position of another bitboard into this bitboard
+     * @param other the bitboard to copy from
+     */
+    public void copyFrom(Bitboard other) {
+        masks[0] = other.masks[0];
+        masks[1] = other.masks[1];
+        tokensToSet[0] = other.tokensToSet[0];
+        tokensToSet[1] = other.tokensToSet[1];
+        tokensOnBoard[0] = other.tokensOnBoard[0];
+        tokensOnBoard[1] = other.tokensOnBoard[1];
+        sideToMove = other.sideToMove;
+        gameState = other.gameState;
+        hash = other.hash;
+        undoCount = 0;
+    }
+
+    /**
+     * Retrieve the mask of the squares occupied by a token color
+     * @param tokenColor the token color
+     * @return an integer mask of the occupied squares
+     */
+    public int getMask(TokenColor tokenColor) {
+        return masks[tokenColor.ordinal()];
+    }
+
+    /**
+     * Retrieve the mask of all occupied squares
+     * @return an integer mask of the occupied squares
+     */
+    public int getOccupiedMask() {
+        return masks[0] | masks[1];
+    }
+
+    /**
+     * Retrieve the mask of all empty squares
+     * @return an integer mask of the empty squares
+     */
+    public int getEmptyMask() {
+        return ~(masks[0] | masks[1]) & ALL_SQUARES;
+    }
+
+    /**
+     * Retrieve the token color on a square
+     * @param square the index of the square
+     * @return the token color on the square, or null if the square is empty
+     */
+    public TokenColor getTokenColor(int square) {
+        int bit = 1 << square;
+        if ((masks[0] & bit) != 0) {
+            return COLORS[0];
+        }
+        if ((masks[1] & bit) != 0) {
+            return COLORS[1];
+        }
+        return null;
+    }
+
+    /**
+     * Retrieve the number of tokens to set of a token color
+     * @param tokenColor the token color
+     * @return an integer represents the number of tokens to set
+     */
+    public int getTokensToSet(TokenColor tokenColor) {
+        return tokensToSet[tokenColor.ordinal()];
+    }
+
+    /**
+     * Setter for the number of tokens to set of a token color
+     * @param tokenColor the token color
+     * @param count the number of tokens to set
+     */
+    public void setTokensToSet(TokenColor tokenColor, int count) {
+        int color = tokenColor.ordinal();
+        hash ^= Zobrist.tokensToSetKey(color, tokensToSet[color]) ^ Zobrist.tokensToSetKey(color, count);
+        tokensToSet[color] = count;
+    }
+
+    /**
+     * Retrieve the number of tokens on board of a token color
+     * @param tokenColor the token color
+     * @return an integer represents the number of tokens on board
+     */
+    public int getTokensOnBoard(TokenColor tokenColor) {
+        return tokensOnBoard[tokenColor.ordinal()];
+    }
+
+    /**
+     * Retrieve the side to move
+     * @return the token color of the side to move
+     */
+    public TokenColor getSideToMove() {
+        return COLORS[sideToMove];
+    }
+
+    /**
+     * Setter for the side to move
+     * @param tokenColor the token color of the side to move
+     */
+    public void setSideToMove(TokenColor tokenColor) {
+        if (sideToMove != tokenColor.ordinal()) {
+            sideToMove = tokenColor.ordinal();
+            hash ^= Zobrist.blackToMoveKey();
+        }
+    }
+
+    /**
+     * Retrieve the game state of the side to move
+     * @return the game state
+     */
+    public GameState getGameState() {
+        return gameState;
+    }
+
+    /**
+     * Setter for the game state of the side to move
+     * @param gameState the game state
+     */
+    public void setGameState(GameState gameState) {
+        hash ^= Zobrist.gameStateKey(this.gameState) ^ Zobrist.gameStateKey(gameState);
+        this.gameState = gameState;
+    }
+
+    /**
+     * Infer the game state of the side to move from the token counters
+     * @return SET while the side to move has tokens to set, JUMP when it has three tokens left, else MOVE
+     */
+    public GameState inferGameState() {
+        if (tokensToSet[sideToMove] > 0) {
+            return GameState.SET;
+        }
+        if (tokensOnBoard[sideToMove] == 3) {
+            return GameState.JUMP;
+        }
+        return GameState.MOVE;
+    }
+
+    /**
+     * Retrieve the mask of all the squares that are part of a mill of a token color
+     * @param tokenColor the token color
+     * @return an integer mask of the squares in a mill
+     */
+    public int getMillMask(TokenColor tokenColor) {
+        return BoardTopology.getSquaresInMills(masks[tokenColor.ordinal()]);
+    }
+
+    /**
+     * Determine if a square is part of a mill of a token color
+     * @param square the index of the square
+     * @param tokenColor the token color
+     * @return true if the square is in a mill, else false
+     */
+    public boolean isMillAt(int square, TokenColor tokenColor) {
+        return BoardTopology.isMillAt(masks[tokenColor.ordinal()], square);
+    }
+
+    /**
+     * Determine if there is any mill of a token color on the board
+     * @param tokenColor the token color
+     * @return true if a mill exists, else false
+     */
+    public boolean hasMill(TokenColor tokenColor) {
+        return getMillMask(tokenColor) != 0;
+    }
+
+    /**
+     * Retrieve the mask of the tokens of a token color that can be removed, i.e. the ones not in a mill
+     * @param tokenColor the token color of the tokens to be removed
+     * @return an integer mask of the removable squares
+     */
+    public int getRemovableMask(TokenColor tokenColor) {
+        return masks[tokenColor.ordinal()] & ~getMillMask(tokenColor);
+    }
+
+    /**
+     * Determine if any token of a token color can be removed
+     * @param tokenColor the token color of the tokens to be removed
+     * @return true if has removable token, else false
+     */
+    public boolean hasRemovableToken(TokenColor tokenColor) {
+        return getRemovableMask(tokenColor) != 0;
+    }
+
+    /**
+     * Retrieve the mask of the neighbors of a square
+     * @param square the index of the square
+     * @return an integer mask of the neighbors
+     */
+    public int getNeighborMask(int square) {
+        return BoardTopology.getNeighborMask(square);
+    }
+
+    /**
+     * Retrieve the mask of the tokens of a token color that have at least one empty neighbor
+     * @param tokenColor the token color
+     * @return an integer mask of the movable squares
+     */
+    public int getMovableMask(TokenColor tokenColor) {
+        int empty = getEmptyMask();
+        int remaining = masks[tokenColor.ordinal()];
+        int movable = 0;
+        while (remaining != 0) {
+            int square = Integer.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            if ((BoardTopology.getNeighborMask(square) & empty) != 0) {
+                movable |= 1 << square;
+            }
+        }
+        return movable;
+    }
+
+    /**
+     * Retrieve the number of adjacent moves available to a token color
+     * @param tokenColor the token color
+     * @return an integer represents the mobility
+     */
+    public int getMobility(TokenColor tokenColor) {
+        int empty = getEmptyMask();
+        int remaining = masks[tokenColor.ordinal()];
+        int mobility = 0;
+        while (remaining != 0) {
+            int square = Integer.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            mobility += Integer.bitCount(BoardTopology.getNeighborMask(square) & empty);
+        }
+        return mobility;
+    }
+
+    /**
+     * Determine if a token color has at least one adjacent move
+     * @param tokenColor the token color
+     * @return true if there is at least one legal move, else false
+     */
+    public boolean hasLegalMove(TokenColor tokenColor) {
+        return getMovableMask(tokenColor) != 0;
+    }
+}
@@ -23,50 +23,42 @@ public class Board {
     private static final int NUM_OF_NODE_TRIPLETS = 16;
 
     /**
-     * an integer represents the number of rings on the board
-     */
-    private static final int NUM_OF_RINGS = 3;
-
-    /**
-     * an integer represents the number of node triplets in a ring on the board
-     */
-    private static final int NUM_OF_NODE_TRIPLETS_IN_A_RING = 4;
-
-    /**
-     * an integer represents the number of node triplets across ring on the board
+     * an Array List to stores the Observer instances
      */
-    private static final int NUM_OF_NODE_TRIPLETS_ACROSS_RINGS = 4;
+    private List<Observer> observers = new ArrayList<>();
 
     /**
-     * an integer represents the distance between nodes on the board
+     * a List to stores the NodeTriplet instances
      */
-    private static int distBetweenNodes = 3;
+    private NodeTriplet[] nodeTriplets;
 
     /**
-     * an integer represents the node triplet index
+     * an array to stores the Node instances indexed by their index on board
      */
-    private static int nodeTripletIndex = 0;
+    private Node[] nodes;
 
     /**
-     * an Array List to stores the Observer instances
+     * instance of the Bitboard class that holds the tokens on the nodes
      */
-    private List<Observer> observers = new ArrayList<>();
+    private Bitboard bitboard;
 
     /**
-     * a List to stores the NodeTriplet instances
+     * an integer represents the index of the selected node, or Move.NONE if no node is selected
      */
-    private NodeTriplet[] nodeTriplets;
+    private int selectedSquare = Move.NONE;
 
     /**
-     * instance of the Node class to indicate the selected node
+     * an integer mask of the highlighted nodes
      */
-    private Node selectedNode;
+    private int highlightMask;
 
     /**
      * Constructor
      */
     public Board() {
+        bitboard = new Bitboard();
         nodeTriplets = new NodeTriplet[NUM_OF_NODE_TRIPLETS];
+        nodes = new Node[Bitboard.NUM_OF_SQUARES];
         setupNodeTriplets();
     }
 
@@ -88,136 +80,84 @@ public class Board {
     }
 
     /**
-     * Set up the node triplets on the board
+     * Set up the nodes and node triplets on the board, as views of the shared BoardTopology
      */
     private void setupNodeTriplets() {
-        // within ring
-        for (int i = 0; i < NUM_OF_RINGS; i++) {
-
-            // create top left node
-            Node topLeft = new Node(i, i);
-
-            // create temp node to hold last node in previous node triplet
-            Node temp = null;
-
-            for (int j = 0; j < NUM_OF_NODE_TRIPLETS_IN_A_RING; j++) {
-                // create node triplet
-                nodeTriplets[nodeTripletIndex] = new NodeTriplet();
-
-                // create 3 nodes
-                Node first, second, third;
-
-                // handle first node
-                // at top of the ring
-                if (temp == null) {
-                    first = topLeft;
-                } else {
-                    // other sides of the ring
-                    first = temp;
-                }
-
-                // handle second node
-                second = createNode(j, first);
-
-                // handle third node
-                // at left of the ring
-                if (j == NUM_OF_NODE_TRIPLETS_IN_A_RING - 1) {
-                    third = topLeft;
-                } else {
-                    third = createNode(j, second);
-                }
-
-                // insert 3 nodes into node triplet
-                nodeTriplets[nodeTripletIndex]. insertNodes(first, second, third);
-                addNeighbors(second, first);
-                addNeighbors(second, third);
-
-                // update temp and node triplet index
-                temp = third;
-                nodeTripletIndex++;
-            }
-
-            // decrement dist
-            distBetweenNodes--;
+        for (int square = 0; square < nodes.length; square++) {
+            nodes[square] = new Node(this, square);
         }
+        for (int millIndex = 0; millIndex < nodeTriplets.length; millIndex++) {
+            nodeTriplets[millIndex] = new NodeTriplet(this, millIndex);
+        }
+    }
 
-        // across rings
-        int outerIndex = 0, middleIndex = 4, innerIndex = 8;
-        for (int i = 0; i < NUM_OF_NODE_TRIPLETS_ACROSS_RINGS; i++) {
-
-            // create node triplet
-            nodeTriplets[nodeTripletIndex] = new NodeTriplet();
+    /**
+     * Reset the board's tokens, selection and highlights. This method is called when the user decided to
+     * perform a rematch.
+     */
+    public void resetBoard() {
+        bitboard.reset();
+        selectedSquare = Move.NONE;
+        highlightMask = 0;
+    }
 
-            // retrieve existing nodes
-            Node first = nodeTriplets[outerIndex].getSecondNode();
-            Node second = nodeTriplets[middleIndex].getSecondNode();
-            Node third = nodeTriplets[innerIndex].getSecondNode();
+    /**
+     * Return the nodeTriplets of this Board instance
+     * @return a list of NodeTriplet instance
+     */
+    public NodeTriplet[] getNodeTriplets() {
+        return nodeTriplets;
+    }
 
-            // insert 3 nodes into node triplet
-            nodeTriplets[nodeTripletIndex].insertNodes(first, second, third);
-            addNeighbors(second, first);
-            addNeighbors(second, third);
+    /**
+     * Return the bitboard of this Board instance
+     * @return a Bitboard instance
+     */
+    public Bitboard getBitboard() {
+        return bitboard;
+    }
 
-            // update index
-            nodeTripletIndex++;
-            outerIndex++;
-            middleIndex++;
-            innerIndex++;
-        }
+    /**
+     * Return the 64-bit Zobrist hash of the position on this Board instance. It covers the tokens on the
+     * nodes, the side to move, the game state and the number of tokens each player has left to set.
+     * @return a long represents the hash of the position
+     */
+    public long getHash() {
+        return bitboard.getHash();
     }
 
     /**
-     * Create a node based on given direction
-     * @param direction an integer to represents the direction
-     * @param prevNode a Node instance to indicate the previous node
-     * @return the new node created
+     * Setter of the side to move on the bitboard
+     * @param tokenColor the token color of the player to move
      */
-    private Node createNode(int direction, Node prevNode) {
-        switch (direction) {
-            // 0 - right
-            // 1 - bottom
-            // 2 - left
-            // 3 - top
-
-            case 0:
-                return new Node(prevNode.getX() + distBetweenNodes, prevNode.getY());
-            case 1:
-                return new Node(prevNode.getX(), prevNode.getY() + distBetweenNodes);
-            case 2:
-                return new Node(prevNode.getX() - distBetweenNodes, prevNode.getY());
-            case 3:
-                return new Node(prevNode.getX(), prevNode.getY() - distBetweenNodes);
-            default:
-                return null;
-        }
+    public void setSideToMove(TokenColor tokenColor) {
+        bitboard.setSideToMove(tokenColor);
     }
 
     /**
-     * Add each node to others neighbor list
-     * @param first a Node instance
-     * @param second a Node instance
+     * Record on the bitboard that a player has set a token onto a node
+     * @param node the node where the token is set
+     * @param tokenColor the token color of the player
      */
-    private void addNeighbors(Node first, Node second) {
-        first.addNeighbor(second);
-        second.addNeighbor(first);
+    public void placeToken(Node node, TokenColor tokenColor) {
+        node.setTokenColor(tokenColor);
+        bitboard.setTokensToSet(tokenColor, bitboard.getTokensToSet(tokenColor) - 1);
     }
 
     /**
-     * Reset the board's node triplet. This method is called when the user decided to perform a rematch.
+     * Make a move on the board, so that it can be taken back with unmakeMove. This does not notify the
+     * observers, so a search or a rollout can walk many positions in place.
+     * @param move the packed move, which must be legal in the current position
      */
-    public void resetBoard() {
-        distBetweenNodes = 3;
-        nodeTripletIndex = 0;
-        Node.resetIndexOnBoardCounter();
-        setupNodeTriplets();
+    public void makeMove(int move) {
+        bitboard.makeMove(move);
     }
 
     /**
-     * Return the nodeTriplets of this Board instance
-     * @return a list of NodeTriplet instance
+     * Take back the last move made with makeMove
      */
-    public NodeTriplet[] getNodeTriplets() {
-        return nodeTriplets;
+    public void unmakeMove() {
+        bitboard.unmakeMove();
     }
 
     /**
@@ -225,7 +165,7 @@ public class Board {
      * @return a Node instance
      */
     public Node getSelectedNode() {
-        return selectedNode;
+        return selectedSquare == Move.NONE ? null : nodes[selectedSquare];
     }
 
     /**
@@ -233,7 +173,29 @@ public class Board {
      * @param node the Node instance that represents the selected node
      */
     public void setSelectedNode(Node node) {
-        this.selectedNode = node;
+        this.selectedSquare = node == null ? Move.NONE : node.getIndexOnBoard();
+    }
+
+    /**
+     * Determine if a node is highlighted
+     * @param index an integer represents the index of the node
+     * @return true if the node is highlighted, else false
+     */
+    public boolean isHighlighted(int index) {
+        return (highlightMask & (1 << index)) != 0;
+    }
+
+    /**
+     * Highlight a node or remove its highlight
+     * @param index an integer represents the index of the node
+     * @param highlighted true to highlight the node, else false
+     */
+    public void setHighlighted(int index, boolean highlighted) {
+        if (highlighted) {
+            highlightMask |= 1 << index;
+        } else {
+            highlightMask &= ~(1 << index);
+        }
     }
 
 
@@ -244,22 +206,16 @@ public class Board {
      * @return true if mill exists, else false
      */
     public boolean isMillExists(Node node, Player player) {
-        for (NodeTriplet nodeTriplet : nodeTriplets) {
-            if (nodeTriplet.getPlayerColorIfMill() == player.getTokenColor() &&
-                nodeTriplet.containsNode(node)) {
-                return true;
-            }
-        }
-        return false;
+        return bitboard.isMillAt(node.getIndexOnBoard(), player.getTokenColor());
     }
 
+    /**
+     * Verify if any mill of the player exists on the board
+     * @param player the player to be checked
+     * @return true if mill exists, else false
+     */
     public boolean isMillOnBoard(Player player){
-        for (NodeTriplet nodeTriplet : nodeTriplets) {
-            if (nodeTriplet.getPlayerColorIfMill() == player.getTokenColor()) {
-                return true;
-            }
-        }
-        return false;
+        return bitboard.hasMill(player.getTokenColor());
     }
 
     /**
@@ -269,21 +225,7 @@ public class Board {
      * @return true if has removable token, else false
      */
     public boolean hasRemovableToken(Player currentPlayer) {
-        // retrieve opponent player
-        Player opponent = getOpponentPlayer(currentPlayer);
-
-        // determine if there is any token removable from opponent
-        for (NodeTriplet nodeTriplet : nodeTriplets) {
-            for (Node node : nodeTriplet.getNodes()) {
-                if (node.getTokenColor() == opponent.getTokenColor()) {
-                    // verify if opponent token is in mill
-                    if (!isMillExists(node, opponent)) {
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
+        return bitboard.hasRemovableToken(currentPlayer.getTokenColor().opposite());
     }
 
     /**
@@ -324,18 +266,24 @@ public class Board {
      * @return the Node instance represents the node at a given index
      */
     public Node getNodeFromIndex(int index) {
-        for (NodeTriplet nodeTriplet : nodeTriplets) {
-            if (nodeTriplet.getFirstNode().getIndexOnBoard() == index) {
-                return nodeTriplet.getFirstNode();
-            }
-            if (nodeTriplet.getSecondNode().getIndexOnBoard() == index) {
-                return nodeTriplet.getSecondNode();
-            }
-            if (nodeTriplet.getThirdNode().getIndexOnBoard() == index) {
-                return nodeTriplet.getThirdNode();
-            }
+        if (index < 0 || index >= nodes.length) {
+            return null;
         }
-        return null;
+        return nodes[index];
+    }
+
+    /**
+     * Retrieve the nodes whose index is set in a given mask
+     * @param mask an integer mask of node indexes
+     * @return a list of the Node instances in the mask, in index order
+     */
+    public ArrayList<Node> getNodesFromMask(int mask) {
+        ArrayList<Node> result = new ArrayList<>(Integer.bitCount(mask));
+        while (mask != 0) {
+            result.add(nodes[Integer.numberOfTrailingZeros(mask)]);
+            mask &= mask - 1;
+        }
+        return result;
     }
 
     /**
@@ -344,34 +292,17 @@ public class Board {
      * @return true if the node is removed, else false
      */
     public boolean removeTokenFromIndex(int index) {
-        for (NodeTriplet nodeTriplet : nodeTriplets) {
-            if (nodeTriplet.getFirstNode().getIndexOnBoard() == index) {
-                nodeTriplet.getFirstNode().setTokenColor(null);
-                notifyObservers();
-                return true;
-            }
-            if (nodeTriplet.getSecondNode().getIndexOnBoard() == index) {
-                nodeTriplet.getSecondNode().setTokenColor(null);
-                notifyObservers();
-                return true;
-            }
-            if (nodeTriplet.getThirdNode().getIndexOnBoard() == index) {
-                nodeTriplet.getThirdNode().setTokenColor(null);
-                notifyObservers();
-                return true;
-            }
+        Node node = getNodeFromIndex(index);
+        if (node == null) {
+            return false;
         }
-        return false;
+        node.setTokenColor(null);
+        notifyObservers();
+        return true;
     }
 
     // reset selected nodes from being highlighted
     public void resetSelectedNodes() {
-        for (NodeTriplet nodeTriplet : nodeTriplets) {
-            for (Node node : nodeTriplet.getNodes()) {
-                if (node.isSelected()) {
-                    node.setSelected(false);
-                }
-            }
-        }
+        highlightMask = 0;
     }
 }
@@ -0,0 +1,163 @@
+package model;
+
+/**
+ * The BoardSymmetry class holds the 16 symmetries of the board, the permutations of the squares that keep
+ * the adjacency and the mills: the 4 rotations, each with or without a reflection, each with or without
+ * swapping the inner and the outer rings. They are derived from the coordinates of the squares in
+ * BoardTopology: a rotation or a reflection moves the coordinates around the center, and the ring swap keeps
+ * the direction of a square from the center while moving it from the ring at distance d to the ring at
+ * distance 4 - d. A symmetry maps a mask with three table lookups, one per byte of the mask.
+ */
+public final class BoardSymmetry {
+    /**
+     * an integer represents the number of symmetries, the first one being the identity
+     */
+    public static final int NUM_OF_SYMMETRIES = 16;
+
+    /**
+     * an integer represents the coordinate of the center of the board, in grid units
+     */
+    private static final int CENTER = 3;
+
+    /**
+     * an integer represents the number of bytes of a mask of squares
+     */
+    private static final int NUM_OF_BYTES = 3;
+
+    /**
+     * an array of the image of every square under every symmetry, indexed by symmetry * NUM_OF_SQUARES + square
+     */
+    private static final int[] IMAGES = new int[NUM_OF_SYMMETRIES * BoardTopology.NUM_OF_SQUARES];
+
+    /**
+     * an array of the image of every value of every byte of a mask under every symmetry, indexed by
+     * (symmetry * NUM_OF_BYTES + byte) * 256 + value
+     */
+    private static final int[] BYTE_IMAGES = new int[NUM_OF_SYMMETRIES * NUM_OF_BYTES * 256];
+
+    static {
+        // the square at every coordinate of the grid
+        int size = 2 * CENTER + 1;
+        int[] squareAt = new int[size * size];
+        for (int square = 0; square < BoardTopology.NUM_OF_SQUARES; square++) {
+            squareAt[BoardTopology.getY(square) * size + BoardTopology.getX(square)] = square;
+        }
+
+        for (int symmetry = 0; symmetry < NUM_OF_SYMMETRIES; symmetry++) {
+            for (int square = 0; square < BoardTopology.NUM_OF_SQUARES; square++) {
+                int x = BoardTopology.getX(square) - CENTER;
+                int y = BoardTopology.getY(square) - CENTER;
+                if ((symmetry & 8) != 0) {
+                    // the same direction on the swapped ring
+                    int distance = Math.max(Math.abs(x), Math.abs(y));
+                    x = Integer.signum(x) * (CENTER + 1 - distance);
+                    y = Integer.signum(y) * (CENTER + 1 - distance);
+                }
+                if ((symmetry & 4) != 0) {
+                    x = -x;
+                }
+                for (int rotation = 0; rotation < (symmetry & 3); rotation++) {
+                    int rotated = -y;
+                    y = x;
+                    x = rotated;
+                }
+                IMAGES[symmetry * BoardTopology.NUM_OF_SQUARES + square] = squareAt[(y + CENTER) * size + x + CENTER];
+            }
+
+            // a symmetry must keep the board as it is
+            for (int square = 0; square < BoardTopology.NUM_OF_SQUARES; square++) {
+                if (transformBySquares(symmetry, BoardTopology.getNeighborMask(square))
+                        != BoardTopology.getNeighborMask(getImage(symmetry, square))) {
+                    throw new IllegalStateException("The symmetry " + symmetry + " does not keep the adjacency");
+                }
+            }
+
+            for (int part = 0; part < NUM_OF_BYTES; part++) {
+                for (int value = 0; value < 256; value++) {
+                    BYTE_IMAGES[(symmetry * NUM_OF_BYTES + part) * 256 + value] =
+                            transformBySquares(symmetry, value << (8 * part));
+                }
+            }
+        }
+    }
+
+    /**
+     * Constructor
+     */
+    private BoardSymmetry() {
+    }
+
+    /**
+     * Retrieve the image of a square under a symmetry
+     * @param symmetry the symmetry, from 0 to NUM_OF_SYMMETRIES - 1
+     * @param square the index of the square
+     * @return the index of the image of the square
+     */
+    public static int getImage(int symmetry, int square) {
+        return IMAGES[symmetry * BoardTopology.NUM_OF_SQUARES + square];
+    }
+
+    /**
+     * Map a mask square by square, to fill the tables
+     * @param symmetry the symmetry
+     * @param mask an integer mask of squares
+     * @return the mask of the images of the squares
+     */
+    private static int transformBySquares(int symmetry, int mask) {
+        int result = 0;
+        for (int squares = mask; squares != 0; squares &= squares - 1) {
+            result |= 1 << getImage(symmetry, Integer.numberOfTrailingZeros(squares));
+        }
+        return result;
+    }
+
+    /**
+     * Retrieve the image of a mask under a symmetry
+     * @param symmetry the symmetry, from 0 to NUM_OF_SYMMETRIES - 1
+     * @param mask an integer mask of squares
+     * @return the mask of the images of the squares
+     */
+    public static int transform(int symmetry, int mask) {
+        int base = symmetry * NUM_OF_BYTES * 256;
+        return BYTE_IMAGES[base + (mask & 0xFF)]
+                | BYTE_IMAGES[base + 256 + (mask >>> 8 & 0xFF)]
+                | BYTE_IMAGES[base + 512 + (mask >>> 16 & 0xFF)];
+    }
+
+    /**
+     * Retrieve the smallest image of a mask over all the symmetries
+     * @param mask an integer mask of squares
+     * @return the canonical mask, the same for every image of the mask
+     */
+    public static int canonicalize(int mask) {
+        int best = mask;
+        for (int symmetry = 1; symmetry < NUM_OF_SYMMETRIES; symmetry++) {
+            best = Math.min(best, transform(symmetry, mask));
+        }
+        return best;
+    }
+
+    /**
+     * Retrieve the canonical image of a pair of masks, e.g. the tokens of the side to move and those of the
+     * opponent: the image with the smallest first mask, and among those the smallest second mask
+     * @param first the first mask
+     * @param second the second mask
+     * @return the canonical first mask in the low 32 bits and the canonical second mask in the high 32 bits,
+     * the same for every image of the pair
+     */
+    public static long canonicalize(int first, int second) {
+        int bestFirst = first;
+        int bestSecond = second;
+        for (int symmetry = 1; symmetry < NUM_OF_SYMMETRIES; symmetry++) {
+            int image = transform(symmetry, first);
+            if (image <= bestFirst) {
+                int secondImage = transform(symmetry, second);
+                if (image < bestFirst || secondImage < bestSecond) {
+                    bestFirst = image;
+                    bestSecond = secondImage;
+                }
+            }
+        }
+        return (bestFirst & 0xFFFFFFFFL) | (long) bestSecond << 32;
+    }
+}
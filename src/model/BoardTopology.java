@@ -0,0 +1,319 @@
+package model;
+
+/**
+ * The BoardTopology class holds the geometry of the board, compiled once into static immutable tables
+ * shared by every board: the coordinates of the squares, the lines and the adjacency. The squares are
+ * indexed in the same order as the nodes of the Board class, and the mills in the same order as its node
+ * triplets, so a node or node triplet only needs its index to look up the rest.
+ * 0----------1---------2
+ * |  8-------9------10 |
+ * |  |  16--17--18  |  |
+ * 7  15 23      19  11 3
+ * |  |  22--21--20  |  |
+ * |  14-----13------12 |
+ * 6----------5---------4
+ */
+public final class BoardTopology {
+    /**
+     * an integer represents the number of squares on the board
+     */
+    public static final int NUM_OF_SQUARES = 24;
+
+    /**
+     * an integer represents the number of mills (lines of three squares) on the board
+     */
+    public static final int NUM_OF_MILLS = 16;
+
+    /**
+     * an integer represents the number of rings on the board
+     */
+    private static final int NUM_OF_RINGS = 3;
+
+    /**
+     * an integer represents the number of squares in a ring on the board
+     */
+    private static final int NUM_OF_SQUARES_IN_A_RING = 8;
+
+    /**
+     * an integer represents the number of mills a square belongs to
+     */
+    private static final int NUM_OF_MILLS_PER_SQUARE = 2;
+
+    /**
+     * an integer represents the number of squares in a mill
+     */
+    private static final int NUM_OF_SQUARES_PER_MILL = 3;
+
+    /**
+     * an integer represents the distance between the squares of the outer ring, each inner ring is one closer
+     */
+    private static final int OUTER_RING_DISTANCE = 3;
+
+    /**
+     * an array of the x coordinates of the squares, in grid units
+     */
+    private static final int[] SQUARE_X = new int[NUM_OF_SQUARES];
+
+    /**
+     * an array of the y coordinates of the squares, in grid units
+     */
+    private static final int[] SQUARE_Y = new int[NUM_OF_SQUARES];
+
+    /**
+     * an array of the three squares of each mill, stored from 3 * mill to 3 * mill + 2
+     */
+    private static final int[] MILL_SQUARES = new int[NUM_OF_MILLS * NUM_OF_SQUARES_PER_MILL];
+
+    /**
+     * an array of masks, one for each mill
+     */
+    private static final int[] MILL_MASKS = new int[NUM_OF_MILLS];
+
+    /**
+     * an array of the two mill indexes each square belongs to, stored at 2 * square and 2 * square + 1
+     */
+    private static final int[] SQUARE_MILLS = new int[NUM_OF_SQUARES * NUM_OF_MILLS_PER_SQUARE];
+
+    /**
+     * an array of the two mill masks each square belongs to, stored at 2 * square and 2 * square + 1
+     */
+    private static final int[] SQUARE_MILL_MASKS = new int[NUM_OF_SQUARES * NUM_OF_MILLS_PER_SQUARE];
+
+    /**
+     * an array of masks, one for each square, with the bits of the neighbors of that square set
+     */
+    private static final int[] NEIGHBOR_MASKS = new int[NUM_OF_SQUARES];
+
+    /**
+     * an integer mask of the first square of every ring
+     */
+    private static final int RING_FIRST_MASK = 0x010101;
+
+    /**
+     * an integer mask of every square but the first of each ring
+     */
+    private static final int RING_REST_MASK = 0xFEFEFE;
+
+    /**
+     * an integer mask of the last square of every ring
+     */
+    private static final int RING_LAST_MASK = 0x808080;
+
+    /**
+     * an integer mask of the middle of the sides of the outer and middle rings, adjacent to the next ring in
+     */
+    private static final int INNER_CROSS_MASK = 0x00AAAA;
+
+    /**
+     * an integer mask of the middle of the sides of the middle and inner rings, adjacent to the next ring out
+     */
+    private static final int OUTER_CROSS_MASK = 0xAAAA00;
+
+    static {
+        // clockwise from the top left corner of each ring, the rings getting closer to the center
+        int[] stepX = {0, 1, 2, 2, 2, 1, 0, 0};
+        int[] stepY = {0, 0, 0, 1, 2, 2, 2, 1};
+        for (int ring = 0; ring < NUM_OF_RINGS; ring++) {
+            int distance = OUTER_RING_DISTANCE - ring;
+            for (int position = 0; position < NUM_OF_SQUARES_IN_A_RING; position++) {
+                int square = ring * NUM_OF_SQUARES_IN_A_RING + position;
+                SQUARE_X[square] = ring + stepX[position] * distance;
+                SQUARE_Y[square] = ring + stepY[position] * distance;
+            }
+        }
+
+        int millIndex = 0;
+
+        // within ring, the corners are on even positions and the middle of each side on odd positions
+        for (int ring = 0; ring < NUM_OF_RINGS; ring++) {
+            int base = ring * NUM_OF_SQUARES_IN_A_RING;
+            for (int side = 0; side < NUM_OF_SQUARES_IN_A_RING / 2; side++) {
+                int first = base + 2 * side;
+                int second = base + 2 * side + 1;
+                int third = base + (2 * side + 2) % NUM_OF_SQUARES_IN_A_RING;
+                addMill(millIndex++, first, second, third);
+            }
+        }
+
+        // across rings, through the middle of each side
+        for (int side = 0; side < NUM_OF_SQUARES_IN_A_RING / 2; side++) {
+            int first = 2 * side + 1;
+            addMill(millIndex++, first, first + NUM_OF_SQUARES_IN_A_RING, first + 2 * NUM_OF_SQUARES_IN_A_RING);
+        }
+    }
+
+    /**
+     * Constructor
+     */
+    private BoardTopology() {
+    }
+
+    /**
+     * Register a mill and the adjacency of its squares, the second square is adjacent to the other two
+     * @param millIndex the index of the mill
+     * @param first the first square of the mill
+     * @param second the second square of the mill
+     * @param third the third square of the mill
+     */
+    private static void addMill(int millIndex, int first, int second, int third) {
+        int mask = (1 << first) | (1 << second) | (1 << third);
+        MILL_MASKS[millIndex] = mask;
+        MILL_SQUARES[NUM_OF_SQUARES_PER_MILL * millIndex] = first;
+        MILL_SQUARES[NUM_OF_SQUARES_PER_MILL * millIndex + 1] = second;
+        MILL_SQUARES[NUM_OF_SQUARES_PER_MILL * millIndex + 2] = third;
+        for (int square : new int[] {first, second, third}) {
+            int slot = SQUARE_MILL_MASKS[2 * square] == 0 ? 2 * square : 2 * square + 1;
+            SQUARE_MILLS[slot] = millIndex;
+            SQUARE_MILL_MASKS[slot] = mask;
+        }
+        NEIGHBOR_MASKS[second] |= (1 << first) | (1 << third);
+        NEIGHBOR_MASKS[first] |= 1 << second;
+        NEIGHBOR_MASKS[third] |= 1 << second;
+    }
+
+    /**
+     * Retrieve the x coordinate of a square
+     * @param square the index of the square
+     * @return the x coordinate in grid units
+     */
+    public static int getX(int square) {
+        return SQUARE_X[square];
+    }
+
+    /**
+     * Retrieve the y coordinate of a square
+     * @param square the index of the square
+     * @return the y coordinate in grid units
+     */
+    public static int getY(int square) {
+        return SQUARE_Y[square];
+    }
+
+    /**
+     * Retrieve one of the three squares of a mill, the second one being adjacent to the other two
+     * @param millIndex the index of the mill
+     * @param position 0, 1 or 2
+     * @return the index of the square
+     */
+    public static int getMillSquare(int millIndex, int position) {
+        return MILL_SQUARES[NUM_OF_SQUARES_PER_MILL * millIndex + position];
+    }
+
+    /**
+     * Retrieve the mask of a mill
+     * @param millIndex the index of the mill
+     * @return an integer mask of the three squares of the mill
+     */
+    public static int getMillMask(int millIndex) {
+        return MILL_MASKS[millIndex];
+    }
+
+    /**
+     * Retrieve the index of one of the two mills a square belongs to
+     * @param square the index of the square
+     * @param which 0 for the first mill, 1 for the second mill
+     * @return the index of the mill
+     */
+    public static int getMillOfSquare(int square, int which) {
+        return SQUARE_MILLS[2 * square + which];
+    }
+
+    /**
+     * Retrieve the mask of one of the two mills a square belongs to
+     * @param square the index of the square
+     * @param which 0 for the first mill, 1 for the second mill
+     * @return an integer mask of the three squares of the mill
+     */
+    public static int getMillMaskOfSquare(int square, int which) {
+        return SQUARE_MILL_MASKS[2 * square + which];
+    }
+
+    /**
+     * Retrieve the mask of the neighbors of a square
+     * @param square the index of the square
+     * @return an integer mask of the neighbors
+     */
+    public static int getNeighborMask(int square) {
+        return NEIGHBOR_MASKS[square];
+    }
+
+    /**
+     * Retrieve the union of the neighbors of the squares of a mask, computed with a few shifts: along a ring
+     * the neighbors of a square are the previous and next squares of the ring, and across rings the middle
+     * of each side is adjacent to the middle of the same side on the next ring
+     * @param mask an integer mask of squares
+     * @return an integer mask of the squares adjacent to at least one square of the mask
+     */
+    public static int getNeighborsOf(int mask) {
+        return rotateClockwise(mask) | rotateCounterclockwise(mask) | (mask >>> 8 & INNER_CROSS_MASK)
+                | (mask << 8 & OUTER_CROSS_MASK);
+    }
+
+    /**
+     * Count the pairs of adjacent squares with the first square in one mask and the second in another
+     * @param first an integer mask of the first squares
+     * @param second an integer mask of the second squares
+     * @return the number of adjacent pairs
+     */
+    public static int countAdjacentPairs(int first, int second) {
+        return Integer.bitCount(first & rotateClockwise(second))
+                + Integer.bitCount(first & rotateCounterclockwise(second))
+                + Integer.bitCount(first & second >>> 8 & INNER_CROSS_MASK)
+                + Integer.bitCount(first & second << 8 & OUTER_CROSS_MASK);
+    }
+
+    /**
+     * Move every square of a mask to the next position of its ring
+     * @param mask an integer mask of squares
+     * @return the mask moved by one position clockwise
+     */
+    private static int rotateClockwise(int mask) {
+        return (mask << 1 & RING_REST_MASK) | (mask >>> 7 & RING_FIRST_MASK);
+    }
+
+    /**
+     * Move every square of a mask to the previous position of its ring
+     * @param mask an integer mask of squares
+     * @return the mask moved by one position counterclockwise
+     */
+    private static int rotateCounterclockwise(int mask) {
+        return (mask >>> 1 & ~RING_LAST_MASK) | (mask << 7 & RING_LAST_MASK);
+    }
+
+    /**
+     * Determine if two squares are adjacent
+     * @param first the index of the first square
+     * @param second the index of the second square
+     * @return true if the squares are neighbors, else false
+     */
+    public static boolean isNeighbor(int first, int second) {
+        return (NEIGHBOR_MASKS[first] & (1 << second)) != 0;
+    }
+
+    /**
+     * Determine if a square is part of a complete mill in a mask of tokens
+     * @param mask the mask of the tokens of one color
+     * @param square the index of the square
+     * @return true if the square is in a mill, else false
+     */
+    public static boolean isMillAt(int mask, int square) {
+        int first = SQUARE_MILL_MASKS[2 * square];
+        int second = SQUARE_MILL_MASKS[2 * square + 1];
+        return (mask & first) == first || (mask & second) == second;
+    }
+
+    /**
+     * Retrieve the union of all the complete mills in a mask of tokens
+     * @param mask the mask of the tokens of one color
+     * @return an integer mask of the squares in a mill
+     */
+    public static int getSquaresInMills(int mask) {
+        int mills = 0;
+        for (int millMask : MILL_MASKS) {
+            if ((mask & millMask) == millMask) {
+                mills |= millMask;
+            }
+        }
+        return mills;
+    }
+}
@@ -1,223 +1,158 @@
 package model;
 
 import controller.GameController;
-import observer.Observer;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 public class ComputerPlayer extends Player{
 
+    /**
+     * a reusable buffer for the generated moves
+     */
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+    /**
+     * an integer represents the square to remove chosen together with the last set, move or jump
+     */
+    private int pendingRemoval = Move.NONE;
 
-    private Node executedNode;
+    /**
+     * an integer represents the move chosen in advance by think, or Move.NO_MOVE to choose it on execution
+     */
+    private int plannedMove = Move.NO_MOVE;
 
     /**
-     * Constructor
+     * instance of the SplittableRandom class that the random choices of the player are drawn from
+     */
+    private SplittableRandom random;
+
+    /**
+     * Constructor for a player whose random choices are not reproducible
      * @param tokenColor the token color of the human player
      */
     public ComputerPlayer(TokenColor tokenColor) {
+        this(tokenColor, new SplittableRandom());
+    }
+
+    /**
+     * Constructor for a player whose random choices are drawn from a given stream, so that its games can be
+     * replayed from the seed of the stream
+     * @param tokenColor the token color of the computer player
+     * @param random the stream of the random choices, used by this player only
+     */
+    public ComputerPlayer(TokenColor tokenColor, SplittableRandom random) {
         super(tokenColor);
+        this.random = random;
     }
 
     @Override
     public boolean set() {
-        // retrieve game controller
-        GameController gameController = GameController.getInstance();
-
-        // retrieve node triplets from board
-        Board board = gameController.getBoard();
-        NodeTriplet[] nodeTriplets = board.getNodeTriplets();
-
-        // retrieve empty node
-        ArrayList <Node> emptyNodes = new ArrayList<>();
-        for(NodeTriplet nodeTriplet : board.getNodeTriplets()){
-            for (Node node : nodeTriplet.getNodes()) {
-                if (node.isEmpty()){
-                    emptyNodes.add(node);
-                }
-            }
-        }
-        // get a random empty node from the empty nodes
-        Random rand = new Random();
-        Node randomEmptyNode = emptyNodes.get(rand.nextInt(emptyNodes.size()));
-
-        // get set index
-        int setIndex = randomEmptyNode.getIndexOnBoard();
-
-        // search for node with targeted setIndex
-        for (NodeTriplet nodeTriplet : nodeTriplets) {
-            for (Node node : nodeTriplet.getNodes()) {
-                int boardIndex = node.getIndexOnBoard();
-                boolean indexEmpty = node.isEmpty();
-                if (boardIndex==setIndex && indexEmpty) {
-                    TokenColor playerColor = getTokenColor();
-                    node.setTokenColor(playerColor);
-                    updateTokensCountOnSet();
-                    board.notifyObservers();
-                    executedNode = node;
-                    return true;
-                }
-            }
-        }
-        return false;
+        return playStep(GameState.SET);
     }
 
     @Override
     public boolean move() {
-        // retrieve game controller
-        GameController gameController = GameController.getInstance();
-
-        // retrieve node triplets from board
-        Board board = gameController.getBoard();
-
-        // retrieve occupied node
-        ArrayList <Node> occupiedNodes = new ArrayList<>();
-        for(NodeTriplet nodeTriplet : board.getNodeTriplets()){
-            for (Node node : nodeTriplet.getNodes()) {
-                // if the token color of the node is equal to the current player
-                if(node.getTokenColor() == gameController.getCurrentPlayer().getTokenColor()){
-                    // check if any of the neighbor is empty
-                    for (Node neighbour : node.getNeighbors()){
-                        // if one of them is empty, it means there is at least one empty neighbor
-                        if (neighbour.isEmpty()){
-                            occupiedNodes.add(node);
-                        }
-                    }
-                }
-            }
-        }
-        // get a random empty node from the empty nodes
-        // retrieve src node
-        Random rand = new Random();
-        Node src = occupiedNodes.get(rand.nextInt(occupiedNodes.size()));
-
-        // retrieve all empty neighbor nodes
-        ArrayList <Node> emptyNeighborNodes = new ArrayList<>();
-        for(Node neighbor : src.getNeighbors()){
-            if (neighbor.isEmpty()){
-                emptyNeighborNodes.add(neighbor);
-            }
-        }
-
-        // get a random empty neighbor from the empty neighbors
-        // retrieve dest node
-        Node dest = emptyNeighborNodes.get(rand.nextInt(emptyNeighborNodes.size()));
-
-        boolean destIsEmpty = dest.isEmpty();
-        ArrayList<Node> srcNeighbors = src.getNeighbors();
-        TokenColor srcTokenColor = src.getTokenColor();
-        Player currentPlayer = gameController.getCurrentPlayer();
-        TokenColor currentPlayerTokenColor = currentPlayer.getTokenColor();
-
-        // move token from src to dest
-        if (destIsEmpty && srcNeighbors.contains(dest) && srcTokenColor == currentPlayerTokenColor) {
-            dest.setTokenColor(srcTokenColor);
-            src.setTokenColor(null);
-            board.setSelectedNode(null);
-            board.notifyObservers();
-            executedNode = dest;
-            return true;
-        }
-        return false;
+        return playStep(GameState.MOVE);
     }
 
     @Override
     public boolean remove() {
-
-        // retrieve game controller
-        GameController gameController = GameController.getInstance();
-
-        // retrieve board
-        Board board = gameController.getBoard();
-
-        ArrayList <Node> removableTokens = new ArrayList<>();
-        for(NodeTriplet nodeTriplet : board.getNodeTriplets()){
-            for (Node node : nodeTriplet.getNodes()) {
-                // if the token color of the node is equal to the current player
-                if(node.isOccupied() &&  !(node.getTokenColor() == gameController.getCurrentPlayer().getTokenColor())){
-                    if (!board.isMillExists(node, board.getPlayerFromTokenColor(node.getTokenColor()))){
-                        removableTokens.add(node);
-                    }
-                }
+        // retrieve opponent tokens that are not in a mill
+        Bitboard bitboard = GameController.getInstance().getBoard().getBitboard();
+        int removableMask = bitboard.getRemovableMask(getTokenColor().opposite());
+
+        // prefer the removal chosen together with the move that closed the mill
+        int removeIndex = pendingRemoval;
+        pendingRemoval = Move.NONE;
+        if (removeIndex == Move.NONE || (removableMask & (1 << removeIndex)) == 0) {
+            int move = pickMove(bitboard, GameState.REMOVE);
+            if (move == Move.NO_MOVE) {
+                return false;
             }
+            removeIndex = Move.getRemove(move);
         }
+        return play(Move.remove(removeIndex));
+    }
 
-        // Print all elements in the ArrayList
-//        for (Node element : removableTokens) {
-//            System.out.println("removeeeeeeeeeeeeeeeee" + element);
-//        }
+    @Override
+    public boolean jump() {
+        return playStep(GameState.JUMP);
+    }
 
+    /**
+     * Play the set, move or jump of the planned or picked move. Its removal, if any, is kept for the
+     * REMOVE command that follows.
+     * @param gameState SET, MOVE or JUMP
+     * @return true if the move is played, else false
+     */
+    private boolean playStep(GameState gameState) {
+        // get the planned move, or a legal move
+        int move = takeMove(GameController.getInstance().getBoard().getBitboard(), gameState);
+        if (move == Move.NO_MOVE) {
+            return false;
+        }
+        pendingRemoval = Move.getRemove(move);
+        return play(Move.withRemove(move, Move.NONE));
+    }
 
-        // get a random empty node from the empty nodes
-        // retrieve removeToken node
-        Random rand = new Random();
-        Node removeToken = removableTokens.get(rand.nextInt(removableTokens.size()));
+    /**
+     * Choose a move without changing the board. This can run on a background thread, in which case the
+     * position must be a copy that no other thread modifies.
+     * @param position the position
+     * @param gameState the game state of the side to move
+     * @return the packed move, or Move.NO_MOVE if there is no legal move
+     */
+    public int think(Bitboard position, GameState gameState) {
+        return pickMove(position, gameState);
+    }
 
-        if (removeToken != null) {
-            // get remove index
-            int removeIndex = removeToken.getIndexOnBoard();
-            return board.removeTokenFromIndex(removeIndex);
-        }
+    /**
+     * Ask a think in progress on another thread to return as soon as possible
+     */
+    public void stopThinking() {
+        // picking a random move is immediate
+    }
 
-        return false;
+    /**
+     * Setter of plannedMove, the move returned by think that the next set, move or jump executes
+     * @param plannedMove the packed move, or Move.NO_MOVE
+     */
+    public void setPlannedMove(int plannedMove) {
+        this.plannedMove = plannedMove;
     }
 
-    @Override
-    public boolean jump() {
-        // retrieve game controller
-        GameController gameController = GameController.getInstance();
-
-        // retrieve node triplets from board
-        Board board = gameController.getBoard();
-
-        // retrieve occupied node
-        ArrayList <Node> occupiedNodes = new ArrayList<>();
-        for(NodeTriplet nodeTriplet : board.getNodeTriplets()){
-            for (Node node : nodeTriplet.getNodes()) {
-                // if the token color of the node is equal to the current player
-                if(node.getTokenColor() == gameController.getCurrentPlayer().getTokenColor()){
-                    // check if any of the neighbor is empty
-                    occupiedNodes.add(node);
-                }
-            }
-        }
+    /**
+     * Setter of random, typically a stream split from the stream of a game before the game starts
+     * @param random the stream of the random choices, used by this player only
+     */
+    public void setRandom(SplittableRandom random) {
+        this.random = random;
+    }
 
-        // get a random occupied node from the occupied nodes
-        // retrieve src node
-        Random rand = new Random();
-        Node src = occupiedNodes.get(rand.nextInt(occupiedNodes.size()));
-
-        // retrieve all empty neighbor nodes
-        ArrayList <Node> emptyNodes = new ArrayList<>();
-        for(NodeTriplet nodeTriplet : board.getNodeTriplets()){
-            for (Node node : nodeTriplet.getNodes()) {
-                if (node.isEmpty()){
-                    // check if the node is empty, then add to the array list
-                    emptyNodes.add(node);
-                }
-            }
-        }
+    /**
+     * Take the planned move, or pick one if no move is planned
+     * @param bitboard the position
+     * @param gameState the game state of the side to move
+     * @return the packed move, or Move.NO_MOVE if there is no legal move
+     */
+    private int takeMove(Bitboard bitboard, GameState gameState) {
+        int move = plannedMove;
+        plannedMove = Move.NO_MOVE;
+        return move != Move.NO_MOVE ? move : pickMove(bitboard, gameState);
+    }
 
-        // get a random empty node from the empty nodes
-        // retrieve src node
-        Node dest = emptyNodes.get(rand.nextInt(emptyNodes.size()));
-
-        boolean destIsEmpty = dest.isEmpty();
-        TokenColor srcTokenColor = src.getTokenColor();
-        Player currentPlayer = gameController.getCurrentPlayer();
-        TokenColor currentPlayerTokenColor = currentPlayer.getTokenColor();
-
-        // move token from src to dest
-        if (destIsEmpty && src.getTokenColor() == currentPlayerTokenColor) {
-            dest.setTokenColor(srcTokenColor);
-            src.setTokenColor(null);
-            gameController.getBoard().setSelectedNode(null);
-            gameController.getBoard().notifyObservers();
-            executedNode = dest;
-            return true;
+    /**
+     * Pick a random legal move of the side to move. Subclasses override this to choose moves differently.
+     * @param bitboard the position
+     * @param gameState the game state of the side to move
+     * @return the packed move, or Move.NO_MOVE if there is no legal move
+     */
+    protected int pickMove(Bitboard bitboard, GameState gameState) {
+        int count = MoveGenerator.generate(bitboard, gameState, moves);
+        if (count == 0) {
+            return Move.NO_MOVE;
         }
-        return false;
+        return moves[random.nextInt(count)];
     }
 
     @Override
@@ -225,12 +160,4 @@ public class ComputerPlayer extends Player{
         return true;
     }
 
-    public void setExecutedNode(Node newExecutedNode){
-        executedNode = newExecutedNode;
-    }
-
-    public Node getExecutedNode(){
-        return executedNode;
-    }
-
 }
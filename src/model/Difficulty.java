@@ -0,0 +1,75 @@
+package model;
+
+/**
+ * The Difficulty class is an enumeration of the strengths of the searching computer player. Each strength
+ * limits the depth of the search and the time the computer player may think about a move. Where games
+ * must not depend on the clock, a number of nodes about what the time allows limits the search instead.
+ */
+public enum Difficulty {
+
+    /**
+     * use this constant for a shallow search that answers almost instantly
+     */
+    EASY(2, 200, 1_000_000),
+
+    /**
+     * use this constant for a moderate search
+     */
+    MEDIUM(4, 500, 2_500_000),
+
+    /**
+     * use this constant for a search limited only by its time or node budget
+     */
+    HARD(64, 1000, 5_000_000);
+
+    /**
+     * an integer represents the maximum depth of the search in plies
+     */
+    private final int maxDepth;
+
+    /**
+     * a long represents the time budget of a move in milliseconds
+     */
+    private final long timeBudgetMillis;
+
+    /**
+     * a long represents the number of nodes a search of a move may visit in place of the time budget
+     */
+    private final long nodeBudget;
+
+    /**
+     * Constructor
+     * @param maxDepth the maximum depth of the search in plies
+     * @param timeBudgetMillis the time budget of a move in milliseconds
+     * @param nodeBudget the number of nodes a search of a move may visit in place of the time budget
+     */
+    Difficulty(int maxDepth, long timeBudgetMillis, long nodeBudget) {
+        this.maxDepth = maxDepth;
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.nodeBudget = nodeBudget;
+    }
+
+    /**
+     * Retrieve the maximum depth of the search
+     * @return the maximum depth in plies
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Retrieve the time budget of a move
+     * @return the time budget in milliseconds
+     */
+    public long getTimeBudgetMillis() {
+        return timeBudgetMillis;
+    }
+
+    /**
+     * Retrieve the node budget of a move
+     * @return the number of nodes a search of a move may visit in place of the time budget
+     */
+    public long getNodeBudget() {
+        return nodeBudget;
+    }
+}
@@ -0,0 +1,17 @@
+package model;
+
+/**
+ * The DrawReason class is an enumeration of the rules that end a game in a draw.
+ */
+public enum DrawReason {
+
+    /**
+     * use this constant when the same position has been reached for the third time with the same player to move
+     */
+    REPETITION,
+
+    /**
+     * use this constant when no token has been set or removed for the configured number of plies
+     */
+    NO_MILL
+}
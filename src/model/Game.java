@@ -0,0 +1,474 @@
+package model;
+
+import memento.GameHistory;
+
+/**
+ * The Game class holds the rules of nine men's morris on top of a Bitboard: which moves are legal, how a
+ * move changes the position, when the game switches between SET, MOVE, JUMP and REMOVE, and when a player
+ * has lost. It has no static state and depends on neither the GameController nor Swing, so any number of
+ * games can be played at the same time, with or without a display, each by a single thread.
+ * A set, move or jump that closes a mill leaves the same player to move in the REMOVE state, and the
+ * removal is then played as a move of its own. A move may also carry its removal, as generated by the
+ * MoveGenerator, in which case both are played at once.
+ * Every position reached is recorded in a GameHistory, so moves can be undone and redone.
+ * A game is drawn when a position is reached for the third time with the same player to move, or when no
+ * token has been set or removed for a number of plies. The positions reached since the last token was set
+ * or removed are counted by hash in a LongIntHashMap, which is cleared by every set or removal since the
+ * earlier positions can never occur again, so the check costs a constant time per ply.
+ */
+public class Game {
+    /**
+     * an integer represents the number of positions the history keeps by default
+     */
+    public static final int DEFAULT_HISTORY_CAPACITY = 1024;
+
+    /**
+     * an integer represents the number of times a position must be reached for the game to be drawn
+     */
+    public static final int REPETITION_LIMIT = 3;
+
+    /**
+     * an integer represents the number of plies without a token set or removed after which the game is
+     * drawn by default, i.e. 50 moves of each player
+     */
+    public static final int DEFAULT_NO_MILL_PLY_LIMIT = 100;
+
+    /**
+     * instance of the Bitboard class that holds the position
+     */
+    private final Bitboard bitboard;
+
+    /**
+     * instance of the GameHistory class that keeps the positions reached for undo and redo
+     */
+    private final GameHistory history;
+
+    /**
+     * instance of the TokenColor class that represents the winner, or null while the game goes on
+     */
+    private TokenColor winner;
+
+    /**
+     * a boolean to indicate if the last move closed a mill while every opponent token was in a mill
+     */
+    private boolean removalSkipped;
+
+    /**
+     * instance of the LongIntHashMap class that counts the positions reached, by hash, since the last
+     * token was set or removed
+     */
+    private final LongIntHashMap repetitions = new LongIntHashMap(DEFAULT_NO_MILL_PLY_LIMIT);
+
+    /**
+     * an integer represents the number of plies since the last token was set or removed
+     */
+    private int pliesWithoutMill;
+
+    /**
+     * an integer represents the number of plies without a token set or removed after which the game is drawn
+     */
+    private int noMillPlyLimit = DEFAULT_NO_MILL_PLY_LIMIT;
+
+    /**
+     * instance of the DrawReason class that represents why the game is drawn, or null while it is not
+     */
+    private DrawReason drawReason;
+
+    /**
+     * instance of the Bitboard class used to read the positions of the history, allocated when first needed
+     */
+    private Bitboard scratch;
+
+    /**
+     * Constructor for a game on its own bitboard
+     */
+    public Game() {
+        this(new Bitboard());
+    }
+
+    /**
+     * Constructor for a game on an existing bitboard, which may already hold a position
+     * @param bitboard the bitboard that holds the position
+     */
+    public Game(Bitboard bitboard) {
+        this(bitboard, DEFAULT_HISTORY_CAPACITY);
+    }
+
+    /**
+     * Constructor for a game on an existing bitboard with a history of a given size
+     * @param bitboard the bitboard that holds the position
+     * @param historyCapacity the number of positions the history keeps, the oldest are dropped first
+     */
+    public Game(Bitboard bitboard, int historyCapacity) {
+        this.bitboard = bitboard;
+        history = new GameHistory(historyCapacity);
+        history.record(bitboard.toSnapshot());
+        repetitions.add(bitboard.getHash(), 1);
+    }
+
+    /**
+     * Reset the game to an empty board with white to set
+     */
+    public void reset() {
+        bitboard.reset();
+        winner = null;
+        removalSkipped = false;
+        drawReason = null;
+        pliesWithoutMill = 0;
+        repetitions.clear();
+        repetitions.add(bitboard.getHash(), 1);
+        history.clear();
+        history.record(bitboard.toSnapshot());
+    }
+
+    /**
+     * Generate the legal moves of the player to move. In SET, MOVE and JUMP a move that closes a mill
+     * carries its removal, and in REMOVE every move is a removal.
+     * @param moves the buffer that receives the packed moves, of length MoveGenerator.MAX_MOVES
+     * @return the number of moves, 0 once the game is over
+     */
+    public int generateMoves(int[] moves) {
+        if (isOver()) {
+            return 0;
+        }
+        return MoveGenerator.generate(bitboard, bitboard.getGameState(), moves);
+    }
+
+    /**
+     * Verify if a move is legal for the player to move
+     * @param move the packed move
+     * @return true if the move is legal, else false
+     */
+    public boolean isLegal(int move) {
+        if (isOver() || move == Move.NO_MOVE) {
+            return false;
+        }
+        TokenColor side = bitboard.getSideToMove();
+        int removableMask = bitboard.getRemovableMask(side.opposite());
+
+        // a removal on its own
+        if (bitboard.getGameState() == GameState.REMOVE) {
+            return !Move.hasFrom(move) && !Move.hasTo(move) && Move.hasRemove(move)
+                    && (removableMask & (1 << Move.getRemove(move))) != 0;
+        }
+
+        // a set, move or jump onto an empty square
+        if (!Move.hasTo(move) || (bitboard.getEmptyMask() & (1 << Move.getTo(move))) == 0) {
+            return false;
+        }
+        int own = bitboard.getMask(side);
+        int from = Move.getFrom(move);
+        int to = Move.getTo(move);
+        switch (bitboard.getGameState()) {
+            case SET:
+                if (Move.hasFrom(move)) {
+                    return false;
+                }
+                break;
+            case MOVE:
+                if (!Move.hasFrom(move) || (own & (1 << from)) == 0 || !BoardTopology.isNeighbor(from, to)) {
+                    return false;
+                }
+                break;
+            case JUMP:
+                if (!Move.hasFrom(move) || (own & (1 << from)) == 0) {
+                    return false;
+                }
+                break;
+            default:
+                return false;
+        }
+
+        // a removal can only come with a move that closes a mill
+        if (!Move.hasRemove(move)) {
+            return true;
+        }
+        int ownAfter = (Move.hasFrom(move) ? own & ~(1 << from) : own) | 1 << to;
+        return BoardTopology.isMillAt(ownAfter, to) && (removableMask & (1 << Move.getRemove(move))) != 0;
+    }
+
+    /**
+     * Play a move for the player to move
+     * @param move the packed move
+     * @return true if the move is legal and has been played, else false
+     */
+    public boolean play(int move) {
+        if (!isLegal(move)) {
+            return false;
+        }
+        TokenColor side = bitboard.getSideToMove();
+        removalSkipped = false;
+
+        // a removal ends the turn
+        if (bitboard.getGameState() == GameState.REMOVE) {
+            bitboard.setSquare(Move.getRemove(move), null);
+            endTurn(true);
+            return true;
+        }
+
+        // set, move or jump the token
+        int to = Move.getTo(move);
+        if (Move.hasFrom(move)) {
+            bitboard.setSquare(Move.getFrom(move), null);
+            bitboard.setSquare(to, side);
+        } else {
+            bitboard.placeToken(to, side);
+        }
+
+        // a mill lets the player remove a token, unless every opponent token is in a mill
+        if (bitboard.isMillAt(to, side)) {
+            if (Move.hasRemove(move)) {
+                bitboard.setSquare(Move.getRemove(move), null);
+            } else if (bitboard.hasRemovableToken(side.opposite())) {
+                bitboard.setGameState(GameState.REMOVE);
+                history.record(bitboard.toSnapshot());
+                return true;
+            } else {
+                removalSkipped = true;
+            }
+        }
+        endTurn(!Move.hasFrom(move) || Move.hasRemove(move));
+        return true;
+    }
+
+    /**
+     * Pass the turn to the opponent and record the position reached
+     * @param irreversible true if a token has been set or removed, so no earlier position can occur again
+     */
+    private void endTurn(boolean irreversible) {
+        bitboard.setSideToMove(bitboard.getSideToMove().opposite());
+        bitboard.setGameState(bitboard.inferGameState());
+        updateWinner();
+
+        // count the position reached
+        if (irreversible) {
+            repetitions.clear();
+            pliesWithoutMill = 0;
+        } else {
+            pliesWithoutMill++;
+        }
+        repetitions.add(bitboard.getHash(), 1);
+        updateDraw();
+        history.record(bitboard.toSnapshot());
+    }
+
+    /**
+     * Decide the winner of the position: the player to move loses if left with fewer than three tokens or
+     * without a legal move
+     */
+    private void updateWinner() {
+        TokenColor side = bitboard.getSideToMove();
+        winner = null;
+        if (bitboard.getTokensOnBoard(side) + bitboard.getTokensToSet(side) < 3 || !hasLegalMove()) {
+            winner = side.opposite();
+        }
+    }
+
+    /**
+     * Decide if the position is drawn, which a win takes precedence over
+     */
+    private void updateDraw() {
+        drawReason = null;
+        if (winner != null) {
+            return;
+        }
+        if (repetitions.get(bitboard.getHash()) >= REPETITION_LIMIT) {
+            drawReason = DrawReason.REPETITION;
+        } else if (pliesWithoutMill >= noMillPlyLimit) {
+            drawReason = DrawReason.NO_MILL;
+        }
+    }
+
+    /**
+     * Take back the last move, a removal on its own counting as a move
+     * @return true if a move has been taken back, else false
+     */
+    public boolean undo() {
+        if (!history.canUndo()) {
+            return false;
+        }
+        restore(history.undo());
+        return true;
+    }
+
+    /**
+     * Play again the last move taken back
+     * @return true if a move has been played again, else false
+     */
+    public boolean redo() {
+        if (!history.canRedo()) {
+            return false;
+        }
+        restore(history.redo());
+        return true;
+    }
+
+    /**
+     * Restore a position of the history
+     * @param snapshot the packed snapshot of the position
+     */
+    private void restore(long snapshot) {
+        bitboard.restoreSnapshot(snapshot);
+        removalSkipped = false;
+        updateWinner();
+        countRepetitions();
+        updateDraw();
+    }
+
+    /**
+     * Count again the positions reached since the last token was set or removed, walking the history back
+     * from the current position while the tokens on board and to set stay the same
+     */
+    private void countRepetitions() {
+        if (scratch == null) {
+            scratch = new Bitboard();
+        }
+        int material = getMaterial(bitboard);
+        repetitions.clear();
+        pliesWithoutMill = -1;
+        for (int index = history.getCurrentSize() - 1; index >= 0; index--) {
+            scratch.restoreSnapshot(history.getSnapshot(index));
+            if (getMaterial(scratch) != material) {
+                break;
+            }
+
+            // a position waiting for a removal is not the end of a turn
+            if (scratch.getGameState() != GameState.REMOVE) {
+                repetitions.add(scratch.getHash(), 1);
+                pliesWithoutMill++;
+            }
+        }
+        pliesWithoutMill = Math.max(0, pliesWithoutMill);
+    }
+
+    /**
+     * Pack the number of tokens on board and to set of both players, which only a set or a removal changes
+     * @param position the position
+     * @return an integer that differs between positions with different numbers of tokens
+     */
+    private static int getMaterial(Bitboard position) {
+        return position.getTokensOnBoard(TokenColor.WHITE)
+                | position.getTokensOnBoard(TokenColor.BLACK) << 5
+                | position.getTokensToSet(TokenColor.WHITE) << 10
+                | position.getTokensToSet(TokenColor.BLACK) << 15;
+    }
+
+    /**
+     * Determine if a move can be taken back
+     * @return true if undo is possible, else false
+     */
+    public boolean canUndo() {
+        return history.canUndo();
+    }
+
+    /**
+     * Determine if a move taken back can be played again
+     * @return true if redo is possible, else false
+     */
+    public boolean canRedo() {
+        return history.canRedo();
+    }
+
+    /**
+     * Verify if the player to move has a legal set, move or jump
+     * @return true if there is at least one legal move, else false
+     */
+    private boolean hasLegalMove() {
+        switch (bitboard.getGameState()) {
+            case MOVE:
+                return bitboard.hasLegalMove(bitboard.getSideToMove());
+            case REMOVE:
+                return true;
+            default:
+                return bitboard.getEmptyMask() != 0;
+        }
+    }
+
+    /**
+     * Retrieve the bitboard that holds the position
+     * @return a Bitboard instance
+     */
+    public Bitboard getBitboard() {
+        return bitboard;
+    }
+
+    /**
+     * Retrieve the player to move
+     * @return the token color of the player to move
+     */
+    public TokenColor getSideToMove() {
+        return bitboard.getSideToMove();
+    }
+
+    /**
+     * Retrieve the game state of the player to move
+     * @return the GameState instance
+     */
+    public GameState getGameState() {
+        return bitboard.getGameState();
+    }
+
+    /**
+     * Verify if the game is over
+     * @return true if a player has won, else false
+     */
+    public boolean isOver() {
+        return winner != null || drawReason != null;
+    }
+
+    /**
+     * Retrieve the winner
+     * @return the token color of the winner, or null while the game goes on or once it is drawn
+     */
+    public TokenColor getWinner() {
+        return winner;
+    }
+
+    /**
+     * Verify if the game is drawn
+     * @return true if the game has ended in a draw, else false
+     */
+    public boolean isDraw() {
+        return drawReason != null;
+    }
+
+    /**
+     * Retrieve why the game is drawn
+     * @return the DrawReason instance, or null while the game is not drawn
+     */
+    public DrawReason getDrawReason() {
+        return drawReason;
+    }
+
+    /**
+     * Retrieve the number of plies since the last token was set or removed
+     * @return the number of plies
+     */
+    public int getPliesWithoutMill() {
+        return pliesWithoutMill;
+    }
+
+    /**
+     * Retrieve the number of plies without a token set or removed after which the game is drawn
+     * @return the number of plies
+     */
+    public int getNoMillPlyLimit() {
+        return noMillPlyLimit;
+    }
+
+    /**
+     * Setter of noMillPlyLimit, which applies from the next ply
+     * @param noMillPlyLimit the number of plies without a token set or removed after which the game is drawn
+     */
+    public void setNoMillPlyLimit(int noMillPlyLimit) {
+        this.noMillPlyLimit = noMillPlyLimit;
+    }
+
+    /**
+     * Verify if the last move closed a mill without a removal because every opponent token was in a mill
+     * @return true if the removal was skipped, else false
+     */
+    public boolean isRemovalSkipped() {
+        return removalSkipped;
+    }
+}
@@ -2,8 +2,6 @@ package model;
 
 import controller.GameController;
 
-import java.util.ArrayList;
-
 /**
  * HumanPlayer will inherit the Player class. It will override all the relevant methods, the
  * implementation details are defined here where the user input, clickedNode will be used to navigate
@@ -25,34 +23,11 @@ public class HumanPlayer extends Player {
      */
     @Override
     public boolean set() {
-        // retrieve game controller
-        GameController gameController = GameController.getInstance();
-
-        // retrieve node triplets from board
-        Board board = gameController.getBoard();
-        NodeTriplet[] nodeTriplets = board.getNodeTriplets();
-
         // retrieve clicked node
-        Node clickedNode = gameController.getClickedNode();
+        Node clickedNode = GameController.getInstance().getClickedNode();
 
-        // get set index
-        int setIndex = clickedNode.getIndexOnBoard();
-
-        // search for node with targeted setIndex
-        for (NodeTriplet nodeTriplet : nodeTriplets) {
-            for (Node node : nodeTriplet.getNodes()) {
-                int boardIndex = node.getIndexOnBoard();
-                boolean indexEmpty = node.isEmpty();
-                if (boardIndex==setIndex && indexEmpty) {
-                    TokenColor playerColor = getTokenColor();
-                    node.setTokenColor(playerColor);
-                    updateTokensCountOnSet();
-                    board.notifyObservers();
-                    return true;
-                }
-            }
-        }
-        return false;
+        // set a token on the clicked node
+        return play(Move.set(clickedNode.getIndexOnBoard()));
     }
 
     /**
@@ -61,33 +36,7 @@ public class HumanPlayer extends Player {
      */
     @Override
     public boolean move() {
-        // retrieve game controller
-        GameController gameController = GameController.getInstance();
-
-        // retrieve board
-        Board board = gameController.getBoard();
-
-        // retrieve src and dest node
-        Node src = board.getSelectedNode();
-
-        Node dest = gameController.getClickedNode();
-
-        boolean destIsEmpty = dest.isEmpty();
-        ArrayList<Node> srcNeighbors = src.getNeighbors();
-        TokenColor srcTokenColor = src.getTokenColor();
-        Player currentPlayer = gameController.getCurrentPlayer();
-        TokenColor currentPlayerTokenColor = currentPlayer.getTokenColor();
-
-        // move token from src to dest
-        if (destIsEmpty && srcNeighbors.contains(dest) && srcTokenColor == currentPlayerTokenColor) {
-            dest.setTokenColor(srcTokenColor);
-            src.setTokenColor(null);
-            board.setSelectedNode(null);
-            board.notifyObservers();
-            return true;
-        }
-
-        return false;
+        return moveSelectedToken();
     }
 
     /**
@@ -96,29 +45,11 @@ public class HumanPlayer extends Player {
      */
     @Override
     public boolean remove() {
-        // retrieve game controller
-        GameController gameController = GameController.getInstance();
-
-        // retrieve board
-        Board board = gameController.getBoard();
-
         // retrieve clicked node
-        Node clickedNode = gameController.getClickedNode();
-
-        // get remove index
-        int removeIndex = clickedNode.getIndexOnBoard();
-
-        // node to be removed
-        Node nodeToBeRemoved = board.getNodeFromIndex(removeIndex);
+        Node clickedNode = GameController.getInstance().getClickedNode();
 
-        if (nodeToBeRemoved.isOccupied() &&
-            nodeToBeRemoved.getTokenColor() != getTokenColor() &&
-            !board.isMillExists(nodeToBeRemoved, board.getPlayerFromTokenColor(nodeToBeRemoved.getTokenColor()))) {
-            board.getOpponentPlayer(this).decrementTokensOnBoard();
-            return board.removeTokenFromIndex(removeIndex);
-        }
-
-        return false;
+        // remove the opponent token on the clicked node
+        return play(Move.remove(clickedNode.getIndexOnBoard()));
     }
 
     /**
@@ -127,6 +58,14 @@ public class HumanPlayer extends Player {
      */
     @Override
     public boolean jump() {
+        return moveSelectedToken();
+    }
+
+    /**
+     * Move the token on the selected node to the clicked node, the game decides if it must be adjacent
+     * @return true if the token is moved, else false
+     */
+    private boolean moveSelectedToken() {
         // retrieve game controller
         GameController gameController = GameController.getInstance();
 
@@ -135,15 +74,7 @@ public class HumanPlayer extends Player {
         Node dest = gameController.getClickedNode();
 
         // move token from src to dest
-        if (dest.isEmpty() && src.getTokenColor() == gameController.getCurrentPlayer().getTokenColor()) {
-            dest.setTokenColor(src.getTokenColor());
-            src.setTokenColor(null);
-            gameController.getBoard().setSelectedNode(null);
-            gameController.getBoard().notifyObservers();
-            return true;
-        }
-
-        return false;
+        return play(Move.of(src.getIndexOnBoard(), dest.getIndexOnBoard(), Move.NONE));
     }
 
     /**
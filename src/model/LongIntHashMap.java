@@ -0,0 +1,185 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * The LongIntHashMap class maps long keys, such as position hashes, to int values without boxing. Keys are
+ * kept in open addressing with linear probing in arrays whose length is a power of two, which grow once
+ * half full, and a removed key shifts the keys after it back so that no tombstones are left. Every
+ * operation takes constant expected time and only growing allocates.
+ */
+public class LongIntHashMap {
+    /**
+     * an integer represents the smallest number of slots
+     */
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * a long represents the odd multiplier that spreads the keys over the slots
+     */
+    private static final long MIX = 0x9E3779B97F4A7C15L;
+
+    /**
+     * an array of the keys indexed by slot, valid only where the slot is used
+     */
+    private long[] keys;
+
+    /**
+     * an array of the values indexed by slot
+     */
+    private int[] values;
+
+    /**
+     * an array of booleans to indicate the used slots, since any long can be a key
+     */
+    private boolean[] used;
+
+    /**
+     * an integer represents the number of keys
+     */
+    private int size;
+
+    /**
+     * Constructor
+     * @param expectedSize the number of keys the map holds without growing
+     */
+    public LongIntHashMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < 2 * expectedSize) {
+            capacity *= 2;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Allocate empty arrays of slots
+     * @param capacity the number of slots, a power of two
+     */
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+    }
+
+    /**
+     * Retrieve the value of a key
+     * @param key the key
+     * @return the value of the key, or 0 if the key is absent
+     */
+    public int get(long key) {
+        int slot = find(key);
+        return used[slot] ? values[slot] : 0;
+    }
+
+    /**
+     * Add a number to the value of a key, an absent key counting as 0
+     * @param key the key
+     * @param delta the number to add
+     * @return the new value of the key
+     */
+    public int add(long key, int delta) {
+        int slot = find(key);
+        if (used[slot]) {
+            values[slot] += delta;
+            return values[slot];
+        }
+        if (2 * (size + 1) > keys.length) {
+            grow();
+            slot = find(key);
+        }
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = delta;
+        size++;
+        return delta;
+    }
+
+    /**
+     * Remove a key
+     * @param key the key
+     * @return the value the key had, or 0 if the key was absent
+     */
+    public int remove(long key) {
+        int slot = find(key);
+        if (!used[slot]) {
+            return 0;
+        }
+        int value = values[slot];
+        used[slot] = false;
+        size--;
+
+        // shift back the keys that probed past the freed slot
+        int mask = keys.length - 1;
+        int free = slot;
+        for (int next = (slot + 1) & mask; used[next]; next = (next + 1) & mask) {
+            int home = home(keys[next]);
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                used[free] = true;
+                used[next] = false;
+                free = next;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Remove every key, keeping the slots
+     */
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(used, false);
+            size = 0;
+        }
+    }
+
+    /**
+     * Retrieve the number of keys
+     * @return the number of keys
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Find the slot of a key, or the free slot where it would be added
+     * @param key the key
+     * @return the index of the slot
+     */
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = home(key);
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Retrieve the slot a key probes first
+     * @param key the key
+     * @return the index of the slot
+     */
+    private int home(long key) {
+        return (int) ((key * MIX) >>> 32) & (keys.length - 1);
+    }
+
+    /**
+     * Double the number of slots and add the keys again
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(2 * oldKeys.length);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = find(oldKeys[i]);
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
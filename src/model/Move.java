@@ -0,0 +1,158 @@
+package model;
+
+/**
+ * The Move class packs a move into a single integer so that moves can be generated into reusable integer
+ * buffers without allocating objects. A packed move holds a source square, a destination square and an
+ * optional square of an opponent token to remove, five bits each. A set has no source square, and a
+ * remove on its own has neither a source nor a destination square.
+ */
+public final class Move {
+    /**
+     * an integer represents an absent square in a packed move
+     */
+    public static final int NONE = 31;
+
+    /**
+     * an integer represents the absence of a move, distinct from every packed move
+     */
+    public static final int NO_MOVE = -1;
+
+    /**
+     * an integer represents the number of bits used by each square in a packed move
+     */
+    private static final int SQUARE_BITS = 5;
+
+    /**
+     * an integer mask of the bits used by each square in a packed move
+     */
+    private static final int SQUARE_MASK = (1 << SQUARE_BITS) - 1;
+
+    /**
+     * an integer represents the shift of the destination square in a packed move
+     */
+    private static final int TO_SHIFT = SQUARE_BITS;
+
+    /**
+     * an integer represents the shift of the removed square in a packed move
+     */
+    private static final int REMOVE_SHIFT = 2 * SQUARE_BITS;
+
+    /**
+     * Constructor
+     */
+    private Move() {
+    }
+
+    /**
+     * Pack a move
+     * @param from the source square, or NONE for a set
+     * @param to the destination square, or NONE for a remove on its own
+     * @param remove the square of the opponent token to remove, or NONE
+     * @return the packed move
+     */
+    public static int of(int from, int to, int remove) {
+        return from | (to << TO_SHIFT) | (remove << REMOVE_SHIFT);
+    }
+
+    /**
+     * Pack a set without removal
+     * @param to the square where the token is set
+     * @return the packed move
+     */
+    public static int set(int to) {
+        return of(NONE, to, NONE);
+    }
+
+    /**
+     * Pack a remove on its own
+     * @param remove the square of the opponent token to remove
+     * @return the packed move
+     */
+    public static int remove(int remove) {
+        return of(NONE, NONE, remove);
+    }
+
+    /**
+     * Retrieve the source square of a packed move
+     * @param move the packed move
+     * @return the source square, or NONE
+     */
+    public static int getFrom(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    /**
+     * Retrieve the destination square of a packed move
+     * @param move the packed move
+     * @return the destination square, or NONE
+     */
+    public static int getTo(int move) {
+        return (move >>> TO_SHIFT) & SQUARE_MASK;
+    }
+
+    /**
+     * Retrieve the removed square of a packed move
+     * @param move the packed move
+     * @return the removed square, or NONE
+     */
+    public static int getRemove(int move) {
+        return (move >>> REMOVE_SHIFT) & SQUARE_MASK;
+    }
+
+    /**
+     * Return the same move with a different removed square
+     * @param move the packed move
+     * @param remove the square of the opponent token to remove, or NONE
+     * @return the packed move
+     */
+    public static int withRemove(int move, int remove) {
+        return (move & ~(SQUARE_MASK << REMOVE_SHIFT)) | (remove << REMOVE_SHIFT);
+    }
+
+    /**
+     * Determine if a packed move has a source square
+     * @param move the packed move
+     * @return true if the move has a source square, else false
+     */
+    public static boolean hasFrom(int move) {
+        return getFrom(move) != NONE;
+    }
+
+    /**
+     * Determine if a packed move has a destination square
+     * @param move the packed move
+     * @return true if the move has a destination square, else false
+     */
+    public static boolean hasTo(int move) {
+        return getTo(move) != NONE;
+    }
+
+    /**
+     * Determine if a packed move removes an opponent token
+     * @param move the packed move
+     * @return true if the move removes a token, else false
+     */
+    public static boolean hasRemove(int move) {
+        return getRemove(move) != NONE;
+    }
+
+    /**
+     * Describe a packed move, e.g. "3-4x17" for a move from 3 to 4 removing 17, "9" for a set on 9 and
+     * "x17" for a remove on its own
+     * @param move the packed move
+     * @return a String describing the move
+     */
+    public static String toString(int move) {
+        StringBuilder builder = new StringBuilder();
+        if (hasFrom(move)) {
+            builder.append(getFrom(move)).append('-');
+        }
+        if (hasTo(move)) {
+            builder.append(getTo(move));
+        }
+        if (hasRemove(move)) {
+            builder.append('x').append(getRemove(move));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,162 @@
+package model;
+
+/**
+ * The MoveGenerator class generates the legal moves of the side to move on a Bitboard. Moves are packed
+ * with the Move class and written into a buffer supplied by the caller, so generating moves does not
+ * allocate. A set, move or jump that closes a mill is generated once per removable opponent token, as a
+ * compound move carrying its removal. Every generated move is unique.
+ */
+public final class MoveGenerator {
+    /**
+     * an integer represents an upper bound of the number of legal moves in any position
+     */
+    public static final int MAX_MOVES = 512;
+
+    /**
+     * Constructor
+     */
+    private MoveGenerator() {
+    }
+
+    /**
+     * Generate the legal moves of the side to move in the game state recorded by the bitboard
+     * @param bitboard the position
+     * @param moves the buffer to write the packed moves into, at least MAX_MOVES long
+     * @return the number of moves written
+     */
+    public static int generate(Bitboard bitboard, int[] moves) {
+        return generate(bitboard, bitboard.getGameState(), moves);
+    }
+
+    /**
+     * Generate the legal moves of the side to move in a given game state
+     * @param bitboard the position
+     * @param gameState the game state of the side to move
+     * @param moves the buffer to write the packed moves into, at least MAX_MOVES long
+     * @return the number of moves written
+     */
+    public static int generate(Bitboard bitboard, GameState gameState, int[] moves) {
+        TokenColor side = bitboard.getSideToMove();
+        int own = bitboard.getMask(side);
+        int opponent = bitboard.getMask(side.opposite());
+        int empty = bitboard.getEmptyMask();
+        int count = 0;
+
+        switch (gameState) {
+            case SET:
+                for (int targets = empty; targets != 0; targets &= targets - 1) {
+                    int to = Integer.numberOfTrailingZeros(targets);
+                    count = addMove(moves, count, Move.NONE, to, own | (1 << to), opponent);
+                }
+                break;
+            case MOVE:
+                for (int sources = own; sources != 0; sources &= sources - 1) {
+                    int from = Integer.numberOfTrailingZeros(sources);
+                    int after = own & ~(1 << from);
+                    for (int targets = BoardTopology.getNeighborMask(from) & empty; targets != 0; targets &= targets - 1) {
+                        int to = Integer.numberOfTrailingZeros(targets);
+                        count = addMove(moves, count, from, to, after | (1 << to), opponent);
+                    }
+                }
+                break;
+            case JUMP:
+                for (int sources = own; sources != 0; sources &= sources - 1) {
+                    int from = Integer.numberOfTrailingZeros(sources);
+                    int after = own & ~(1 << from);
+                    for (int targets = empty; targets != 0; targets &= targets - 1) {
+                        int to = Integer.numberOfTrailingZeros(targets);
+                        count = addMove(moves, count, from, to, after | (1 << to), opponent);
+                    }
+                }
+                break;
+            case REMOVE:
+                for (int targets = removableMask(opponent); targets != 0; targets &= targets - 1) {
+                    moves[count++] = Move.remove(Integer.numberOfTrailingZeros(targets));
+                }
+                break;
+        }
+        return count;
+    }
+
+    /**
+     * Add a move to the buffer, expanded into one compound move per removable token if it closes a mill
+     * @param moves the buffer to write into
+     * @param count the number of moves already in the buffer
+     * @param from the source square, or NONE
+     * @param to the destination square
+     * @param ownAfter the mask of the tokens of the side to move after the move
+     * @param opponent the mask of the tokens of the opponent
+     * @return the new number of moves in the buffer
+     */
+    private static int addMove(int[] moves, int count, int from, int to, int ownAfter, int opponent) {
+        if (BoardTopology.isMillAt(ownAfter, to)) {
+            int removable = removableMask(opponent);
+            if (removable != 0) {
+                for (; removable != 0; removable &= removable - 1) {
+                    moves[count++] = Move.of(from, to, Integer.numberOfTrailingZeros(removable));
+                }
+                return count;
+            }
+        }
+        moves[count++] = Move.of(from, to, Move.NONE);
+        return count;
+    }
+
+    /**
+     * Retrieve the tokens of a mask that are not part of a mill
+     * @param mask the mask of the tokens of one color
+     * @return an integer mask of the removable tokens
+     */
+    private static int removableMask(int mask) {
+        return mask & ~BoardTopology.getSquaresInMills(mask);
+    }
+
+    /**
+     * Retrieve the union of the source squares of the generated moves
+     * @param moves the buffer of packed moves
+     * @param count the number of moves in the buffer
+     * @return an integer mask of the source squares
+     */
+    public static int getFromMask(int[] moves, int count) {
+        int mask = 0;
+        for (int i = 0; i < count; i++) {
+            if (Move.hasFrom(moves[i])) {
+                mask |= 1 << Move.getFrom(moves[i]);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Retrieve the union of the destination squares of the generated moves from a given source square
+     * @param moves the buffer of packed moves
+     * @param count the number of moves in the buffer
+     * @param from the source square, or NONE to collect the destinations of sets
+     * @return an integer mask of the destination squares
+     */
+    public static int getToMask(int[] moves, int count, int from) {
+        int mask = 0;
+        for (int i = 0; i < count; i++) {
+            if (Move.getFrom(moves[i]) == from && Move.hasTo(moves[i])) {
+                mask |= 1 << Move.getTo(moves[i]);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Retrieve the union of the removed squares of the generated moves
+     * @param moves the buffer of packed moves
+     * @param count the number of moves in the buffer
+     * @return an integer mask of the removed squares
+     */
+    public static int getRemoveMask(int[] moves, int count) {
+        int mask = 0;
+        for (int i = 0; i < count; i++) {
+            if (Move.hasRemove(moves[i])) {
+                mask |= 1 << Move.getRemove(moves[i]);
+            }
+        }
+        return mask;
+    }
+}
@@ -1,56 +1,29 @@
 package model;
 
-import java.util.ArrayList;
-
 /**
  * Node class refers to the position on the board. It is also used to record the position of a token.
+ * A node is a light view of one square of its board: the coordinates and neighbors of the square come
+ * from the shared BoardTopology, and its token and highlight live in the primitive state of the board.
  */
 public class Node {
     /**
-     * an integer represents the x coordinate of the node
-     */
-    private int x;
-
-    /**
-     * an integer represents the y coordinate of the node
+     * instance of the Board class that owns this node
      */
-    private int y;
+    private final Board board;
 
     /**
      * an integer represents the index of the node on board
      */
-    private int indexOnBoard;
-
-    /**
-     * instance of the TokenColor class to indicate the token color
-     */
-    private TokenColor tokenColor;
-
-    /**
-     * a boolean to indicate if the node is selected
-     */
-    private boolean selected = false;
-
-    /**
-     * an Array List to stores the Node instances that represents the neighbors of the node
-     */
-    private ArrayList<Node> neighbors = new ArrayList<>();
-
-    /**
-     * an integer that is used as the counter for the index
-     */
-    private static int indexOnBoardCounter = 0;
+    private final int indexOnBoard;
 
     /**
      * Constructor
-     * @param x the x coordinate of the node
-     * @param y the y coordinate of the node
+     * @param board the board that owns the node
+     * @param indexOnBoard the index of the node on board
      */
-    public Node(int x, int y) {
-        this.x = x;
-        this.y = y;
-        this.indexOnBoard = indexOnBoardCounter;
-        indexOnBoardCounter++;
+    public Node(Board board, int indexOnBoard) {
+        this.board = board;
+        this.indexOnBoard = indexOnBoard;
     }
 
     /**
@@ -58,7 +31,7 @@ public class Node {
      * @return the x coordinate of the node
      */
     public int getX() {
-        return x;
+        return BoardTopology.getX(indexOnBoard);
     }
 
     /**
@@ -66,7 +39,7 @@ public class Node {
      * @return the y coordinate of the node
      */
     public int getY() {
-        return y;
+        return BoardTopology.getY(indexOnBoard);
     }
 
     /**
@@ -79,10 +52,10 @@ public class Node {
 
     /**
      * Retrieve the token color of the node
-     * @return the token color of the node
+     * @return the token color of the node, or null if the node is empty
      */
     public TokenColor getTokenColor() {
-        return tokenColor;
+        return board.getBitboard().getTokenColor(indexOnBoard);
     }
 
     /**
@@ -90,15 +63,7 @@ public class Node {
      * @return true if it is selected, else false
      */
     public boolean isSelected() {
-        return selected;
-    }
-
-    /**
-     * Retrieve the neighbors of the node
-     * @return the neighbors of the node
-     */
-    public ArrayList<Node> getNeighbors() {
-        return neighbors;
+        return board.isHighlighted(indexOnBoard);
     }
 
     /**
@@ -106,7 +71,8 @@ public class Node {
      * @param tokenColor the token color of the node
      */
     public void setTokenColor(TokenColor tokenColor) {
-        this.tokenColor = tokenColor;
+        // the token lives on the bitboard of the board
+        board.getBitboard().setSquare(indexOnBoard, tokenColor);
     }
 
     /**
@@ -114,15 +80,7 @@ public class Node {
      * @param selected indicate if the node is selected
      */
     public void setSelected(boolean selected) {
-        this.selected = selected;
-    }
-
-    /**
-     * Add neighbor to the node
-     * @param node neighbor to be added
-     */
-    public void addNeighbor(Node node) {
-        neighbors.add(node);
+        board.setHighlighted(indexOnBoard, selected);
     }
 
     /**
@@ -130,7 +88,7 @@ public class Node {
      * @return true if current node is empty, else false
      */
     public boolean isEmpty() {
-        return tokenColor == null;
+        return getTokenColor() == null;
     }
 
     /**
@@ -138,10 +96,6 @@ public class Node {
      * @return true if current node is not empty, else false
      */
     public boolean isOccupied() {
-        return tokenColor != null;
-    }
-
-    public static void resetIndexOnBoardCounter() {
-        Node.indexOnBoardCounter = 0;
+        return getTokenColor() != null;
     }
 }
@@ -2,7 +2,8 @@ package model;
 
 /**
  * NodeTriplet is a class that is defined to have 3 nodes that appear in the same row in a set.
- * It will be used to check the mill.
+ * It will be used to check the mill. A node triplet is a light view of one line of the shared
+ * BoardTopology, holding the nodes of its board on that line.
  */
 public class NodeTriplet {
     /**
@@ -10,42 +11,33 @@ public class NodeTriplet {
      */
     private static final int NUM_OF_NODES = 3;
 
-    /**
-     * an integer to indicate the node counter
-     */
-    private int nodeCounter = 0;
-
     /**
      * a List to stores the Node instances
      */
-    private Node[] nodes;
+    private final Node[] nodes;
 
     /**
-     * Constructor
+     * instance of the Board class that owns this node triplet
      */
-    public NodeTriplet() {
-        nodes = new Node[NUM_OF_NODES];
-    }
+    private final Board board;
 
     /**
-     * Insert a node into node triplet
-     * @param node the node to be inserted
+     * an integer represents the index of the mill of this node triplet in the BoardTopology tables
      */
-    public void insertNode(Node node) {
-        nodes[nodeCounter] = node;
-        nodeCounter++;
-    }
+    private final int millIndex;
 
     /**
-     * Insert 3 nodes into node triplet
-     * @param first the first node in this node triplet
-     * @param second the second node in this node triplet
-     * @param third the third node in this node triplet
+     * Constructor
+     * @param board the board that owns the node triplet
+     * @param millIndex the index of the mill of the node triplet
      */
-    public void insertNodes(Node first, Node second, Node third) {
-        insertNode(first);
-        insertNode(second);
-        insertNode(third);
+    public NodeTriplet(Board board, int millIndex) {
+        this.board = board;
+        this.millIndex = millIndex;
+        nodes = new Node[NUM_OF_NODES];
+        for (int i = 0; i < NUM_OF_NODES; i++) {
+            nodes[i] = board.getNodeFromIndex(BoardTopology.getMillSquare(millIndex, i));
+        }
     }
 
     /**
@@ -86,7 +78,7 @@ public class NodeTriplet {
      * @return true if node triplet contains a specific node, else false
      */
     public boolean containsNode(Node node) {
-        return nodes[0] == node || nodes[1] == node || nodes[2] == node;
+        return (BoardTopology.getMillMask(millIndex) & (1 << node.getIndexOnBoard())) != 0;
     }
 
     /**
@@ -94,14 +86,12 @@ public class NodeTriplet {
      * @return the token color if current node triplet contains a mill, else null
      */
     public TokenColor getPlayerColorIfMill() {
-        if (getFirstNode().getTokenColor() == TokenColor.WHITE &&
-            getSecondNode().getTokenColor() == TokenColor.WHITE &&
-            getThirdNode().getTokenColor() == TokenColor.WHITE) {
+        int millMask = BoardTopology.getMillMask(millIndex);
+        Bitboard bitboard = board.getBitboard();
+        if ((bitboard.getMask(TokenColor.WHITE) & millMask) == millMask) {
             return TokenColor.WHITE;
         }
-        if (getFirstNode().getTokenColor() == TokenColor.BLACK &&
-            getSecondNode().getTokenColor() == TokenColor.BLACK &&
-            getThirdNode().getTokenColor() == TokenColor.BLACK) {
+        if ((bitboard.getMask(TokenColor.BLACK) & millMask) == millMask) {
             return TokenColor.BLACK;
         }
         return null;
@@ -1,5 +1,7 @@
 package model;
 
+import controller.GameController;
+
 /**
  * The player is defined as an abstract class to provide abstraction. The spectrum of what a player can
  * do are fixed, this includes set, move, jump and remove. Any class that inherits this class cannot add
@@ -7,26 +9,6 @@ package model;
  * override abstract methods to define how different types of players will perform each action.
  */
 public abstract class Player {
-    /**
-     * an integer represents the initial number of token to set
-     */
-    private static final int INIT_NUM_OF_TOKENS_TO_SET = 9;
-
-    /**
-     * an integer represents the initial number of token on board
-     */
-    private static final int INIT_NUM_OF_TOKENS_ON_BOARD = 0;
-
-    /**
-     * an integer represents the number of token to set
-     */
-    private int tokensToSet;
-
-    /**
-     * an integer represents the number of token on board
-     */
-    private int tokensOnBoard;
-
     /**
      * a TokenColor instance that represents the tokenColor
      */
@@ -39,61 +21,22 @@ public abstract class Player {
      */
     public Player(TokenColor tokenColor) {
         this.tokenColor = tokenColor;
-        this.tokensToSet = INIT_NUM_OF_TOKENS_TO_SET;
-        this.tokensOnBoard = INIT_NUM_OF_TOKENS_ON_BOARD;
     }
 
     /**
-     * Update number of tokens (SET)
+     * Play a move in the game of the game controller and refresh the board
+     * @param move the packed move
+     * @return true if the move is legal and has been played, else false
      */
-    public void updateTokensCountOnSet() {
-        tokensToSet--;
-        tokensOnBoard++;
-    }
+    protected boolean play(int move) {
+        // retrieve game controller
+        GameController gameController = GameController.getInstance();
 
-    /**
-     * Decrement number of tokens (REMOVE)
-     */
-    public void decrementTokensOnBoard() {
-        tokensOnBoard--;
-    }
-
-    /**
-     * Reset player tokens
-     */
-    public void resetPlayerTokens(){
-        this.tokensToSet = INIT_NUM_OF_TOKENS_TO_SET;
-        this.tokensOnBoard = INIT_NUM_OF_TOKENS_ON_BOARD;
-    }
-
-    /**
-     * Set tokens on board
-     */
-    public void setTokensOnBoard(int tokensOnBoard) {
-        this.tokensOnBoard = tokensOnBoard;
-    }
-
-    /**
-     * Set tokens left to set
-     */
-    public void setTokensToSet(int tokensToSet) {
-        this.tokensToSet = tokensToSet;
-    }
-
-    /**
-     * Retrieve the number of tokens to set
-     * @return an integer represents the number of tokens to set
-     */
-    public int getTokensToSet() {
-        return tokensToSet;
-    }
-
-    /**
-     * Retrieve the number of tokens on board
-     * @return an integer represents the number of tokens on board
-     */
-    public int getTokensOnBoard() {
-        return tokensOnBoard;
+        if (!gameController.getGame().play(move)) {
+            return false;
+        }
+        gameController.getBoard().notifyObservers();
+        return true;
     }
 
     /**
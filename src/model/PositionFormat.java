@@ -0,0 +1,104 @@
+package model;
+
+/**
+ * The PositionFormat class writes a position as a single line of text and reads it back, so positions can
+ * be given on the command line and kept in files. A position is written as five fields separated by spaces:
+ * the 24 squares in index order, each "W" for a white token, "B" for a black token or "." when empty, then
+ * the side to move ("w" or "b"), the white and black tokens still to set and the game state, e.g.
+ * "........................ w 9 9 SET". The game state may be left out, in which case it is inferred.
+ */
+public final class PositionFormat {
+    /**
+     * a String represents the empty board with white to set, the starting position of every game
+     */
+    public static final String START_POSITION = "........................ w 9 9 SET";
+
+    /**
+     * Constructor
+     */
+    private PositionFormat() {
+    }
+
+    /**
+     * Read a position
+     * @param text the position as written by format
+     * @return a new Bitboard that holds the position
+     */
+    public static Bitboard parse(String text) {
+        String[] fields = text.trim().split("\\s+");
+        if (fields.length < 4 || fields.length > 5) {
+            throw new IllegalArgumentException("A position needs 4 or 5 fields: " + text);
+        }
+        if (fields[0].length() != Bitboard.NUM_OF_SQUARES) {
+            throw new IllegalArgumentException("A position needs " + Bitboard.NUM_OF_SQUARES + " squares: " + text);
+        }
+
+        Bitboard bitboard = new Bitboard();
+        for (int square = 0; square < Bitboard.NUM_OF_SQUARES; square++) {
+            switch (fields[0].charAt(square)) {
+                case 'W':
+                    bitboard.setSquare(square, TokenColor.WHITE);
+                    break;
+                case 'B':
+                    bitboard.setSquare(square, TokenColor.BLACK);
+                    break;
+                case '.':
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown square '" + fields[0].charAt(square) + "': " + text);
+            }
+        }
+        switch (fields[1]) {
+            case "w":
+                bitboard.setSideToMove(TokenColor.WHITE);
+                break;
+            case "b":
+                bitboard.setSideToMove(TokenColor.BLACK);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown side to move '" + fields[1] + "': " + text);
+        }
+        bitboard.setTokensToSet(TokenColor.WHITE, parseTokensToSet(fields[2], text));
+        bitboard.setTokensToSet(TokenColor.BLACK, parseTokensToSet(fields[3], text));
+        bitboard.setGameState(fields.length == 5 ? GameState.valueOf(fields[4]) : bitboard.inferGameState());
+        return bitboard;
+    }
+
+    /**
+     * Read the number of tokens a player still has to set
+     * @param field the field of the position
+     * @param text the whole position, for the error message
+     * @return the number of tokens to set
+     */
+    private static int parseTokensToSet(String field, String text) {
+        int count;
+        try {
+            count = Integer.parseInt(field);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Tokens to set must be a number: " + text, e);
+        }
+        if (count < 0 || count > Bitboard.INIT_NUM_OF_TOKENS_TO_SET) {
+            throw new IllegalArgumentException("Tokens to set must be between 0 and "
+                    + Bitboard.INIT_NUM_OF_TOKENS_TO_SET + ": " + text);
+        }
+        return count;
+    }
+
+    /**
+     * Write a position
+     * @param bitboard the position
+     * @return the position as a single line of text
+     */
+    public static String format(Bitboard bitboard) {
+        StringBuilder builder = new StringBuilder();
+        for (int square = 0; square < Bitboard.NUM_OF_SQUARES; square++) {
+            TokenColor tokenColor = bitboard.getTokenColor(square);
+            builder.append(tokenColor == null ? '.' : tokenColor == TokenColor.WHITE ? 'W' : 'B');
+        }
+        return builder.append(' ').append(bitboard.getSideToMove() == TokenColor.WHITE ? 'w' : 'b')
+                .append(' ').append(bitboard.getTokensToSet(TokenColor.WHITE))
+                .append(' ').append(bitboard.getTokensToSet(TokenColor.BLACK))
+                .append(' ').append(bitboard.getGameState())
+                .toString();
+    }
+}
@@ -0,0 +1,238 @@
+package model;
+
+import engine.ParallelSearch;
+import engine.SearchResult;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * SearchComputerPlayer inherits the ComputerPlayer class. Instead of picking random moves, it searches the
+ * position with a parallel alpha-beta search whose depth and time budget are given by a Difficulty. The
+ * removal chosen together with a move that closes a mill is then performed by the REMOVE command.
+ * When pondering is enabled, the player keeps searching on the opponent's time: after each of its moves it
+ * searches the position reached by the reply it predicts. If the opponent plays that reply, the search
+ * simply goes on with what is left of the time budget, otherwise it is stopped and the entries it stored
+ * in the shared transposition table speed up the new search.
+ */
+public class SearchComputerPlayer extends ComputerPlayer {
+    /**
+     * a long represents the longest time in milliseconds a ponder search runs while waiting for the opponent
+     */
+    private static final long PONDER_BUDGET_MILLIS = 60_000;
+
+    /**
+     * a long represents the time in milliseconds between two requests to stop a ponder search
+     */
+    private static final long STOP_POLL_MILLIS = 10;
+
+    /**
+     * instance of the ParallelSearch class used to choose moves
+     */
+    private final ParallelSearch search;
+
+    /**
+     * instance of the Difficulty class that represents the strength of the player
+     */
+    private final Difficulty difficulty;
+
+    /**
+     * an ExecutorService that runs the ponder searches
+     */
+    private final ExecutorService ponderExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ponder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * a boolean to indicate if the player searches on the opponent's time
+     */
+    private volatile boolean pondering;
+
+    /**
+     * a Future of the ponder search in progress, or null
+     */
+    private volatile Future<SearchResult> ponder;
+
+    /**
+     * a long represents the hash of the position the ponder search expects, 0 once it must not be used
+     */
+    private volatile long ponderHash;
+
+    /**
+     * a long represents the System.nanoTime value at which the ponder search started
+     */
+    private volatile long ponderStart;
+
+    /**
+     * a boolean to indicate if the think in progress was asked to stop
+     */
+    private volatile boolean stopRequested;
+
+    /**
+     * Constructor
+     * @param tokenColor the token color of the computer player
+     * @param difficulty the strength of the computer player
+     */
+    public SearchComputerPlayer(TokenColor tokenColor, Difficulty difficulty) {
+        this(tokenColor, difficulty, ParallelSearch.fromConfiguration());
+    }
+
+    /**
+     * Constructor for a player that searches with a given search, e.g. a single thread one when many games
+     * are played at the same time
+     * @param tokenColor the token color of the computer player
+     * @param difficulty the strength of the computer player
+     * @param search the search used to choose moves
+     */
+    public SearchComputerPlayer(TokenColor tokenColor, Difficulty difficulty, ParallelSearch search) {
+        super(tokenColor);
+        this.difficulty = difficulty;
+        this.search = search;
+    }
+
+    /**
+     * Search for the best move, continuing the ponder search if it predicted the position, then start
+     * pondering on the predicted reply of the opponent
+     * @param position the position, a copy that no other thread modifies
+     * @param gameState the game state of the side to move
+     * @return the packed move, or Move.NO_MOVE if there is no legal move
+     */
+    @Override
+    public int think(Bitboard position, GameState gameState) {
+        stopRequested = false;
+        SearchResult result = null;
+
+        // a correct prediction turns the ponder search into the search of the position
+        Future<SearchResult> pondered = ponder;
+        ponder = null;
+        if (pondered != null) {
+            if (position.getHash() == ponderHash) {
+                long ponderedMillis = (System.nanoTime() - ponderStart) / 1_000_000L;
+                long timeLeft = Math.max(0, difficulty.getTimeBudgetMillis() - ponderedMillis);
+                search.setTimeBudget(timeLeft);
+                result = await(pondered, timeLeft);
+            } else {
+                await(pondered, 0);
+            }
+        }
+
+        if (result == null) {
+            result = search.search(position, gameState, difficulty.getMaxDepth(), difficulty.getTimeBudgetMillis());
+        }
+        if (pondering && !stopRequested) {
+            startPondering(position, result);
+        }
+        return result.getBestMove();
+    }
+
+    /**
+     * Search for the best legal move of the side to move
+     * @param bitboard the position
+     * @param gameState the game state of the side to move
+     * @return the packed move, or Move.NO_MOVE if there is no legal move
+     */
+    @Override
+    protected int pickMove(Bitboard bitboard, GameState gameState) {
+        // the workers can only run one search at a time
+        Future<SearchResult> pondered = ponder;
+        ponder = null;
+        if (pondered != null) {
+            await(pondered, 0);
+        }
+        return search.search(bitboard, gameState, difficulty.getMaxDepth(), difficulty.getTimeBudgetMillis())
+                .getBestMove();
+    }
+
+    /**
+     * Search the position reached by the principal variation of the last search in the background
+     * @param position the position of the last search
+     * @param result the result of the last search
+     */
+    private void startPondering(Bitboard position, SearchResult result) {
+        int[] principalVariation = result.getPrincipalVariation();
+        if (principalVariation.length < 2) {
+            return;
+        }
+
+        // play our move and the predicted reply on a copy
+        Bitboard predicted = new Bitboard();
+        predicted.copyFrom(position);
+        predicted.applyMove(principalVariation[0]);
+        predicted.applyMove(principalVariation[1]);
+
+        ponderHash = predicted.getHash();
+        ponderStart = System.nanoTime();
+        // prepared on this thread, so that stopThinking sticks even before the ponder search starts
+        Supplier<SearchResult> pondered = search.prepareSearch(predicted, predicted.getGameState(),
+                difficulty.getMaxDepth(), PONDER_BUDGET_MILLIS);
+        ponder = ponderExecutor.submit(pondered::get);
+    }
+
+    /**
+     * Wait for a ponder search, stopping it once the timeout elapses
+     * @param pondered the future of the ponder search
+     * @param timeoutMillis the time in milliseconds to wait before stopping the search
+     * @return the result of the ponder search, or null if it failed
+     */
+    private SearchResult await(Future<SearchResult> pondered, long timeoutMillis) {
+        while (true) {
+            try {
+                return pondered.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // ask again until the search has started and noticed the request
+                search.stop();
+                timeoutMillis = STOP_POLL_MILLIS;
+            } catch (InterruptedException e) {
+                search.stop();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the ponder search", e);
+            } catch (ExecutionException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Stop the search in progress, which then returns the best move of its last completed iteration, and
+     * make sure a ponder search in progress is not used
+     */
+    @Override
+    public void stopThinking() {
+        stopRequested = true;
+        ponderHash = 0;
+        search.stop();
+    }
+
+    /**
+     * Stop thinking and release the threads of the search and of the ponder searches. The player cannot
+     * think afterwards.
+     */
+    public void close() {
+        stopThinking();
+        ponderExecutor.shutdownNow();
+        search.shutdown();
+    }
+
+    /**
+     * Setter of pondering
+     * @param pondering true to search on the opponent's time, else false
+     */
+    public void setPondering(boolean pondering) {
+        this.pondering = pondering;
+    }
+
+    /**
+     * Retrieve the strength of the player
+     * @return the Difficulty of the player
+     */
+    public Difficulty getDifficulty() {
+        return difficulty;
+    }
+}
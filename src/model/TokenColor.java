@@ -11,5 +11,13 @@ public enum TokenColor {
     /**
      * a constant that indicates the token color is black for a particular player
      */
-    BLACK
+    BLACK;
+
+    /**
+     * Retrieve the token color of the opponent
+     * @return the opposite token color
+     */
+    public TokenColor opposite() {
+        return this == WHITE ? BLACK : WHITE;
+    }
 }
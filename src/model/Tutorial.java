@@ -43,10 +43,8 @@ public class Tutorial {
         GameController gameController = GameController.getInstance();
         Board board = gameController.getBoard();
         gameController.restart();
-        gameController.getFirstPlayer().setTokensOnBoard(4);
-        gameController.getFirstPlayer().setTokensToSet(0);
-        gameController.getSecondPlayer().setTokensOnBoard(4);
-        gameController.getSecondPlayer().setTokensToSet(0);
+        board.getBitboard().setTokensToSet(TokenColor.WHITE, 0);
+        board.getBitboard().setTokensToSet(TokenColor.BLACK, 0);
 
         // Initialize Position
         board.getNodeFromIndex(0).setTokenColor(TokenColor.WHITE);
@@ -69,10 +67,8 @@ public class Tutorial {
         GameController gameController = GameController.getInstance();
         Board board = gameController.getBoard();
         gameController.restart();
-        gameController.getFirstPlayer().setTokensOnBoard(3);
-        gameController.getFirstPlayer().setTokensToSet(0);
-        gameController.getSecondPlayer().setTokensOnBoard(4);
-        gameController.getSecondPlayer().setTokensToSet(0);
+        board.getBitboard().setTokensToSet(TokenColor.WHITE, 0);
+        board.getBitboard().setTokensToSet(TokenColor.BLACK, 0);
 
         // Initialize Position
         board.getNodeFromIndex(0).setTokenColor(TokenColor.WHITE);
@@ -94,10 +90,8 @@ public class Tutorial {
         GameController gameController = GameController.getInstance();
         Board board = gameController.getBoard();
         gameController.restart();
-        gameController.getFirstPlayer().setTokensOnBoard(3);
-        gameController.getFirstPlayer().setTokensToSet(0);
-        gameController.getSecondPlayer().setTokensOnBoard(4);
-        gameController.getSecondPlayer().setTokensToSet(0);
+        board.getBitboard().setTokensToSet(TokenColor.WHITE, 0);
+        board.getBitboard().setTokensToSet(TokenColor.BLACK, 0);
 
         // Initialize Position
         board.getNodeFromIndex(0).setTokenColor(TokenColor.WHITE);
@@ -119,8 +113,8 @@ public class Tutorial {
         GameController gameController = GameController.getInstance();
         Board board = gameController.getBoard();
         gameController.restart();
-        gameController.getFirstPlayer().setTokensOnBoard(3);
-        gameController.getSecondPlayer().setTokensOnBoard(3);
+        board.getBitboard().setTokensToSet(TokenColor.WHITE, 0);
+        board.getBitboard().setTokensToSet(TokenColor.BLACK, 0);
 
         // Initialize Position
         board.getNodeFromIndex(0).setTokenColor(TokenColor.WHITE);
@@ -128,6 +122,7 @@ public class Tutorial {
         board.getNodeFromIndex(2).setTokenColor(TokenColor.WHITE);
         board.getNodeFromIndex(23).setTokenColor(TokenColor.BLACK);
         board.getNodeFromIndex(16).setTokenColor(TokenColor.BLACK);
+        board.getNodeFromIndex(20).setTokenColor(TokenColor.BLACK);
 
         GameController.getInstance().setCurrentState(GameState.MOVE);
 
@@ -140,8 +135,8 @@ public class Tutorial {
         GameController gameController = GameController.getInstance();
         Board board = gameController.getBoard();
         gameController.restart();
-        gameController.getFirstPlayer().setTokensOnBoard(4);
-        gameController.getSecondPlayer().setTokensOnBoard(6);
+        board.getBitboard().setTokensToSet(TokenColor.WHITE, 0);
+        board.getBitboard().setTokensToSet(TokenColor.BLACK, 0);
 
         // Initialize Position
         board.getNodeFromIndex(1).setTokenColor(TokenColor.WHITE);
@@ -188,4 +183,4 @@ public class Tutorial {
         return "<html>Congratulations on finishing the tutorial. Now play a real game.<html>";
     }
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -1,133 +1,92 @@
 package model;
 
 import controller.GameController;
+import tablebase.Tablebase;
 
 import java.util.ArrayList;
-import java.util.Random;
 
 public class ValidGenerator {
 
+    // reusable buffer for the generated moves, the hint button only runs on the event dispatch thread
+    private static final int[] moves = new int[MoveGenerator.MAX_MOVES];
+
     // retrieve valid nodes for set
     public static ArrayList<Node> getNodesForSet() {
-        // retrieve game controller
-        GameController gameController = GameController.getInstance();
-
-        // retrieve board
-        Board board = gameController.getBoard();
+        return getNodesForSet(GameController.getInstance().getBoard());
+    }
 
+    // retrieve valid nodes for set on a given board
+    public static ArrayList<Node> getNodesForSet(Board board) {
         // retrieve empty nodes
-        ArrayList<Node> emptyNodes = new ArrayList<>();
-        for (NodeTriplet nodeTriplet : board.getNodeTriplets()) {
-            for (Node node : nodeTriplet.getNodes()) {
-                if (node.isEmpty()) {
-                    emptyNodes.add(node);
-                }
-            }
-        }
-
-        return emptyNodes;
+        int count = keepBestMoves(board, MoveGenerator.generate(board.getBitboard(), GameState.SET, moves));
+        return board.getNodesFromMask(MoveGenerator.getToMask(moves, count, Move.NONE));
     }
 
     // retrieve valid nodes for remove
     public static ArrayList<Node> getNodesForRemove() {
-        // retrieve game controller
-        GameController gameController = GameController.getInstance();
-
-        // retrieve board
-        Board board = gameController.getBoard();
-
-        // retrieve removable nodes
-        ArrayList<Node> removableNodes = new ArrayList<>();
-        for (NodeTriplet nodeTriplet : board.getNodeTriplets()) {
-            for (Node node : nodeTriplet.getNodes()) {
-                if (node.isOccupied() &&
-                    node.getTokenColor() != gameController.getCurrentPlayer().getTokenColor() &&
-                    !board.isMillExists(node, board.getPlayerFromTokenColor(node.getTokenColor()))) {
-                    removableNodes.add(node);
-                }
-            }
-        }
+        return getNodesForRemove(GameController.getInstance().getBoard());
+    }
 
-        return removableNodes;
+    // retrieve valid nodes for remove on a given board
+    public static ArrayList<Node> getNodesForRemove(Board board) {
+        // retrieve removable nodes of the opponent
+        int count = keepBestMoves(board, MoveGenerator.generate(board.getBitboard(), GameState.REMOVE, moves));
+        return board.getNodesFromMask(MoveGenerator.getRemoveMask(moves, count));
     }
 
     // retrieve valid nodes for move
     public static ArrayList<Node> getNodesForMove() {
-        // retrieve game controller
-        GameController gameController = GameController.getInstance();
-
-        // retrieve board
-        Board board = gameController.getBoard();
-
-        // retrieve source node
-        Node src = board.getSelectedNode();
-
-        // retrieve movable or neighbor nodes depending on criteria below
-        ArrayList<Node> nodes = new ArrayList<>();
-
-        // either node has not been selected or select the wrong color node
-        if (src == null || src.getTokenColor() != gameController.getCurrentPlayer().getTokenColor()) {
-            for (NodeTriplet nodeTriplet : board.getNodeTriplets()) {
-                for (Node node : nodeTriplet.getNodes()) {
-                    // if the token color of the node is equal to the color of the current player
-                    if (node.getTokenColor() == gameController.getCurrentPlayer().getTokenColor()) {
-                        // check if any of the neighbor is empty
-                        for (Node neighbor : node.getNeighbors()) {
-                            // if one of them is empty, it means this node can be moved
-                            if (neighbor.isEmpty()) {
-                                nodes.add(node);
-                            }
-                        }
-                    }
-                }
-            }
-        } else if (src.getTokenColor() == gameController.getCurrentPlayer().getTokenColor()) {
-            // retrieve neighbor nodes
-            for (Node neighbor : src.getNeighbors()) {
-                if (neighbor.isEmpty()) {
-                    nodes.add(neighbor);
-                }
-            }
-        }
+        return getNodesForMove(GameController.getInstance().getBoard(), getCurrentTokenColor());
+    }
 
-        return nodes;
+    // retrieve valid nodes for move on a given board for the player of a given color
+    public static ArrayList<Node> getNodesForMove(Board board, TokenColor tokenColor) {
+        return getNodesForMoveOrJump(board, tokenColor, GameState.MOVE);
     }
 
     // retrieve valid nodes for jump
     public static ArrayList<Node> getNodesForJump() {
-        // retrieve game controller
-        GameController gameController = GameController.getInstance();
+        return getNodesForJump(GameController.getInstance().getBoard(), getCurrentTokenColor());
+    }
 
-        // retrieve board
-        Board board = gameController.getBoard();
+    // retrieve valid nodes for jump on a given board for the player of a given color
+    public static ArrayList<Node> getNodesForJump(Board board, TokenColor tokenColor) {
+        return getNodesForMoveOrJump(board, tokenColor, GameState.JUMP);
+    }
 
+    // retrieve token color of the current player
+    private static TokenColor getCurrentTokenColor() {
+        return GameController.getInstance().getCurrentPlayer().getTokenColor();
+    }
+
+    // retrieve movable source nodes, or the destination nodes of the selected node
+    private static ArrayList<Node> getNodesForMoveOrJump(Board board, TokenColor tokenColor, GameState gameState) {
         // retrieve source node
         Node src = board.getSelectedNode();
 
-        // retrieve jump or empty nodes depending on criteria below
-        ArrayList<Node> nodes = new ArrayList<>();
+        // generate the moves of the current player
+        int allCount = MoveGenerator.generate(board.getBitboard(), gameState, moves);
+        int count = keepBestMoves(board, allCount);
 
         // either node has not been selected or select the wrong color node
-        if (src == null || src.getTokenColor() != gameController.getCurrentPlayer().getTokenColor()) {
-            for (NodeTriplet nodeTriplet : board.getNodeTriplets()) {
-                for (Node node : nodeTriplet.getNodes()) {
-                    // if the token color of the node is equal to the color of the current player
-                    if (node.getTokenColor() == gameController.getCurrentPlayer().getTokenColor()) {
-                        nodes.add(node);
-                    }
-                }
-            }
-        } else if (src.getTokenColor() == gameController.getCurrentPlayer().getTokenColor()) {
-            // retrieve empty nodes
-            for (NodeTriplet nodeTriplet : board.getNodeTriplets()) {
-                for (Node node : nodeTriplet.getNodes()) {
-                    if (node.isEmpty()) {
-                        nodes.add(node);
-                    }
-                }
-            }
+        if (src == null || src.getTokenColor() != tokenColor) {
+            return board.getNodesFromMask(MoveGenerator.getFromMask(moves, count));
         }
 
-        return nodes;
+        // retrieve destination nodes of the selected node, or the nodes to move from if none is best
+        int toMask = MoveGenerator.getToMask(moves, count, src.getIndexOnBoard());
+        if (toMask == 0 && count < allCount) {
+            return board.getNodesFromMask(MoveGenerator.getFromMask(moves, count));
+        }
+        return board.getNodesFromMask(toMask);
+    }
+
+    // keep the best moves at the front of the buffer when the tablebase knows every move, else all of them
+    private static int keepBestMoves(Board board, int count) {
+        // probe on a copy, the board stays as it is for the other threads
+        Bitboard bitboard = new Bitboard();
+        bitboard.copyFrom(board.getBitboard());
+        int bestCount = Tablebase.fromConfiguration().selectBestMoves(bitboard, moves, count);
+        return bestCount > 0 ? bestCount : count;
     }
 }
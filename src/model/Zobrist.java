@@ -0,0 +1,106 @@
+package model;
+
+/**
+ * The Zobrist class holds the random keys used to hash a position into 64 bits. A position hash is the XOR
+ * of the keys of its occupied squares, of the side to move, of its game state and of the number of tokens
+ * each player has left to set, so a change to the position updates the hash with a few XORs. The keys are
+ * generated from a fixed seed so hashes are identical from one run to another.
+ */
+public final class Zobrist {
+    /**
+     * a long represents the seed of the keys
+     */
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+
+    /**
+     * an array of keys indexed by token color ordinal times the number of squares plus the square
+     */
+    private static final long[] SQUARE_KEYS = new long[2 * BoardTopology.NUM_OF_SQUARES];
+
+    /**
+     * an array of keys indexed by token color ordinal times ten plus the number of tokens to set
+     */
+    private static final long[] TOKENS_TO_SET_KEYS = new long[2 * (Bitboard.INIT_NUM_OF_TOKENS_TO_SET + 1)];
+
+    /**
+     * an array of keys indexed by game state ordinal
+     */
+    private static final long[] GAME_STATE_KEYS = new long[GameState.values().length];
+
+    /**
+     * a long represents the key XORed in when black is to move
+     */
+    private static final long BLACK_TO_MOVE_KEY;
+
+    static {
+        long state = SEED;
+        for (int i = 0; i < SQUARE_KEYS.length; i++) {
+            state += SEED;
+            SQUARE_KEYS[i] = mix(state);
+        }
+        for (int i = 0; i < TOKENS_TO_SET_KEYS.length; i++) {
+            state += SEED;
+            TOKENS_TO_SET_KEYS[i] = mix(state);
+        }
+        for (int i = 0; i < GAME_STATE_KEYS.length; i++) {
+            state += SEED;
+            GAME_STATE_KEYS[i] = mix(state);
+        }
+        state += SEED;
+        BLACK_TO_MOVE_KEY = mix(state);
+    }
+
+    /**
+     * Constructor
+     */
+    private Zobrist() {
+    }
+
+    /**
+     * Scramble a counter into a well distributed key (the SplitMix64 finalizer)
+     * @param value the counter
+     * @return the key
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * Retrieve the key of a token on a square
+     * @param color the token color ordinal
+     * @param square the index of the square
+     * @return the key
+     */
+    public static long squareKey(int color, int square) {
+        return SQUARE_KEYS[color * BoardTopology.NUM_OF_SQUARES + square];
+    }
+
+    /**
+     * Retrieve the key of a number of tokens left to set
+     * @param color the token color ordinal
+     * @param tokensToSet the number of tokens left to set
+     * @return the key
+     */
+    public static long tokensToSetKey(int color, int tokensToSet) {
+        return TOKENS_TO_SET_KEYS[color * (Bitboard.INIT_NUM_OF_TOKENS_TO_SET + 1) + tokensToSet];
+    }
+
+    /**
+     * Retrieve the key of a game state
+     * @param gameState the game state
+     * @return the key
+     */
+    public static long gameStateKey(GameState gameState) {
+        return GAME_STATE_KEYS[gameState.ordinal()];
+    }
+
+    /**
+     * Retrieve the key XORed in when black is to move
+     * @return the key
+     */
+    public static long blackToMoveKey() {
+        return BLACK_TO_MOVE_KEY;
+    }
+}
@@ -0,0 +1,131 @@
+package tablebase;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The BlockCache class keeps the blocks of the compressed tables decompressed last, so that probes of
+ * nearby positions do not decompress the same block again. Every probing thread has a cache of its own,
+ * so the search threads never wait for each other. Once full, the block used least recently is dropped
+ * and its array is reused for the next block the thread decompresses, so a full cache does not allocate.
+ */
+public class BlockCache {
+    /**
+     * an integer represents the number of blocks kept at most by every thread
+     */
+    private final int capacity;
+
+    /**
+     * a ThreadLocal of the blocks of every probing thread
+     */
+    private final ThreadLocal<Blocks> blocks;
+
+    /**
+     * instance of the LongAdder class that counts the lookups that found their block
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * instance of the LongAdder class that counts the lookups that did not find their block
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructor
+     * @param capacity the number of blocks kept at most by every thread
+     */
+    public BlockCache(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        blocks = ThreadLocal.withInitial(Blocks::new);
+    }
+
+    /**
+     * Retrieve a block. The array belongs to the calling thread and stays valid until its next call to
+     * allocate.
+     * @param key the key of the block, unique across the tables sharing the cache
+     * @return the decompressed block, or null if it is not in the cache of the calling thread
+     */
+    public byte[] get(long key) {
+        byte[] block = blocks.get().get(key);
+        if (block == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return block;
+    }
+
+    /**
+     * Retrieve an array to decompress a block into, the array of the dropped block if it is long enough
+     * @param length the length in bytes of the array
+     * @return an array of at least length bytes
+     */
+    public byte[] allocate(int length) {
+        Blocks threadBlocks = blocks.get();
+        byte[] spare = threadBlocks.spare;
+        threadBlocks.spare = null;
+        return spare != null && spare.length >= length ? spare : new byte[length];
+    }
+
+    /**
+     * Add a block that the calling thread has just decompressed
+     * @param key the key of the block
+     * @param block the decompressed block
+     */
+    public void put(long key, byte[] block) {
+        blocks.get().put(key, block);
+    }
+
+    /**
+     * Retrieve the number of lookups that found their block
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Retrieve the number of lookups that did not find their block
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * The Blocks class holds the decompressed blocks of one thread by key, in the order they were last used
+     */
+    private final class Blocks extends LinkedHashMap<Long, byte[]> {
+        /**
+         * a long represents the version of the serialized form of the class
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * an array of the block dropped last, to decompress the next block into
+         */
+        private byte[] spare;
+
+        /**
+         * Constructor
+         */
+        private Blocks() {
+            super(2 * capacity, 0.75f, true);
+        }
+
+        /**
+         * Drop the block used least recently once the cache is full, keeping its array
+         * @param eldest the block used least recently
+         * @return true if the block is dropped, else false
+         */
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+            if (size() <= capacity) {
+                return false;
+            }
+            spare = eldest.getValue();
+            return true;
+        }
+    }
+}
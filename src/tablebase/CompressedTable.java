@@ -0,0 +1,176 @@
+package tablebase;
+
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * CompressedTable inherits the SubspaceTable class. It probes a file whose layers are split into blocks of
+ * a fixed length compressed independently with Deflater, as written by TablebaseFile. The file is mapped,
+ * and a block index of the offsets of the blocks finds the compressed bytes of a position, so a probe
+ * decompresses one block at most: the blocks decompressed last by every thread are kept in a BlockCache
+ * shared with the other tables of the tablebase.
+ */
+public final class CompressedTable extends SubspaceTable {
+    /**
+     * an AtomicLong gives every table a number of its own to tell its blocks apart in a shared cache
+     */
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    /**
+     * a ThreadLocal of the Inflater of every probing thread, reset before every block
+     */
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(Inflater::new);
+
+    /**
+     * a MappedByteBuffer holds the file after its header: the block index, then the blocks
+     */
+    private final MappedByteBuffer data;
+
+    /**
+     * an integer represents the length in bytes of a decompressed block, the last block of a layer being
+     * shorter
+     */
+    private final int blockLength;
+
+    /**
+     * an integer represents the length in bytes of the WDL layer
+     */
+    private final int wdlLength;
+
+    /**
+     * an integer represents the number of blocks of the WDL layer, whose offsets come first in the index
+     */
+    private final int wdlBlocks;
+
+    /**
+     * a boolean to indicate if the file holds the distance layer, whose blocks follow those of the WDL layer
+     */
+    private final boolean distances;
+
+    /**
+     * instance of the BlockCache class that keeps the decompressed blocks
+     */
+    private final BlockCache cache;
+
+    /**
+     * a long represents the number of the table, in the high bits of the keys of its blocks
+     */
+    private final long id = NEXT_ID.getAndIncrement();
+
+    /**
+     * Constructor
+     * @param index the index of the subspace
+     * @param data the mapped file after its header
+     * @param blockLength the length in bytes of a decompressed block
+     * @param distances true if the file holds the distance layer, else false
+     * @param cache the cache of the decompressed blocks
+     */
+    CompressedTable(PositionIndex index, MappedByteBuffer data, int blockLength, boolean distances, BlockCache cache) {
+        super(index);
+        this.data = data;
+        this.blockLength = blockLength;
+        this.distances = distances;
+        this.cache = cache;
+        wdlLength = TablebaseFile.getWdlLength(index.size());
+        wdlBlocks = TablebaseFile.getBlockCount(wdlLength, blockLength);
+    }
+
+    /**
+     * Retrieve the result of a position from its two bits in its block
+     * @param position the index of the position
+     * @return Tablebase.WDL_DRAW, Tablebase.WDL_WIN or Tablebase.WDL_LOSS for the side to move
+     */
+    @Override
+    public int getWdl(int position) {
+        int offset = position >>> 2;
+        byte[] block = getBlock(offset / blockLength, wdlLength, 0);
+        return block[offset % blockLength] >>> ((position & 3) << 1) & 3;
+    }
+
+    /**
+     * Determine if the file has the distance layer
+     * @return true if the values of the positions are available, else false
+     */
+    @Override
+    public boolean hasDistances() {
+        return distances;
+    }
+
+    /**
+     * Retrieve the value of a position from its byte in its block
+     * @param position the index of the position
+     * @return the value of the position, as described by Tablebase
+     */
+    @Override
+    public int getValue(int position) {
+        byte[] block = getBlock(wdlBlocks + position / blockLength, getIndex().size(), wdlBlocks);
+        return block[position % blockLength] & 0xFF;
+    }
+
+    /**
+     * Copy the whole distance layer, decompressing every block of it in place
+     * @param values the array to fill with the values indexed by position
+     */
+    @Override
+    void copyValues(byte[] values) {
+        int size = getIndex().size();
+        for (int block = 0; block * blockLength < size; block++) {
+            inflate(wdlBlocks + block, values, block * blockLength, Math.min(blockLength, size - block * blockLength));
+        }
+    }
+
+    /**
+     * Retrieve a decompressed block, from the cache if it is there
+     * @param block the number of the block in the index
+     * @param layerLength the length in bytes of the layer of the block
+     * @param firstBlock the number in the index of the first block of the layer
+     * @return the bytes of the block
+     */
+    private byte[] getBlock(int block, int layerLength, int firstBlock) {
+        long key = id << 32 | block;
+        byte[] bytes = cache.get(key);
+        if (bytes == null) {
+            // every array holds a whole block, so that the array of any dropped block can be reused
+            int start = (block - firstBlock) * blockLength;
+            bytes = cache.allocate(blockLength);
+            inflate(block, bytes, 0, Math.min(blockLength, layerLength - start));
+            cache.put(key, bytes);
+        }
+        return bytes;
+    }
+
+    /**
+     * Decompress a block
+     * @param block the number of the block in the index
+     * @param output the array to decompress into
+     * @param offset the offset in the array of the first byte of the block
+     * @param length the length in bytes of the decompressed block
+     */
+    private void inflate(int block, byte[] output, int offset, int length) {
+        int start = (int) data.getLong(block * Long.BYTES);
+        int end = (int) data.getLong((block + 1) * Long.BYTES);
+        Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        inflater.setInput(data.slice(start, end - start));
+        int done = 0;
+        try {
+            while (done < length && !inflater.finished()) {
+                int inflated = inflater.inflate(output, offset + done, length - done);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                done += inflated;
+            }
+        } catch (DataFormatException e) {
+            done = -1;
+        }
+        if (done != length) {
+            throw new UncheckedIOException(new ZipException("The block " + block + " of the subspace "
+                    + getIndex().getMoverCount() + "-" + getIndex().getOtherCount() + " is corrupt"));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package tablebase;
+
+import java.nio.MappedByteBuffer;
+
+/**
+ * MappedTable inherits the SubspaceTable class. It probes the layers of a subspace mapped from its file by
+ * TablebaseFile. The values are read in place with absolute reads, which do not change the buffers, so any
+ * number of threads can probe the same table without copying or locking.
+ */
+public final class MappedTable extends SubspaceTable {
+    /**
+     * a MappedByteBuffer holds the WDL layer, two bits per position
+     */
+    private final MappedByteBuffer wdl;
+
+    /**
+     * a MappedByteBuffer holds the distance layer, one value byte per position, or null if the file only
+     * has the WDL layer
+     */
+    private final MappedByteBuffer distances;
+
+    /**
+     * Constructor
+     * @param index the index of the subspace
+     * @param wdl the mapped WDL layer
+     * @param distances the mapped distance layer, or null
+     */
+    MappedTable(PositionIndex index, MappedByteBuffer wdl, MappedByteBuffer distances) {
+        super(index);
+        this.wdl = wdl;
+        this.distances = distances;
+    }
+
+    /**
+     * Retrieve the result of a position from its two bits
+     * @param position the index of the position
+     * @return Tablebase.WDL_DRAW, Tablebase.WDL_WIN or Tablebase.WDL_LOSS for the side to move
+     */
+    @Override
+    public int getWdl(int position) {
+        return wdl.get(position >>> 2) >>> ((position & 3) << 1) & 3;
+    }
+
+    /**
+     * Determine if the file has the distance layer
+     * @return true if the values of the positions are available, else false
+     */
+    @Override
+    public boolean hasDistances() {
+        return distances != null;
+    }
+
+    /**
+     * Retrieve the value of a position from its byte
+     * @param position the index of the position
+     * @return the value of the position, as described by Tablebase
+     */
+    @Override
+    public int getValue(int position) {
+        return distances.get(position) & 0xFF;
+    }
+
+    /**
+     * Copy the whole distance layer with one bulk read
+     * @param values the array to fill with the values indexed by position
+     */
+    @Override
+    void copyValues(byte[] values) {
+        distances.get(0, values);
+    }
+}
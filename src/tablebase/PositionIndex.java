@@ -0,0 +1,292 @@
+package tablebase;
+
+import model.BoardSymmetry;
+import model.BoardTopology;
+
+import java.util.Arrays;
+
+/**
+ * The PositionIndex class numbers the positions of a subspace of the tablebase, the positions where the
+ * side to move has a given number of tokens on board and the opponent another, once no token is left to
+ * set. The 16 symmetries of the board give positions of the same value, so a position is first mapped to
+ * its canonical image with BoardSymmetry, whose tokens of the side to move are the smallest image of
+ * their combination. These canonical combinations are numbered in a table built once per number of tokens,
+ * and the tokens of the opponent are ranked among the combinations of the squares left empty with the
+ * combinatorial number system, so the number of a position is a table lookup and a few additions away.
+ * A subspace takes about a sixteenth of the positions. Only a symmetric combination of the tokens of the
+ * side to move leaves gaps: the images of the opponent tokens that are not canonical are never used.
+ */
+public class PositionIndex {
+    /**
+     * an array of the binomial coefficients, indexed by n * (NUM_OF_SQUARES + 1) + k
+     */
+    private static final long[] BINOMIALS = new long[(BoardTopology.NUM_OF_SQUARES + 1) * (BoardTopology.NUM_OF_SQUARES + 1)];
+
+    static {
+        for (int n = 0; n <= BoardTopology.NUM_OF_SQUARES; n++) {
+            BINOMIALS[n * (BoardTopology.NUM_OF_SQUARES + 1)] = 1;
+            for (int k = 1; k <= n; k++) {
+                BINOMIALS[n * (BoardTopology.NUM_OF_SQUARES + 1) + k] = binomial(n - 1, k - 1) + binomial(n - 1, k);
+            }
+        }
+    }
+
+    /**
+     * an array of the numbering of the canonical combinations of every number of tokens, built when first
+     * needed
+     */
+    private static final MoverClasses[] MOVER_CLASSES = new MoverClasses[BoardTopology.NUM_OF_SQUARES + 1];
+
+    /**
+     * an integer represents the number of tokens on board of the side to move
+     */
+    private final int moverCount;
+
+    /**
+     * an integer represents the number of tokens on board of the opponent
+     */
+    private final int otherCount;
+
+    /**
+     * an integer represents the number of ways to place the tokens of the opponent on the empty squares
+     */
+    private final int otherCombinations;
+
+    /**
+     * instance of the MoverClasses class that numbers the canonical combinations of the side to move
+     */
+    private final MoverClasses moverClasses;
+
+    /**
+     * an integer represents the number of positions of the subspace
+     */
+    private final int size;
+
+    /**
+     * Constructor
+     * @param moverCount the number of tokens on board of the side to move
+     * @param otherCount the number of tokens on board of the opponent
+     */
+    public PositionIndex(int moverCount, int otherCount) {
+        moverClasses = getMoverClasses(moverCount);
+        long otherCombinations = binomial(BoardTopology.NUM_OF_SQUARES - moverCount, otherCount);
+        long size = moverClasses.masks.length * otherCombinations;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The subspace " + moverCount + "-" + otherCount + " is too large to index");
+        }
+        this.moverCount = moverCount;
+        this.otherCount = otherCount;
+        this.otherCombinations = (int) otherCombinations;
+        this.size = (int) size;
+    }
+
+    /**
+     * Retrieve the numbering of the canonical combinations of a number of tokens, building it the first time
+     * @param count the number of tokens
+     * @return a MoverClasses instance
+     */
+    private static synchronized MoverClasses getMoverClasses(int count) {
+        if (MOVER_CLASSES[count] == null) {
+            MOVER_CLASSES[count] = new MoverClasses(count);
+        }
+        return MOVER_CLASSES[count];
+    }
+
+    /**
+     * Retrieve a binomial coefficient
+     * @param n the number of elements, at most NUM_OF_SQUARES
+     * @param k the number of chosen elements
+     * @return the number of ways to choose k elements among n, 0 if k is out of range
+     */
+    private static long binomial(int n, int k) {
+        if (k < 0 || k > n) {
+            return 0;
+        }
+        return BINOMIALS[n * (BoardTopology.NUM_OF_SQUARES + 1) + k];
+    }
+
+    /**
+     * Retrieve the number of positions of the subspace
+     * @return the number of positions
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Retrieve the number of tokens on board of the side to move
+     * @return the number of tokens
+     */
+    public int getMoverCount() {
+        return moverCount;
+    }
+
+    /**
+     * Retrieve the number of tokens on board of the opponent
+     * @return the number of tokens
+     */
+    public int getOtherCount() {
+        return otherCount;
+    }
+
+    /**
+     * Retrieve the index of a position of the subspace, the same for every symmetric image of the position
+     * @param mover the mask of the tokens of the side to move
+     * @param other the mask of the tokens of the opponent
+     * @return the index of the position, between 0 and size - 1
+     */
+    public int rank(int mover, int other) {
+        long canonical = BoardSymmetry.canonicalize(mover, other);
+        int canonicalMover = getMover(canonical);
+        int moverClass = moverClasses.classes[(int) rankCombination(canonicalMover)];
+        return moverClass * otherCombinations + (int) rankCombination(compress(getOther(canonical), canonicalMover));
+    }
+
+    /**
+     * Retrieve the position of an index of the subspace
+     * @param index the index of the position, between 0 and size - 1
+     * @return the mask of the tokens of the side to move in the low 32 bits, and the mask of the tokens of
+     * the opponent in the high 32 bits; the position is canonical unless the index is a gap, which rank
+     * tells since it then gives another index
+     */
+    public long unrank(int index) {
+        int mover = moverClasses.masks[index / otherCombinations];
+        int other = expand(unrankCombination(index % otherCombinations, otherCount), mover);
+        return (mover & 0xFFFFFFFFL) | (long) other << 32;
+    }
+
+    /**
+     * Retrieve the mask of the tokens of the side to move of an unranked position
+     * @param position the position returned by unrank
+     * @return the mask of the tokens of the side to move
+     */
+    public static int getMover(long position) {
+        return (int) position;
+    }
+
+    /**
+     * Retrieve the mask of the tokens of the opponent of an unranked position
+     * @param position the position returned by unrank
+     * @return the mask of the tokens of the opponent
+     */
+    public static int getOther(long position) {
+        return (int) (position >>> 32);
+    }
+
+    /**
+     * Rank a combination of squares in colexicographic order
+     * @param mask the mask of the squares
+     * @return the rank of the combination among the combinations of as many squares
+     */
+    private static long rankCombination(int mask) {
+        long rank = 0;
+        int k = 1;
+        for (int squares = mask; squares != 0; squares &= squares - 1) {
+            rank += binomial(Integer.numberOfTrailingZeros(squares), k++);
+        }
+        return rank;
+    }
+
+    /**
+     * Retrieve the combination of squares of a rank in colexicographic order
+     * @param rank the rank of the combination
+     * @param count the number of squares of the combination
+     * @return the mask of the squares
+     */
+    private static int unrankCombination(long rank, int count) {
+        int mask = 0;
+        int square = BoardTopology.NUM_OF_SQUARES - 1;
+        for (int k = count; k > 0; k--) {
+            // the largest square whose binomial fits in what is left of the rank
+            while (binomial(square, k) > rank) {
+                square--;
+            }
+            mask |= 1 << square;
+            rank -= binomial(square, k);
+            square--;
+        }
+        return mask;
+    }
+
+    /**
+     * Number the squares of a mask among the squares not taken by another mask
+     * @param mask the mask of the squares to number, disjoint from taken
+     * @param taken the mask of the squares left out of the numbering
+     * @return the mask of the numbers of the squares
+     */
+    private static int compress(int mask, int taken) {
+        int result = 0;
+        for (int squares = mask; squares != 0; squares &= squares - 1) {
+            int square = Integer.numberOfTrailingZeros(squares);
+            result |= 1 << (square - Integer.bitCount(taken & ((1 << square) - 1)));
+        }
+        return result;
+    }
+
+    /**
+     * Retrieve the squares of numbers given by compress
+     * @param mask the mask of the numbers of the squares
+     * @param taken the mask of the squares left out of the numbering
+     * @return the mask of the squares
+     */
+    private static int expand(int mask, int taken) {
+        int result = 0;
+        int free = ~taken & ((1 << BoardTopology.NUM_OF_SQUARES) - 1);
+        for (int number = 0; free != 0; free &= free - 1, number++) {
+            if ((mask & (1 << number)) != 0) {
+                result |= Integer.lowestOneBit(free);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The MoverClasses class numbers the canonical combinations of a number of tokens, in increasing order
+     */
+    private static final class MoverClasses {
+        /**
+         * an array of the number of every combination ranked in colexicographic order, -1 if it is not
+         * canonical
+         */
+        private final int[] classes;
+
+        /**
+         * an array of the canonical combinations indexed by number
+         */
+        private final int[] masks;
+
+        /**
+         * Constructor
+         * @param count the number of tokens, at least 1
+         */
+        MoverClasses(int count) {
+            classes = new int[(int) binomial(BoardTopology.NUM_OF_SQUARES, count)];
+            int[] found = new int[classes.length];
+            int numOfClasses = 0;
+
+            // the combinations in colexicographic order are the masks in increasing order
+            int rank = 0;
+            for (int mask = (1 << count) - 1; mask < 1 << BoardTopology.NUM_OF_SQUARES; mask = nextCombination(mask)) {
+                if (BoardSymmetry.canonicalize(mask) == mask) {
+                    found[numOfClasses] = mask;
+                    classes[rank] = numOfClasses++;
+                } else {
+                    classes[rank] = -1;
+                }
+                rank++;
+            }
+            masks = Arrays.copyOf(found, numOfClasses);
+        }
+
+        /**
+         * Retrieve the next larger mask with as many squares
+         * @param mask a mask with at least one square
+         * @return the next combination
+         */
+        private static int nextCombination(int mask) {
+            int lowest = mask & -mask;
+            int ripple = mask + lowest;
+            return ripple | ((mask ^ ripple) >>> 2) / lowest;
+        }
+    }
+}
@@ -0,0 +1,586 @@
+package tablebase;
+
+import model.Bitboard;
+import model.BoardTopology;
+import util.AtomicFile;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The RetrogradeSolver class computes the values of the Tablebase by retrograde analysis. A move without a
+ * removal goes from a subspace with m tokens to move against o to the subspace with o to move against m, so
+ * the two are solved together, while a removal leads to a subspace with one token less, which must have
+ * been solved before. Every position keeps three bytes: its value, the number of its moves within the two
+ * subspaces whose value is not known yet, and the value its removals alone would give it.
+ * The positions are then decided level by level, in the order of their distance to the end of the game:
+ * a position lost in n plies makes every position that can move to it won in n + 1, and a position won in
+ * n plies takes one off the count of every position that can move to it, which is lost once its count
+ * reaches 0. The positions that can move to a position are found by taking back the move of the opponent.
+ * What is left undecided once no level decides anything more is a draw.
+ * The subspaces are indexed by PositionIndex up to the symmetries of the board, so a position stands for
+ * all its images: the moves of a position are counted once per distinct canonical position they lead to,
+ * and a decided position updates every distinct canonical position its taken back moves lead to once.
+ * Every step runs on a ForkJoinPool over ranges of positions, the counts being updated atomically.
+ * Between two levels the three bytes of every position are all the state of the solve, so they are saved
+ * periodically to a checkpoint file, from which a solve interrupted by a crash starts again at that level.
+ */
+public class RetrogradeSolver {
+    /**
+     * a VarHandle to update the elements of byte arrays atomically
+     */
+    private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    /**
+     * an integer represents the number of positions one task handles without splitting
+     */
+    private static final int CHUNK_SIZE = 1 << 14;
+
+    /**
+     * an integer represents an upper bound of the number of moves of a position, 3 tokens jumping to 18
+     * empty squares at most
+     */
+    private static final int MAX_MOVES = 64;
+
+    /**
+     * an integer represents the longest distance a value byte holds
+     */
+    private static final int MAX_DISTANCE = 254;
+
+    /**
+     * an integer represents the magic number a checkpoint file starts with, "NMMC" in ASCII
+     */
+    private static final int CHECKPOINT_MAGIC = 0x4E4D4D43;
+
+    /**
+     * an integer represents the version of the format of the checkpoint files
+     */
+    private static final int CHECKPOINT_VERSION = 1;
+
+    /**
+     * instance of the Tablebase class that holds the solved subspaces
+     */
+    private final Tablebase tablebase;
+
+    /**
+     * instance of the ForkJoinPool class the steps run on
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * a Path represents the directory of the checkpoint files, or null to solve without checkpoints
+     */
+    private final Path checkpointDirectory;
+
+    /**
+     * a long represents the time in nanoseconds between two checkpoints
+     */
+    private final long checkpointIntervalNanos;
+
+    /**
+     * Constructor for a solver without checkpoints
+     * @param tablebase the tablebase that holds the subspaces with fewer tokens and receives the solved ones
+     * @param pool the pool the steps run on
+     */
+    public RetrogradeSolver(Tablebase tablebase, ForkJoinPool pool) {
+        this(tablebase, pool, null, 0);
+    }
+
+    /**
+     * Constructor
+     * @param tablebase the tablebase that holds the subspaces with fewer tokens and receives the solved ones
+     * @param pool the pool the steps run on
+     * @param checkpointDirectory the directory of the checkpoint files, or null
+     * @param checkpointIntervalMillis the time in milliseconds between two checkpoints
+     */
+    public RetrogradeSolver(Tablebase tablebase, ForkJoinPool pool, Path checkpointDirectory,
+                            long checkpointIntervalMillis) {
+        this.tablebase = tablebase;
+        this.pool = pool;
+        this.checkpointDirectory = checkpointDirectory;
+        this.checkpointIntervalNanos = checkpointIntervalMillis * 1_000_000L;
+    }
+
+    /**
+     * Solve the subspace of some tokens to move against others together with the subspace of the reverse,
+     * and add them to the tablebase
+     * @param moverCount the number of tokens on board of the side to move
+     * @param otherCount the number of tokens on board of the opponent
+     * @return the number of levels, i.e. one more than the longest distance to the end of a game
+     */
+    public int solve(int moverCount, int otherCount) {
+        Subspace first = new Subspace(moverCount, otherCount);
+        Subspace second = moverCount == otherCount ? first : new Subspace(otherCount, moverCount);
+        first.partner = second;
+        second.partner = first;
+        Subspace[] subspaces = moverCount == otherCount ? new Subspace[] {first} : new Subspace[] {first, second};
+
+        // start again from the checkpoint, else count the moves within the subspaces and look up the removals
+        AtomicInteger maxPending = new AtomicInteger();
+        int level = readCheckpoint(subspaces, maxPending);
+        if (level < 0) {
+            for (Subspace subspace : subspaces) {
+                run(subspace, (start, end) -> maxPending.accumulateAndGet(subspace.initialize(start, end), Math::max));
+            }
+            level = 0;
+        }
+
+        // decide the positions level by level
+        long lastCheckpoint = System.nanoTime();
+        while (true) {
+            if (checkpointDirectory != null && System.nanoTime() - lastCheckpoint >= checkpointIntervalNanos) {
+                writeCheckpoint(subspaces, level, maxPending.get());
+                lastCheckpoint = System.nanoTime();
+            }
+            final int current = level;
+            AtomicLong decided = new AtomicLong();
+            for (Subspace subspace : subspaces) {
+                run(subspace, (start, end) -> subspace.resolvePending(current, start, end));
+            }
+            for (Subspace subspace : subspaces) {
+                run(subspace, (start, end) -> decided.addAndGet(subspace.propagate(current, start, end)));
+            }
+            if (decided.get() > 0 && current == MAX_DISTANCE) {
+                throw new IllegalStateException("A distance of the subspace " + moverCount + "-" + otherCount
+                        + " does not fit in a value byte");
+            }
+            level++;
+            if (decided.get() == 0 && current >= maxPending.get()) {
+                break;
+            }
+        }
+
+        for (Subspace subspace : subspaces) {
+            tablebase.putValues(subspace.index.getMoverCount(), subspace.index.getOtherCount(), subspace.values);
+        }
+        return level;
+    }
+
+    /**
+     * Retrieve the checkpoint file of the solve of two subspaces
+     * @param moverCount the number of tokens on board of the side to move
+     * @param otherCount the number of tokens on board of the opponent
+     * @return the path of the file
+     */
+    private Path getCheckpointFile(int moverCount, int otherCount) {
+        return checkpointDirectory.resolve(moverCount + "-" + otherCount + ".checkpoint");
+    }
+
+    /**
+     * Determine if a solve left a checkpoint to start again from
+     * @param moverCount the number of tokens on board of the side to move
+     * @param otherCount the number of tokens on board of the opponent
+     * @return true if solve starts from a checkpoint, else false
+     */
+    public boolean hasCheckpoint(int moverCount, int otherCount) {
+        return checkpointDirectory != null && Files.exists(getCheckpointFile(moverCount, otherCount));
+    }
+
+    /**
+     * Delete the checkpoint of a solve once its results are safe
+     * @param moverCount the number of tokens on board of the side to move
+     * @param otherCount the number of tokens on board of the opponent
+     * @throws IOException if the file cannot be deleted
+     */
+    public void deleteCheckpoint(int moverCount, int otherCount) throws IOException {
+        if (checkpointDirectory != null) {
+            Files.deleteIfExists(getCheckpointFile(moverCount, otherCount));
+        }
+    }
+
+    /**
+     * Save the state of a solve between two levels
+     * @param subspaces the subspaces being solved, the first one naming the file
+     * @param level the next level to decide
+     * @param maxPending the longest distance of the values given by removals
+     */
+    private void writeCheckpoint(Subspace[] subspaces, int level, int maxPending) {
+        PositionIndex index = subspaces[0].index;
+        Path file = getCheckpointFile(index.getMoverCount(), index.getOtherCount());
+        try {
+            AtomicFile.write(file, output -> {
+                output.writeInt(CHECKPOINT_MAGIC);
+                output.writeInt(CHECKPOINT_VERSION);
+                output.writeInt(index.getMoverCount());
+                output.writeInt(index.getOtherCount());
+                output.writeInt(level);
+                output.writeInt(maxPending);
+                for (Subspace subspace : subspaces) {
+                    output.writeInt(subspace.index.size());
+                    output.write(subspace.values);
+                    output.write(subspace.counters);
+                    output.write(subspace.pending);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write the checkpoint " + file, e);
+        }
+    }
+
+    /**
+     * Restore the state of a solve from its checkpoint, if there is one
+     * @param subspaces the subspaces being solved, whose arrays are filled
+     * @param maxPending set to the longest distance of the values given by removals
+     * @return the next level to decide, or -1 if there is no checkpoint
+     */
+    private int readCheckpoint(Subspace[] subspaces, AtomicInteger maxPending) {
+        PositionIndex index = subspaces[0].index;
+        if (!hasCheckpoint(index.getMoverCount(), index.getOtherCount())) {
+            return -1;
+        }
+        Path file = getCheckpointFile(index.getMoverCount(), index.getOtherCount());
+        try (DataInputStream input = AtomicFile.open(file)) {
+            if (input.readInt() != CHECKPOINT_MAGIC || input.readInt() != CHECKPOINT_VERSION
+                    || input.readInt() != index.getMoverCount() || input.readInt() != index.getOtherCount()) {
+                throw new IOException(file + " is not a checkpoint of the subspace " + index.getMoverCount() + "-"
+                        + index.getOtherCount());
+            }
+            int level = input.readInt();
+            maxPending.set(input.readInt());
+            for (Subspace subspace : subspaces) {
+                if (input.readInt() != subspace.index.size()) {
+                    throw new IOException(file + " was written with another index");
+                }
+                input.readFully(subspace.values);
+                input.readFully(subspace.counters);
+                input.readFully(subspace.pending);
+            }
+            return level;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the checkpoint " + file, e);
+        }
+    }
+
+    /**
+     * Run an action over every range of positions of a subspace on the pool
+     * @param subspace the subspace
+     * @param action the action
+     */
+    private void run(Subspace subspace, RangeAction action) {
+        pool.invoke(new RangeTask(action, 0, subspace.index.size()));
+    }
+
+    /**
+     * Take one off an element of a byte array atomically. A compare and set loop is used since the C2
+     * compiler of JDK 17 returns a wrong previous value from getAndAdd on byte array elements.
+     * @param array the array
+     * @param index the index of the element
+     * @return the new value of the element
+     */
+    private static int decrement(byte[] array, int index) {
+        byte count;
+        do {
+            count = (byte) BYTES.getVolatile(array, index);
+        } while (!BYTES.compareAndSet(array, index, count, (byte) (count - 1)));
+        return count - 1;
+    }
+
+    /**
+     * Sort the start of an array and move its distinct elements to the front
+     * @param array the array
+     * @param length the number of elements to look at
+     * @return the number of distinct elements
+     */
+    private static int sortDistinct(int[] array, int length) {
+        Arrays.sort(array, 0, length);
+        int distinct = 0;
+        for (int i = 0; i < length; i++) {
+            if (distinct == 0 || array[i] != array[distinct - 1]) {
+                array[distinct++] = array[i];
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * The RangeAction interface is an action on a range of positions
+     */
+    private interface RangeAction {
+        /**
+         * Run the action
+         * @param start the index of the first position
+         * @param end the index after the last position
+         */
+        void run(int start, int end);
+    }
+
+    /**
+     * The RangeTask class runs an action over a range of positions, splitting the range in halves until it
+     * is no longer than CHUNK_SIZE
+     */
+    private static final class RangeTask extends RecursiveAction {
+        /**
+         * a long represents the version of the serialized form of the class
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * instance of the RangeAction interface to run
+         */
+        private final RangeAction action;
+
+        /**
+         * an integer represents the index of the first position
+         */
+        private final int start;
+
+        /**
+         * an integer represents the index after the last position
+         */
+        private final int end;
+
+        /**
+         * Constructor
+         * @param action the action to run
+         * @param start the index of the first position
+         * @param end the index after the last position
+         */
+        RangeTask(RangeAction action, int start, int end) {
+            this.action = action;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= CHUNK_SIZE) {
+                action.run(start, end);
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(new RangeTask(action, start, middle), new RangeTask(action, middle, end));
+        }
+    }
+
+    /**
+     * The Subspace class holds the arrays of one subspace while it is solved
+     */
+    private final class Subspace {
+        /**
+         * instance of the PositionIndex class of the subspace
+         */
+        private final PositionIndex index;
+
+        /**
+         * an array of the values indexed by position, 0 until decided
+         */
+        private final byte[] values;
+
+        /**
+         * an array of the number of distinct positions within the two subspaces every position can move to
+         * whose value is not known yet, plus one if a removal leads to a draw
+         */
+        private final byte[] counters;
+
+        /**
+         * an array of the value every position gets from its removals alone, 0 if it has none
+         */
+        private final byte[] pending;
+
+        /**
+         * instance of the Subspace class with the numbers of tokens reversed, which the moves lead to
+         */
+        private Subspace partner;
+
+        /**
+         * an array of the values of the subspace the removals lead to, or null if they win the game
+         */
+        private final byte[] removalValues;
+
+        /**
+         * instance of the PositionIndex class of the subspace the removals lead to, or null
+         */
+        private final PositionIndex removalIndex;
+
+        /**
+         * Constructor
+         * @param moverCount the number of tokens on board of the side to move
+         * @param otherCount the number of tokens on board of the opponent
+         */
+        Subspace(int moverCount, int otherCount) {
+            index = tablebase.getIndex(moverCount, otherCount);
+            values = new byte[index.size()];
+            counters = new byte[index.size()];
+            pending = new byte[index.size()];
+
+            // after a removal the opponent moves with a token less
+            if (otherCount - 1 < Tablebase.MIN_TOKENS) {
+                removalValues = null;
+                removalIndex = null;
+            } else {
+                removalValues = tablebase.getValues(otherCount - 1, moverCount);
+                if (removalValues == null) {
+                    throw new IllegalStateException("The subspace " + (otherCount - 1) + "-" + moverCount
+                            + " must be solved first");
+                }
+                removalIndex = tablebase.getIndex(otherCount - 1, moverCount);
+            }
+        }
+
+        /**
+         * Count the moves within the two subspaces of a range of positions and decide what their removals
+         * give them
+         * @param start the index of the first position
+         * @param end the index after the last position
+         * @return the longest distance of the values given by removals
+         */
+        int initialize(int start, int end) {
+            boolean jumping = index.getMoverCount() == Tablebase.MIN_TOKENS;
+            int[] children = new int[MAX_MOVES];
+            int maxDistance = 0;
+            for (int position = start; position < end; position++) {
+                long unranked = index.unrank(position);
+                int mover = PositionIndex.getMover(unranked);
+                int other = PositionIndex.getOther(unranked);
+                if (index.rank(mover, other) != position) {
+                    // a gap of the index, never probed
+                    continue;
+                }
+                int empty = Bitboard.ALL_SQUARES & ~(mover | other);
+                int removable = other & ~BoardTopology.getSquaresInMills(other);
+
+                int moves = 0;
+                int childCount = 0;
+                boolean draw = false;
+                int winDistance = Integer.MAX_VALUE;
+                int lossDistance = 0;
+                for (int sources = mover; sources != 0; sources &= sources - 1) {
+                    int from = Integer.numberOfTrailingZeros(sources);
+                    int targets = jumping ? empty : BoardTopology.getNeighborMask(from) & empty;
+                    for (; targets != 0; targets &= targets - 1) {
+                        int to = Integer.numberOfTrailingZeros(targets);
+                        int after = mover & ~(1 << from) | 1 << to;
+                        moves++;
+                        if (removable == 0 || !BoardTopology.isMillAt(after, to)) {
+                            children[childCount++] = partner.index.rank(other, after);
+                            continue;
+                        }
+
+                        // a removal leads to a solved subspace, or wins
+                        for (int removals = removable; removals != 0; removals &= removals - 1) {
+                            int value = removalValues == null ? Tablebase.valueOf(0)
+                                    : removalValues[removalIndex.rank(other & ~(removals & -removals), after)] & 0xFF;
+                            if (value == Tablebase.DRAW) {
+                                draw = true;
+                            } else if (Tablebase.isLoss(value)) {
+                                winDistance = Math.min(winDistance, Tablebase.getDistance(value) + 1);
+                            } else {
+                                lossDistance = Math.max(lossDistance, Tablebase.getDistance(value) + 1);
+                            }
+                        }
+                    }
+                }
+
+                counters[position] = (byte) (sortDistinct(children, childCount) + (draw ? 1 : 0));
+                if (moves == 0) {
+                    // a player who cannot move loses
+                    pending[position] = (byte) Tablebase.valueOf(0);
+                } else if (winDistance != Integer.MAX_VALUE) {
+                    pending[position] = (byte) Tablebase.valueOf(winDistance);
+                    maxDistance = Math.max(maxDistance, winDistance);
+                } else if (lossDistance > 0) {
+                    pending[position] = (byte) Tablebase.valueOf(lossDistance);
+                    maxDistance = Math.max(maxDistance, lossDistance);
+                }
+            }
+            return maxDistance;
+        }
+
+        /**
+         * Decide the positions of a range whose removals give them a value at a level: a win, unless a move
+         * within the subspaces wins sooner, or a loss once every move within the subspaces loses
+         * @param level the distance being decided
+         * @param start the index of the first position
+         * @param end the index after the last position
+         */
+        void resolvePending(int level, int start, int end) {
+            byte value = (byte) Tablebase.valueOf(level);
+            for (int position = start; position < end; position++) {
+                if (pending[position] == value && values[position] == 0
+                        && (Tablebase.isWin(value & 0xFF) || counters[position] == 0)) {
+                    values[position] = value;
+                }
+            }
+        }
+
+        /**
+         * Take back the moves to the positions of a range decided at a level and update the positions of
+         * the partner they come from
+         * @param level the distance being decided
+         * @param start the index of the first position
+         * @param end the index after the last position
+         * @return the number of positions of the range decided at the level
+         */
+        long propagate(int level, int start, int end) {
+            byte value = (byte) Tablebase.valueOf(level);
+            byte next = (byte) Tablebase.valueOf(level + 1);
+            boolean lost = Tablebase.isLoss(value & 0xFF);
+            boolean jumping = index.getOtherCount() == Tablebase.MIN_TOKENS;
+            int[] parents = new int[MAX_MOVES];
+            long decided = 0;
+            for (int position = start; position < end; position++) {
+                if (values[position] != value) {
+                    continue;
+                }
+                decided++;
+                long unranked = index.unrank(position);
+                int mover = PositionIndex.getMover(unranked);
+                int other = PositionIndex.getOther(unranked);
+                int empty = Bitboard.ALL_SQUARES & ~(mover | other);
+
+                // a move that closed a mill removed a token, unless every token was in a mill
+                boolean removalSkipped = (mover & ~BoardTopology.getSquaresInMills(mover)) == 0;
+                int parentCount = 0;
+                for (int targets = other; targets != 0; targets &= targets - 1) {
+                    int to = Integer.numberOfTrailingZeros(targets);
+                    if (!removalSkipped && BoardTopology.isMillAt(other, to)) {
+                        continue;
+                    }
+                    int sources = jumping ? empty : BoardTopology.getNeighborMask(to) & empty;
+                    for (; sources != 0; sources &= sources - 1) {
+                        int from = Integer.numberOfTrailingZeros(sources);
+                        parents[parentCount++] = partner.index.rank(other & ~(1 << to) | 1 << from, mover);
+                    }
+                }
+
+                // every parent once, however many of its moves lead to an image of the position
+                parentCount = sortDistinct(parents, parentCount);
+                for (int i = 0; i < parentCount; i++) {
+                    if (lost) {
+                        BYTES.compareAndSet(partner.values, parents[i], (byte) 0, next);
+                    } else if (decrement(partner.counters, parents[i]) == 0) {
+                        partner.decideLoss(parents[i], level + 1);
+                    }
+                }
+            }
+            return decided;
+        }
+
+        /**
+         * Decide a position whose moves within the subspaces all lose, once the last of them is decided
+         * @param position the index of the position
+         * @param level the distance the last of them gives
+         */
+        void decideLoss(int position, int level) {
+            int removal = pending[position] & 0xFF;
+            if (Tablebase.isWin(removal)) {
+                // a removal wins, which resolvePending decides
+                return;
+            }
+            if (removal == 0 || Tablebase.getDistance(removal) <= level) {
+                BYTES.compareAndSet(values, position, (byte) 0, (byte) Tablebase.valueOf(level));
+            }
+            // else resolvePending decides it at the distance of the removals
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package tablebase;
+
+/**
+ * The SubspaceTable class is the base class of the tables that probe the file of one subspace of the
+ * tablebase, the positions being numbered by a PositionIndex. The layers of the file are the WDL layer,
+ * two bits per position, and the optional distance layer, one value byte per position, as described by
+ * TablebaseFile. A table can be probed by any number of threads at the same time.
+ */
+public abstract class SubspaceTable {
+    /**
+     * instance of the PositionIndex class that numbers the positions of the subspace
+     */
+    private final PositionIndex index;
+
+    /**
+     * Constructor
+     * @param index the index of the subspace
+     */
+    SubspaceTable(PositionIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Retrieve the index of the subspace
+     * @return a PositionIndex instance
+     */
+    public PositionIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Retrieve the result of a position
+     * @param position the index of the position
+     * @return Tablebase.WDL_DRAW, Tablebase.WDL_WIN or Tablebase.WDL_LOSS for the side to move
+     */
+    public abstract int getWdl(int position);
+
+    /**
+     * Determine if the table holds the distance layer
+     * @return true if the values of the positions are available, else false
+     */
+    public abstract boolean hasDistances();
+
+    /**
+     * Retrieve the value of a position
+     * @param position the index of the position
+     * @return the value of the position, as described by Tablebase
+     */
+    public abstract int getValue(int position);
+
+    /**
+     * Copy the whole distance layer
+     * @param values the array to fill with the values indexed by position
+     */
+    abstract void copyValues(byte[] values);
+}
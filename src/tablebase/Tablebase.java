@@ -0,0 +1,482 @@
+package tablebase;
+
+import model.Bitboard;
+import model.GameState;
+import model.TokenColor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The Tablebase class gives the exact value of the positions once no token is left to set, read from the
+ * files written by the RetrogradeSolver. The positions are split into subspaces by the number of tokens on
+ * board of the side to move and of the opponent; a position with white to move and one with black to move
+ * and the colors swapped have the same value, so a subspace holds every position from the point of view of
+ * the side to move. The file of a subspace is mapped the first time one of its positions is probed, so
+ * creating a tablebase costs nothing whatever the size of the files, and only the pages probed are read.
+ * A compressed file is decompressed by blocks, the blocks decompressed last being kept in a BlockCache.
+ * A probe reads the WDL layer of a file, the draw, win or loss of the side to move, or the value of the
+ * position when the file has the distance layer: one byte per position, 0 for a draw, else one plus the
+ * number of plies to the end of the game with perfect play, the side to move winning when that number is
+ * odd and losing when it is even. Probes are thread safe. The solver works on whole subspaces in memory
+ * instead, with getValues and putValues. The draw rules of the Game are not taken into account.
+ */
+public class Tablebase {
+    /**
+     * an integer represents the value of a drawn position
+     */
+    public static final int DRAW = 0;
+
+    /**
+     * an integer represents the result of a probe of a position the tablebase does not hold
+     */
+    public static final int NOT_FOUND = -1;
+
+    /**
+     * an integer represents the WDL result of a drawn position
+     */
+    public static final int WDL_DRAW = 0;
+
+    /**
+     * an integer represents the WDL result of a position won by the side to move
+     */
+    public static final int WDL_WIN = 1;
+
+    /**
+     * an integer represents the WDL result of a position lost by the side to move
+     */
+    public static final int WDL_LOSS = 2;
+
+    /**
+     * a String represents the name of the system property that configures the directory of the files
+     */
+    public static final String DIRECTORY_PROPERTY = "nmm.tablebase.dir";
+
+    /**
+     * a String represents the directory of the files when it is not configured
+     */
+    public static final String DEFAULT_DIRECTORY = "tablebase";
+
+    /**
+     * a String represents the name of the system property that configures the number of decompressed
+     * blocks kept in the cache of every probing thread
+     */
+    public static final String CACHE_PROPERTY = "nmm.tablebase.cache.blocks";
+
+    /**
+     * an integer represents the number of decompressed blocks kept by every thread when it is not configured
+     */
+    public static final int DEFAULT_CACHE_BLOCKS = 64;
+
+    /**
+     * an integer represents the fewest tokens a player can have on board without losing
+     */
+    public static final int MIN_TOKENS = 3;
+
+    /**
+     * an integer represents the most tokens a player can have on board
+     */
+    public static final int MAX_TOKENS = Bitboard.INIT_NUM_OF_TOKENS_TO_SET;
+
+    /**
+     * a Path represents the directory of the files
+     */
+    private final Path directory;
+
+    /**
+     * an array of the indexes of the subspaces created so far, indexed by subspace
+     */
+    private final PositionIndex[] indexes = new PositionIndex[(MAX_TOKENS + 1) * (MAX_TOKENS + 1)];
+
+    /**
+     * an array of the values of the subspaces read so far, indexed by subspace
+     */
+    private final byte[][] values = new byte[(MAX_TOKENS + 1) * (MAX_TOKENS + 1)][];
+
+    /**
+     * an array of booleans to indicate the subspaces whose file has been looked for
+     */
+    private final boolean[] loaded = new boolean[(MAX_TOKENS + 1) * (MAX_TOKENS + 1)];
+
+    /**
+     * an array of the mapped files of the subspaces probed so far, indexed by subspace, empty if the
+     * directory has no file of the subspace
+     */
+    private final AtomicReferenceArray<Optional<SubspaceTable>> tables =
+            new AtomicReferenceArray<>((MAX_TOKENS + 1) * (MAX_TOKENS + 1));
+
+    /**
+     * instance of the BlockCache class that keeps the decompressed blocks of the compressed files
+     */
+    private final BlockCache cache = new BlockCache(Integer.getInteger(CACHE_PROPERTY, DEFAULT_CACHE_BLOCKS));
+
+    /**
+     * instance of the Tablebase class in the configured directory, created when first needed
+     */
+    private static Tablebase configured;
+
+    /**
+     * Constructor
+     * @param directory the directory of the files
+     */
+    public Tablebase(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Retrieve the tablebase in the directory configured by the DIRECTORY_PROPERTY system property, shared
+     * by the whole process so that every file is mapped once
+     * @return a Tablebase instance
+     */
+    public static synchronized Tablebase fromConfiguration() {
+        if (configured == null) {
+            configured = new Tablebase(Paths.get(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY)));
+        }
+        return configured;
+    }
+
+    /**
+     * Retrieve the number of a subspace
+     * @param moverCount the number of tokens on board of the side to move
+     * @param otherCount the number of tokens on board of the opponent
+     * @return the number of the subspace
+     */
+    private static int subspace(int moverCount, int otherCount) {
+        return moverCount * (MAX_TOKENS + 1) + otherCount;
+    }
+
+    /**
+     * Retrieve the directory of the files
+     * @return the directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Retrieve the cache of the decompressed blocks
+     * @return a BlockCache instance
+     */
+    public BlockCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Retrieve the index of a subspace
+     * @param moverCount the number of tokens on board of the side to move, from MIN_TOKENS to MAX_TOKENS
+     * @param otherCount the number of tokens on board of the opponent, from MIN_TOKENS to MAX_TOKENS
+     * @return a PositionIndex instance
+     */
+    public synchronized PositionIndex getIndex(int moverCount, int otherCount) {
+        int subspace = subspace(moverCount, otherCount);
+        if (indexes[subspace] == null) {
+            indexes[subspace] = new PositionIndex(moverCount, otherCount);
+        }
+        return indexes[subspace];
+    }
+
+    /**
+     * Retrieve the values of a subspace, reading its file the first time
+     * @param moverCount the number of tokens on board of the side to move
+     * @param otherCount the number of tokens on board of the opponent
+     * @return the values indexed by position, or null if the directory has no file of the subspace
+     */
+    public synchronized byte[] getValues(int moverCount, int otherCount) {
+        int subspace = subspace(moverCount, otherCount);
+        if (!loaded[subspace]) {
+            Path file = directory.resolve(TablebaseFile.getFileName(moverCount, otherCount));
+            if (Files.exists(file)) {
+                try {
+                    values[subspace] = TablebaseFile.read(file, getIndex(moverCount, otherCount));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot read the tablebase file " + file, e);
+                }
+            }
+            loaded[subspace] = true;
+        }
+        return values[subspace];
+    }
+
+    /**
+     * Add the values of a subspace that has just been solved
+     * @param moverCount the number of tokens on board of the side to move
+     * @param otherCount the number of tokens on board of the opponent
+     * @param subspaceValues the values indexed by position
+     */
+    public synchronized void putValues(int moverCount, int otherCount, byte[] subspaceValues) {
+        int subspace = subspace(moverCount, otherCount);
+        values[subspace] = subspaceValues;
+        loaded[subspace] = true;
+    }
+
+    /**
+     * Retrieve the mapped file of a subspace, mapping it the first time
+     * @param moverCount the number of tokens on board of the side to move
+     * @param otherCount the number of tokens on board of the opponent
+     * @return the SubspaceTable of the subspace, or null if the directory has no file of the subspace
+     */
+    private SubspaceTable getTable(int moverCount, int otherCount) {
+        Optional<SubspaceTable> table = tables.get(subspace(moverCount, otherCount));
+        if (table == null) {
+            table = mapTable(moverCount, otherCount);
+        }
+        return table.orElse(null);
+    }
+
+    /**
+     * Map the file of a subspace once, however many threads probe it at the same time
+     * @param moverCount the number of tokens on board of the side to move
+     * @param otherCount the number of tokens on board of the opponent
+     * @return the SubspaceTable of the subspace, empty if the directory has no file of the subspace
+     */
+    private synchronized Optional<SubspaceTable> mapTable(int moverCount, int otherCount) {
+        int subspace = subspace(moverCount, otherCount);
+        Optional<SubspaceTable> table = tables.get(subspace);
+        if (table == null) {
+            Path file = directory.resolve(TablebaseFile.getFileName(moverCount, otherCount));
+            table = Optional.empty();
+            if (Files.exists(file)) {
+                try {
+                    table = Optional.of(TablebaseFile.map(file, getIndex(moverCount, otherCount), cache));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot map the tablebase file " + file, e);
+                }
+            }
+            tables.set(subspace, table);
+        }
+        return table;
+    }
+
+    /**
+     * Determine if the tablebase holds a subspace
+     * @param moverCount the number of tokens on board of the side to move
+     * @param otherCount the number of tokens on board of the opponent
+     * @return true if the directory has the file of the subspace, else false
+     */
+    public boolean contains(int moverCount, int otherCount) {
+        return getTable(moverCount, otherCount) != null;
+    }
+
+    /**
+     * Determine if a position of a game can be probed
+     * @param bitboard the position
+     * @return true if no token is left to set and the side to move is not removing a token, else false
+     */
+    private static boolean isProbeable(Bitboard bitboard) {
+        TokenColor side = bitboard.getSideToMove();
+        return bitboard.getTokensToSet(side) == 0 && bitboard.getTokensToSet(side.opposite()) == 0
+                && bitboard.getGameState() != GameState.REMOVE;
+    }
+
+    /**
+     * Retrieve the mapped file of the subspace of a position
+     * @param mover the mask of the tokens of the side to move
+     * @param other the mask of the tokens of the opponent
+     * @return the SubspaceTable of the subspace, or null if the tablebase does not hold it
+     */
+    private SubspaceTable getTableOf(int mover, int other) {
+        int moverCount = Integer.bitCount(mover);
+        int otherCount = Integer.bitCount(other);
+        if (moverCount < MIN_TOKENS || otherCount < MIN_TOKENS || moverCount > MAX_TOKENS || otherCount > MAX_TOKENS) {
+            return null;
+        }
+        return getTable(moverCount, otherCount);
+    }
+
+    /**
+     * Probe the result of a position of a game
+     * @param bitboard the position
+     * @return WDL_DRAW, WDL_WIN or WDL_LOSS for the side to move, or NOT_FOUND while tokens are set, during
+     * a removal, or if the tablebase does not hold its subspace
+     */
+    public int probeWdl(Bitboard bitboard) {
+        if (!isProbeable(bitboard)) {
+            return NOT_FOUND;
+        }
+        TokenColor side = bitboard.getSideToMove();
+        return probeWdl(bitboard.getMask(side), bitboard.getMask(side.opposite()));
+    }
+
+    /**
+     * Probe the result of a position once no token is left to set
+     * @param mover the mask of the tokens of the side to move
+     * @param other the mask of the tokens of the opponent
+     * @return WDL_DRAW, WDL_WIN or WDL_LOSS for the side to move, or NOT_FOUND if the tablebase does not
+     * hold its subspace
+     */
+    public int probeWdl(int mover, int other) {
+        SubspaceTable table = getTableOf(mover, other);
+        if (table == null) {
+            return NOT_FOUND;
+        }
+        return table.getWdl(table.getIndex().rank(mover, other));
+    }
+
+    /**
+     * Probe the value of a position of a game
+     * @param bitboard the position
+     * @return the value of the position for the side to move, or NOT_FOUND while tokens are set, during a
+     * removal, or if the tablebase does not hold the distances of its subspace
+     */
+    public int probe(Bitboard bitboard) {
+        if (!isProbeable(bitboard)) {
+            return NOT_FOUND;
+        }
+        TokenColor side = bitboard.getSideToMove();
+        return probe(bitboard.getMask(side), bitboard.getMask(side.opposite()));
+    }
+
+    /**
+     * Probe the value of a position once no token is left to set
+     * @param mover the mask of the tokens of the side to move
+     * @param other the mask of the tokens of the opponent
+     * @return the value of the position for the side to move, or NOT_FOUND if the tablebase does not hold
+     * the distances of its subspace
+     */
+    public int probe(int mover, int other) {
+        SubspaceTable table = getTableOf(mover, other);
+        if (table == null || !table.hasDistances()) {
+            return NOT_FOUND;
+        }
+        return table.getValue(table.getIndex().rank(mover, other));
+    }
+
+    /**
+     * Probe the value of a move, by probing the position it leads to
+     * @param bitboard the position, which is made the move and restored
+     * @param move the packed move, which must be legal in the position
+     * @return the value of the move for the side that plays it, or NOT_FOUND if the tablebase does not hold
+     * the distances of the position reached
+     */
+    public int probeMove(Bitboard bitboard, int move) {
+        bitboard.makeMove(move);
+        TokenColor opponent = bitboard.getSideToMove();
+        int value;
+        if (bitboard.getTokensOnBoard(opponent) + bitboard.getTokensToSet(opponent) < MIN_TOKENS) {
+            // the opponent has lost at once
+            value = valueOf(0);
+        } else {
+            value = probe(bitboard);
+        }
+        bitboard.unmakeMove();
+        if (value == NOT_FOUND || value == DRAW) {
+            return value;
+        }
+        return valueOf(getDistance(value) + 1);
+    }
+
+    /**
+     * Move the best moves of a position to the front of a list of its moves: the fastest wins, else the
+     * draws, else the slowest losses
+     * @param bitboard the position, which is made every move and restored
+     * @param moves the legal moves of the position, reordered in place
+     * @param count the number of moves
+     * @return the number of best moves, or 0 if the tablebase does not hold the distances of every
+     * position the moves lead to
+     */
+    public int selectBestMoves(Bitboard bitboard, int[] moves, int count) {
+        int best = Integer.MIN_VALUE;
+        int bestCount = 0;
+        for (int i = 0; i < count; i++) {
+            int value = probeMove(bitboard, moves[i]);
+            if (value == NOT_FOUND) {
+                return 0;
+            }
+
+            // keep the best moves at the front, in their order
+            int order = order(value);
+            if (order > best) {
+                best = order;
+                bestCount = 0;
+            }
+            if (order == best) {
+                int move = moves[i];
+                System.arraycopy(moves, bestCount, moves, bestCount + 1, i - bestCount);
+                moves[bestCount++] = move;
+            }
+        }
+        return bestCount;
+    }
+
+    /**
+     * Order values from the point of view of the side to move
+     * @param value the value
+     * @return a larger integer for a better value
+     */
+    private static int order(int value) {
+        if (value == DRAW) {
+            return 0;
+        }
+        int distance = getDistance(value);
+        return isWin(value) ? 256 - distance : distance - 256;
+    }
+
+    /**
+     * Retrieve the value of a position decided in a number of plies
+     * @param distance the number of plies to the end of the game, odd for a win of the side to move and
+     *                 even for a loss
+     * @return the value
+     */
+    public static int valueOf(int distance) {
+        return distance + 1;
+    }
+
+    /**
+     * Determine if a value is a win of the side to move
+     * @param value the value
+     * @return true if the side to move wins, else false
+     */
+    public static boolean isWin(int value) {
+        return value > DRAW && (value & 1) == 0;
+    }
+
+    /**
+     * Determine if a value is a loss of the side to move
+     * @param value the value
+     * @return true if the side to move loses, else false
+     */
+    public static boolean isLoss(int value) {
+        return value > DRAW && (value & 1) == 1;
+    }
+
+    /**
+     * Retrieve the number of plies to the end of the game of a won or lost position
+     * @param value the value, not DRAW
+     * @return the number of plies with perfect play
+     */
+    public static int getDistance(int value) {
+        return value - 1;
+    }
+
+    /**
+     * Retrieve the WDL result of a value
+     * @param value the value
+     * @return WDL_DRAW, WDL_WIN or WDL_LOSS
+     */
+    public static int getWdl(int value) {
+        if (value == DRAW) {
+            return WDL_DRAW;
+        }
+        return isWin(value) ? WDL_WIN : WDL_LOSS;
+    }
+
+    /**
+     * Describe a value
+     * @param value the value, or NOT_FOUND
+     * @return a String such as "win in 5 plies"
+     */
+    public static String describe(int value) {
+        if (value == NOT_FOUND) {
+            return "unknown";
+        }
+        if (value == DRAW) {
+            return "draw";
+        }
+        return (isWin(value) ? "win in " : "loss in ") + getDistance(value) + " plies";
+    }
+}
@@ -0,0 +1,256 @@
+package tablebase;
+
+import util.AtomicFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * The TablebaseFile class reads and writes the file of one subspace of the tablebase. A file starts with a
+ * header of a magic number, the version of the format, the number of tokens of the side to move and of the
+ * opponent, the number of positions, the flags of the layers the file holds and the length of a block.
+ * The WDL layer comes first, two bits per position in the order of PositionIndex, four positions per byte
+ * from the lowest bits up, telling a draw, a win or a loss of the side to move. The optional distance layer
+ * follows, one value byte per position as described by Tablebase. A compressed file splits every layer
+ * into blocks of the block length, compressed independently with Deflater: the header is followed by the
+ * index of the offsets of the blocks of both layers from the end of the header, one more offset marking
+ * the end of the last block, then by the blocks. Files are read by mapping them, so a probe only touches
+ * the pages it reads.
+ */
+public final class TablebaseFile {
+    /**
+     * an integer represents the magic number a tablebase file starts with, "NMMT" in ASCII
+     */
+    public static final int MAGIC = 0x4E4D4D54;
+
+    /**
+     * an integer represents the version of the format
+     */
+    public static final int VERSION = 4;
+
+    /**
+     * an integer represents the length in bytes of the header
+     */
+    public static final int HEADER_LENGTH = 28;
+
+    /**
+     * an integer flag of the header to indicate that the file holds the distance layer
+     */
+    public static final int DISTANCES = 1;
+
+    /**
+     * an integer flag of the header to indicate that the layers are compressed by blocks
+     */
+    public static final int COMPRESSED = 2;
+
+    /**
+     * an integer represents the length in bytes of a decompressed block of the files written
+     */
+    public static final int BLOCK_LENGTH = 8192;
+
+    /**
+     * Constructor
+     */
+    private TablebaseFile() {
+    }
+
+    /**
+     * Retrieve the name of the file of a subspace
+     * @param moverCount the number of tokens on board of the side to move
+     * @param otherCount the number of tokens on board of the opponent
+     * @return the file name, e.g. 4-3.tb
+     */
+    public static String getFileName(int moverCount, int otherCount) {
+        return moverCount + "-" + otherCount + ".tb";
+    }
+
+    /**
+     * Retrieve the length in bytes of the WDL layer of a subspace
+     * @param size the number of positions of the subspace
+     * @return the length of the layer
+     */
+    public static int getWdlLength(int size) {
+        return (int) ((size + 3L) / 4);
+    }
+
+    /**
+     * Retrieve the number of blocks of a layer
+     * @param layerLength the length in bytes of the layer
+     * @param blockLength the length in bytes of a block
+     * @return the number of blocks
+     */
+    public static int getBlockCount(int layerLength, int blockLength) {
+        return (int) ((layerLength + (long) blockLength - 1) / blockLength);
+    }
+
+    /**
+     * Write the values of a subspace
+     * @param file the file to write
+     * @param index the index of the subspace
+     * @param values the values indexed by position
+     * @param flags DISTANCES to write the distance layer, COMPRESSED to compress the layers, both or 0
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path file, PositionIndex index, byte[] values, int flags) throws IOException {
+        // pack four positions per byte
+        byte[] wdl = new byte[getWdlLength(index.size())];
+        for (int position = 0; position < index.size(); position++) {
+            wdl[position >>> 2] |= Tablebase.getWdl(values[position] & 0xFF) << ((position & 3) << 1);
+        }
+        byte[][] layers = (flags & DISTANCES) != 0
+                ? new byte[][] {wdl, Arrays.copyOf(values, index.size())} : new byte[][] {wdl};
+
+        // a file is there complete or not at all, so an interrupted run does not take it for solved
+        AtomicFile.write(file, output -> {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(index.getMoverCount());
+            output.writeInt(index.getOtherCount());
+            output.writeInt(index.size());
+            output.writeInt(flags);
+            output.writeInt(BLOCK_LENGTH);
+            if ((flags & COMPRESSED) == 0) {
+                for (byte[] layer : layers) {
+                    output.write(layer);
+                }
+                return;
+            }
+
+            // compress the blocks of every layer, then write their offsets and the blocks
+            int numOfBlocks = 0;
+            for (byte[] layer : layers) {
+                numOfBlocks += getBlockCount(layer.length, BLOCK_LENGTH);
+            }
+            byte[][] blocks = new byte[numOfBlocks][];
+            int block = 0;
+            for (byte[] layer : layers) {
+                for (int start = 0; start < layer.length; start += BLOCK_LENGTH) {
+                    blocks[block++] = compress(layer, start, Math.min(BLOCK_LENGTH, layer.length - start));
+                }
+            }
+            long offset = (numOfBlocks + 1L) * Long.BYTES;
+            for (byte[] compressed : blocks) {
+                output.writeLong(offset);
+                offset += compressed.length;
+            }
+            output.writeLong(offset);
+            for (byte[] compressed : blocks) {
+                output.write(compressed);
+            }
+        });
+    }
+
+    /**
+     * Compress a block of a layer
+     * @param layer the bytes of the layer
+     * @param start the offset of the block in the layer
+     * @param length the length of the block
+     * @return the compressed bytes
+     */
+    private static byte[] compress(byte[] layer, int start, int length) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        deflater.setInput(layer, start, length);
+        deflater.finish();
+        byte[] buffer = new byte[length + 64];
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == buffer.length) {
+                buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+            }
+            compressedLength += deflater.deflate(buffer, compressedLength, buffer.length - compressedLength);
+        }
+        deflater.end();
+        return Arrays.copyOf(buffer, compressedLength);
+    }
+
+    /**
+     * Read the values of a subspace, checking that the file holds that subspace
+     * @param file the file to read
+     * @param index the index of the subspace
+     * @return the values indexed by position
+     * @throws IOException if the file cannot be read, is not the file of the subspace or has no distance layer
+     */
+    public static byte[] read(Path file, PositionIndex index) throws IOException {
+        SubspaceTable table = map(file, index, new BlockCache(1));
+        if (!table.hasDistances()) {
+            throw new IOException(file + " has no distance layer");
+        }
+        byte[] values = new byte[index.size()];
+        table.copyValues(values);
+        return values;
+    }
+
+    /**
+     * Map the layers of a file, checking that the file holds a subspace. Mapping does not read the file,
+     * its pages are only read when first probed, and they stay valid once the file is closed.
+     * @param file the file to map
+     * @param index the index of the subspace
+     * @param cache the cache of the decompressed blocks, used if the file is compressed
+     * @return a MappedTable instance, or a CompressedTable instance if the file is compressed
+     * @throws IOException if the file cannot be mapped or is not the file of the subspace
+     */
+    public static SubspaceTable map(Path file, PositionIndex index, BlockCache cache) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // read until the header is complete or the file ends
+            }
+            int flags = checkHeader(header.flip(), file, index);
+            int blockLength = header.getInt();
+            if ((flags & COMPRESSED) != 0) {
+                if (blockLength <= 0) {
+                    throw new IOException(file + " has the invalid block length " + blockLength);
+                }
+                if (channel.size() - HEADER_LENGTH > Integer.MAX_VALUE) {
+                    throw new IOException(file + " is too large to map at once");
+                }
+                MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_LENGTH,
+                        channel.size() - HEADER_LENGTH);
+                return new CompressedTable(index, data, blockLength, (flags & DISTANCES) != 0, cache);
+            }
+
+            long wdlLength = getWdlLength(index.size());
+            long length = HEADER_LENGTH + wdlLength + ((flags & DISTANCES) != 0 ? index.size() : 0);
+            if (channel.size() != length) {
+                throw new IOException(file + " is " + channel.size() + " bytes long, expected " + length);
+            }
+            MappedByteBuffer wdl = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_LENGTH, wdlLength);
+            MappedByteBuffer distances = (flags & DISTANCES) == 0 ? null
+                    : channel.map(FileChannel.MapMode.READ_ONLY, HEADER_LENGTH + wdlLength, index.size());
+            return new MappedTable(index, wdl, distances);
+        }
+    }
+
+    /**
+     * Check that a header is the header of the file of a subspace
+     * @param header the bytes of the header
+     * @param file the file, for the error message
+     * @param index the index of the subspace
+     * @return the flags of the header
+     * @throws IOException if the header is incomplete or does not match the subspace
+     */
+    private static int checkHeader(ByteBuffer header, Path file, PositionIndex index) throws IOException {
+        if (header.remaining() < HEADER_LENGTH || header.getInt() != MAGIC) {
+            throw new IOException(file + " is not a tablebase file");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException(file + " has the unsupported version " + version);
+        }
+        int moverCount = header.getInt();
+        int otherCount = header.getInt();
+        int size = header.getInt();
+        if (moverCount != index.getMoverCount() || otherCount != index.getOtherCount() || size != index.size()) {
+            throw new IOException(file + " holds the subspace " + moverCount + "-" + otherCount + " of " + size
+                    + " positions, expected " + index.getMoverCount() + "-" + index.getOtherCount() + " of "
+                    + index.size());
+        }
+        return header.getInt();
+    }
+}
@@ -0,0 +1,74 @@
+package util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * The AtomicFile class writes the files a long computation saves its state or its results to, such as the
+ * checkpoints a job is resumed from. A file is written to a temporary file in the same directory, forced to
+ * the disk and renamed over the file, so a crash leaves either the previous file or the new one, never a
+ * file written halfway.
+ */
+public final class AtomicFile {
+    /**
+     * The Content interface writes the content of a file
+     */
+    public interface Content {
+        /**
+         * Write the content
+         * @param output the stream of the temporary file
+         * @throws IOException if the content cannot be written
+         */
+        void write(DataOutputStream output) throws IOException;
+    }
+
+    /**
+     * Constructor
+     */
+    private AtomicFile() {
+    }
+
+    /**
+     * Write a file atomically
+     * @param file the file to write, replaced if it exists
+     * @param content the content of the file
+     * @throws IOException if the file cannot be written, in which case it is left as it was
+     */
+    public static void write(Path file, Content content) throws IOException {
+        // a file left by an interrupted write is simply written over
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileOutputStream stream = new FileOutputStream(temporary.toFile());
+                 DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream))) {
+                content.write(output);
+                output.flush();
+                stream.getFD().sync();
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Open a file written by write
+     * @param file the file to read
+     * @return a buffered DataInputStream of the file, to be closed by the caller
+     * @throws IOException if the file cannot be opened
+     */
+    public static DataInputStream open(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+    }
+}
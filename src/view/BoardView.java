@@ -266,7 +266,7 @@ public abstract class BoardView extends JPanel implements Observer {
         int y = 460;
 
         // draw the 9-star tokens
-        for (int i = 0; i < gameController.getFirstPlayer().getTokensToSet(); i++) {
+        for (int i = 0; i < gameController.getBoard().getBitboard().getTokensToSet(TokenColor.WHITE); i++) {
             // draw pieces
             g.setColor(Color.WHITE);
             g.drawImage(imgStar, x + DISTANCE_FROM_BORDER_FOR_X, y + DISTANCE_FROM_BORDER_FOR_Y, 25, 25, this);
@@ -276,7 +276,7 @@ public abstract class BoardView extends JPanel implements Observer {
         // draw the 9-moon tokens
         x = 18 * DISTANCE_BETWEEN_TOKENS;
         y = 460;
-        for (int i = gameController.getSecondPlayer().getTokensToSet(); i > 0; i--) {
+        for (int i = gameController.getBoard().getBitboard().getTokensToSet(TokenColor.BLACK); i > 0; i--) {
             g.setColor(Color.BLACK);
             g.drawImage(imgMoon, x + DISTANCE_FROM_BORDER_FOR_X, y + DISTANCE_FROM_BORDER_FOR_Y, 25, 25, this);
             x -= DISTANCE_BETWEEN_TOKENS;
@@ -24,8 +24,37 @@ public class NormalBoardView extends BoardView{
         hint.setBounds(220,230,60,40);
         hint.setFocusable(false);
         add(hint);
+
+        // add undo and redo buttons
+        JButton undo = new JButton("Undo");
+        undo.setBounds(190,272,55,28);
+        undo.setMargin(new Insets(0,0,0,0));
+        undo.setFocusable(false);
+        add(undo);
+        JButton redo = new JButton("Redo");
+        redo.setBounds(255,272,55,28);
+        redo.setMargin(new Insets(0,0,0,0));
+        redo.setFocusable(false);
+        add(redo);
         setLayout(null);
 
+        // let the computer play its turn in the background, the board stays responsive meanwhile
+        Runnable requestComputerTurn = () -> {
+            // disable hint button
+            if (GameController.getInstance().isPlayWithComputer()) {
+                if (GameController.getInstance().getCurrentPlayer() == GameController.getInstance().getSecondPlayer()) {
+                    hint.setEnabled(false);
+                }
+            }
+            GameController.getInstance().requestComputerTurn(() -> {
+                // enable back hint button
+                hint.setEnabled(true);
+
+                // render the latest state of board
+                update();
+            });
+        };
+
         // attach mouse click event handler
         addMouseListener(new MouseAdapter() {
             @Override
@@ -44,56 +73,30 @@ public class NormalBoardView extends BoardView{
                 // pass to game controller for handling click event
                 GameController.getInstance().processClick(e);
 
-                // disable hint button
-                if (GameController.getInstance().isPlayWithComputer()) {
-                    if (GameController.getInstance().getCurrentPlayer() == GameController.getInstance().getSecondPlayer()) {
-                        hint.setEnabled(false);
-                    }
-                }
-
-                // Create a timer with a delay of 5 seconds
-                Timer timer = new Timer(1000, new ActionListener() {
-                    @Override
-                    public void actionPerformed(ActionEvent evt) {
-
-
-                        // This code will be executed after the delay
-                        GameController.getInstance().processComputerCommand();
-
-                        // enable back hint button
-                        hint.setEnabled(true);
-                    }
-                });
-
-                // Start the timer
-                timer.setRepeats(false); // Execute only once
-                timer.start();
-
                 // render the latest state of board
                 update();
+                requestComputerTurn.run();
+            }
+        });
 
-                if (GameController.getInstance().getCurrentPlayer().isComputer() && GameController.getInstance().getCurrentState() == GameState.REMOVE){
-                    // Create a timer with a delay of 5 seconds
-                    Timer timer2 = new Timer(1000, new ActionListener() {
-                        @Override
-                        public void actionPerformed(ActionEvent evt) {
-
-
-                            // This code will be executed after the delay
-                            GameController.getInstance().processComputerCommand();
-
-                            // enable back hint button
-                            hint.setEnabled(true);
-                        }
-                    });
-                    // Start the timer
-                    timer2.setRepeats(false); // Execute only once
-                    timer2.start();
+        // attach listeners to undo and redo buttons
+        undo.addActionListener(e -> {
+            // take back the last move, and the computer's reply
+            GameController.getInstance().undo();
+            hint.setEnabled(true);
+            update();
 
-                    // render the latest state of board
-                    update();
-                }
-            }
+            // the history may end on the computer's turn, e.g. after a cancelled turn
+            requestComputerTurn.run();
+        });
+        redo.addActionListener(e -> {
+            // play again the last move taken back
+            GameController.getInstance().redo();
+            hint.setEnabled(true);
+            update();
+
+            // the history may end on the computer's turn, e.g. after a cancelled turn
+            requestComputerTurn.run();
         });
 
         // attach listener to hint button
@@ -44,23 +44,11 @@ public class TutorialBoardView extends BoardView{
                 // pass to game controller for handling click event
                 GameController.getInstance().processClick(e);
 
-                // Create a timer with a delay of 1 seconds
-                Timer timer = new Timer(1000, new ActionListener() {
-                    @Override
-                    public void actionPerformed(ActionEvent evt) {
-
-                        // This code will be executed after the delay
-                        GameController.getInstance().processComputerCommand();
-
-                    }
-                });
-
-                // Start the timer
-                timer.setRepeats(false); // Execute only once
-                timer.start();
-
                 // render the latest state of board
                 update();
+
+                // let the computer play its turn in the background, the board stays responsive meanwhile
+                GameController.getInstance().requestComputerTurn(() -> update());
             }
         });
 